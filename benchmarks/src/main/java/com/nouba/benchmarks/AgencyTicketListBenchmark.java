@@ -0,0 +1,88 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.TestData;
+import com.nouba.app.dto.TicketAgencyDto;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.services.TicketService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The agency ticket list (GET /tickets/agency/{id}/all) for agencies of different sizes.
+ * The set-up fails if listing the agency takes more than one SQL statement: the statement
+ * count must not grow with the number of tickets (no per-ticket position query, no lazy loads).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AgencyTicketListBenchmark {
+
+    @Param({"200", "2000"})
+    public int tickets;
+
+    private NoubaContext context;
+    private TicketService ticketService;
+    private TestData.Fixture fixture;
+
+    @Setup
+    public void setUp() {
+        context = NoubaContext.start();
+        ticketService = context.bean(TicketService.class);
+        fixture = context.testData().createAgency();
+        // A busy day: two thirds served or cancelled, the last third waiting
+        int firstWaiting = tickets - tickets / 3;
+        context.testData().insertTickets(fixture, 1, tickets, LocalDate.now().atStartOfDay(), i ->
+                i >= firstWaiting ? Ticket.TicketStatus.EN_ATTENTE
+                        : i % 10 == 0 ? Ticket.TicketStatus.ANNULE : Ticket.TicketStatus.TERMINE);
+        verifyStatementCount();
+    }
+
+    private void verifyStatementCount() {
+        // First call loads the agency's in-memory queue (used by the wait estimate); not counted
+        ticketService.getAllTicketsByAgency(fixture.agencyId());
+
+        Statistics statistics = context.bean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            List<TicketAgencyDto> listed = ticketService.getAllTicketsByAgency(fixture.agencyId());
+            long statements = statistics.getPrepareStatementCount();
+            if (listed.size() != tickets || statements != 1) {
+                throw new IllegalStateException("Listing " + listed.size() + " of " + tickets + " tickets took "
+                        + statements + " SQL statements, expected 1");
+            }
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TicketAgencyDto> allTicketsByAgency() {
+        return ticketService.getAllTicketsByAgency(fixture.agencyId());
+    }
+}
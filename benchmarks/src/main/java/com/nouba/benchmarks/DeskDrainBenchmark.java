@@ -0,0 +1,115 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.TestData;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.repositories.TicketRepository;
+import com.nouba.app.services.TicketService;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 16 desks of one agency draining a line of {@code tickets} waiting tickets concurrently
+ * (serveNextAtDesk: conditional claim of the head of the line). Each iteration measures the
+ * time for one desk thread to see an empty line, and fails if a ticket was served twice
+ * or left behind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@Threads(16)
+public class DeskDrainBenchmark {
+
+    @Param("10000")
+    public int tickets;
+
+    private NoubaContext context;
+    private TicketService ticketService;
+    private TicketRepository ticketRepository;
+    private AgencyQueueManager queueManager;
+
+    private TestData.Fixture fixture;
+    private final AtomicInteger nextDesk = new AtomicInteger();
+    private final Set<Long> served = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger duplicates = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = NoubaContext.start();
+        ticketService = context.bean(TicketService.class);
+        ticketRepository = context.bean(TicketRepository.class);
+        queueManager = context.bean(AgencyQueueManager.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillLine() {
+        // A new agency per iteration: fresh line, numbering and desks
+        fixture = context.testData().createAgency();
+        context.testData().insertTickets(fixture, 1, tickets, LocalDateTime.now(), i -> Ticket.TicketStatus.EN_ATTENTE);
+        queueManager.reset(); // reload lines from the table
+        nextDesk.set(0);
+        served.clear();
+        duplicates.set(0);
+    }
+
+    @State(Scope.Thread)
+    public static class Desk {
+        int number;
+
+        @Setup(Level.Iteration)
+        public void assign(DeskDrainBenchmark benchmark) {
+            number = benchmark.nextDesk.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public int drain(Desk desk) {
+        int count = 0;
+        while (true) {
+            Optional<Ticket> ticket = ticketService.serveNextAtDesk(fixture.agencyId(), desk.number);
+            if (ticket.isEmpty()) {
+                return count;
+            }
+            if (!served.add(ticket.get().getId())) {
+                duplicates.incrementAndGet();
+            }
+            count++;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify() {
+        int waiting = ticketRepository.countPendingByAgencyId(fixture.agencyId());
+        if (duplicates.get() > 0 || served.size() != tickets || waiting != 0) {
+            throw new IllegalStateException("Drain failed: " + served.size() + " of " + tickets + " served, "
+                    + duplicates.get() + " served twice, " + waiting + " still waiting");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.services.EmailTemplateEngine;
+import org.apache.commons.lang3.text.StrSubstitutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the ticket confirmation email: the compiled-template engine used by
+ * EmailService.loadEmailTemplate, against the previous approach (read the file and run a
+ * new StrSubstitutor for every email) and StrSubstitutor on an already loaded template.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class EmailTemplateBenchmark {
+    private static final String TEMPLATE = "templates/emails/ticket-creation-confirmation.html";
+
+    private AnnotationConfigApplicationContext context;
+    private EmailTemplateEngine engine;
+    private String source;
+    private Map<String, String> values;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new AnnotationConfigApplicationContext(EmailTemplateEngine.class);
+        engine = context.getBean(EmailTemplateEngine.class);
+        source = read();
+        values = Map.of(
+                "clientName", "Client Bench",
+                "ticketNumber", "NOUBA042",
+                "agencyName", "Agence Centre",
+                "serviceName", "Ouverture de compte",
+                "peopleAhead", "7",
+                "estimatedWait", "35",
+                "status", "EN_ATTENTE");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String compiledTemplate() {
+        return engine.render(TEMPLATE, values);
+    }
+
+    @Benchmark
+    public String strSubstitutorPreloaded() {
+        return new StrSubstitutor(values).replace(source);
+    }
+
+    @Benchmark
+    public String strSubstitutorReadingFile() throws IOException {
+        return new StrSubstitutor(values).replace(read());
+    }
+
+    private static String read() throws IOException {
+        try (InputStream in = new ClassPathResource(TEMPLATE).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.entities.Client;
+import com.nouba.app.entities.Role;
+import com.nouba.app.entities.User;
+import com.nouba.app.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation (login) and parsing/verification (every authenticated request on a cache miss).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtils jwtUtils;
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+
+        User user = new User();
+        user.setId(7L);
+        user.setName("Client Bench");
+        user.setEmail("client@bench.local");
+        user.setRole(Role.CLIENT);
+        Client client = new Client();
+        client.setId(3L);
+        client.setUser(user);
+        user.setClient(client);
+
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                user, null, List.of(new SimpleGrantedAuthority("ROLE_CLIENT")));
+        auth.setDetails(Map.of("name", user.getName(), "email", user.getEmail(), "role", "CLIENT", "id", 7L));
+        authentication = auth;
+        token = jwtUtils.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtils.generateToken(authentication);
+    }
+
+    @Benchmark
+    public Optional<Claims> parseToken() {
+        return jwtUtils.parseToken(token);
+    }
+}
@@ -0,0 +1,48 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.AppApplication;
+import com.nouba.app.TestData;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The whole application started on an in-memory H2 database.
+ * One context per benchmark trial (JMH forks a JVM per benchmark anyway).
+ */
+final class NoubaContext implements AutoCloseable {
+    private final ConfigurableApplicationContext context;
+    private final TransactionTemplate transaction;
+
+    private NoubaContext(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    static NoubaContext start() {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AppApplication.class)
+                .run("--spring.config.location=classpath:/benchmark.properties");
+        return new NoubaContext(context);
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    TransactionTemplate transaction() {
+        return transaction;
+    }
+
+    /**
+     * Test data helpers of the application's tests (agencies, tickets inserted in bulk).
+     */
+    TestData testData() {
+        return bean(TestData.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
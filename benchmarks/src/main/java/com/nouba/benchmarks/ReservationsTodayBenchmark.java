@@ -0,0 +1,91 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.TestData;
+import com.nouba.app.dto.TicketReservationDTO;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.services.TicketService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The admin "reservations today" list: the previous entity query (tickets with agency, city,
+ * client and user fetched, then mapped) against the DTO projection the service now runs.
+ * Run with -prof gc to compare the allocation per call (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReservationsTodayBenchmark {
+
+    @Param({"500", "5000"})
+    public int tickets;
+
+    private NoubaContext context;
+    private TicketService ticketService;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup
+    public void setUp() {
+        context = NoubaContext.start();
+        ticketService = context.bean(TicketService.class);
+        entityManagerFactory = context.bean(EntityManagerFactory.class);
+        TestData.Fixture fixture = context.testData().createAgency();
+        context.testData().insertTickets(fixture, 1, tickets, LocalDate.now().atStartOfDay(), i ->
+                i % 4 == 0 ? Ticket.TicketStatus.EN_ATTENTE : Ticket.TicketStatus.TERMINE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TicketReservationDTO> entityGraph() {
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        return context.transaction().execute(status -> {
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            return entityManager.createQuery("SELECT t FROM Ticket t JOIN FETCH t.agency a JOIN FETCH a.city " +
+                            "JOIN FETCH t.client c JOIN FETCH c.user " +
+                            "WHERE t.issuedAt >= :from AND t.issuedAt < :to ORDER BY t.issuedAt DESC, t.id DESC", Ticket.class)
+                    .setParameter("from", from)
+                    .setParameter("to", from.plusDays(1))
+                    .getResultStream()
+                    .map(ticket -> TicketReservationDTO.builder()
+                            .id(ticket.getId())
+                            .ticketNumber(ticket.getNumber())
+                            .clientName(ticket.getClient().getUser().getName())
+                            .clientEmail(ticket.getClient().getUser().getEmail())
+                            .agencyName(ticket.getAgency().getName())
+                            .city(ticket.getAgency().getCity().getName())
+                            .issuedAt(ticket.getIssuedAt())
+                            .build())
+                    .toList();
+        });
+    }
+
+    @Benchmark
+    public List<TicketReservationDTO> projection() {
+        return ticketService.getAllTicketsReservedToday();
+    }
+}
@@ -0,0 +1,82 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.TestData;
+import com.nouba.app.dto.RolloverReportDTO;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.services.TicketRolloverService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily rollover of {@code tickets} tickets from yesterday into ticket_archive (batched moves).
+ * After each iteration prints the rollover report: batches, longest batch (how long rows stayed
+ * locked) and archived tickets per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RolloverBenchmark {
+
+    @Param("500000")
+    public int tickets;
+
+    private NoubaContext context;
+    private TicketRolloverService rolloverService;
+    private RolloverReportDTO lastReport;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = NoubaContext.start();
+        rolloverService = context.bean(TicketRolloverService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillYesterday() {
+        TestData.Fixture fixture = context.testData().createAgency();
+        context.testData().insertTickets(fixture, 1, tickets, LocalDate.now().minusDays(1).atStartOfDay(),
+                i -> i % 10 == 0 ? Ticket.TicketStatus.ANNULE : Ticket.TicketStatus.TERMINE);
+    }
+
+    @Benchmark
+    public RolloverReportDTO rollover() {
+        RolloverReportDTO report = rolloverService.rollover(LocalDate.now().atStartOfDay());
+        if (report.getArchivedTickets() != tickets) {
+            throw new IllegalStateException("Archived " + report.getArchivedTickets() + " of " + tickets + " tickets");
+        }
+        lastReport = report;
+        return report;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printReport() {
+        if (lastReport != null) {
+            long perSecond = lastReport.getArchivedTickets() * 1000 / Math.max(1, lastReport.getTotalDurationMs());
+            System.out.println("Rollover: " + lastReport.getArchivedTickets() + " tickets in " + lastReport.getBatches()
+                    + " batches, " + lastReport.getTotalDurationMs() + " ms (" + perSecond + " tickets/s), longest batch "
+                    + lastReport.getMaxBatchDurationMs() + " ms, sequence reset " + lastReport.getSequenceResetMs() + " ms");
+            lastReport = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
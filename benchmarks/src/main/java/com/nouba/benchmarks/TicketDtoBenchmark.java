@@ -0,0 +1,88 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.dto.TicketDTO;
+import com.nouba.app.entities.Agency;
+import com.nouba.app.entities.Client;
+import com.nouba.app.entities.Servicee;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.entities.TicketArchive;
+import com.nouba.app.entities.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TicketDTO.from for live and archived tickets (history endpoints map every row).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketDtoBenchmark {
+
+    private Ticket ticket;
+    private TicketArchive archived;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(7L);
+        user.setName("Client Bench");
+        Client client = new Client();
+        client.setId(3L);
+        client.setUser(user);
+        Agency agency = new Agency();
+        agency.setId(1L);
+        agency.setName("Agence Centre");
+        Servicee service = new Servicee();
+        service.setId(2L);
+        service.setName("Ouverture de compte");
+
+        ticket = new Ticket();
+        ticket.setId(42L);
+        ticket.setNumber(Ticket.generateTicketNumber(42));
+        ticket.setSequenceNumber(42);
+        ticket.setStatus(Ticket.TicketStatus.TERMINE);
+        ticket.setIssuedAt(LocalDateTime.now().minusMinutes(30));
+        ticket.setStartedAt(LocalDateTime.now().minusMinutes(10));
+        ticket.setCompletedAt(LocalDateTime.now());
+        ticket.setAgency(agency);
+        ticket.setClient(client);
+        ticket.setAgencyService(service);
+
+        archived = new TicketArchive();
+        archived.setId(42L);
+        archived.setNumber(ticket.getNumber());
+        archived.setStatus(Ticket.TicketStatus.TERMINE);
+        archived.setIssuedAt(ticket.getIssuedAt());
+        archived.setCompletedAt(ticket.getCompletedAt());
+        archived.setAgencyId(1L);
+        archived.setAgencyName(agency.getName());
+        archived.setClientId(3L);
+        archived.setClientName(user.getName());
+        archived.setServiceId(2L);
+        archived.setServiceName(service.getName());
+    }
+
+    @Benchmark
+    public TicketDTO fromTicket() {
+        return TicketDTO.from(ticket);
+    }
+
+    @Benchmark
+    public TicketDTO fromArchive() {
+        return TicketDTO.from(archived);
+    }
+}
@@ -0,0 +1,34 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.entities.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticket.generateTicketNumber, called for every issued ticket and by the next-number endpoint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketNumberBenchmark {
+
+    private int sequence;
+
+    @Benchmark
+    public String generateTicketNumber() {
+        sequence = sequence % 999 + 1;
+        return Ticket.generateTicketNumber(sequence);
+    }
+}
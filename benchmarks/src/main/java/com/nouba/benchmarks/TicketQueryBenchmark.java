@@ -0,0 +1,107 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.TestData;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.repositories.TicketRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue queries of TicketRepository on a large ticket table (index on agency, status, sequence).
+ * The last 10% of the {@code tickets} rows of the agency are waiting, the rest are closed.
+ *
+ * The *BySubstring benchmarks run the queries as they were before sequence_number, ordering and
+ * comparing on CAST(SUBSTRING(number, 6) AS int), which no index can serve. Run with
+ * -p tickets=100000 for a quicker (and smaller) table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketQueryBenchmark {
+
+    @Param("1000000")
+    public int tickets;
+
+    private NoubaContext context;
+    private TicketRepository ticketRepository;
+    private EntityManager entityManager;
+    private TestData.Fixture fixture;
+    private int middleOfLine;
+
+    @Setup
+    public void setUp() {
+        context = NoubaContext.start();
+        ticketRepository = context.bean(TicketRepository.class);
+        entityManager = context.bean(EntityManager.class);
+        fixture = context.testData().createAgency();
+        int firstWaiting = tickets - tickets / 10;
+        context.testData().insertTickets(fixture, 1, tickets, LocalDate.now().atStartOfDay(), i ->
+                i >= firstWaiting ? Ticket.TicketStatus.EN_ATTENTE
+                        : i % 20 == 0 ? Ticket.TicketStatus.ANNULE : Ticket.TicketStatus.TERMINE);
+        middleOfLine = firstWaiting + (tickets - firstWaiting) / 2;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int countPeopleAhead() {
+        return ticketRepository.countByAgencyIdAndSequenceLessThanAndPending(fixture.agencyId(), middleOfLine);
+    }
+
+    @Benchmark
+    public long countPeopleAheadBySubstring() {
+        return entityManager.createQuery("SELECT COUNT(t) FROM Ticket t WHERE t.agency.id = :agencyId " +
+                        "AND CAST(SUBSTRING(t.number, 6) AS int) < :sequence AND t.status = 'EN_ATTENTE'", Long.class)
+                .setParameter("agencyId", fixture.agencyId())
+                .setParameter("sequence", middleOfLine)
+                .getSingleResult();
+    }
+
+    @Benchmark
+    public int countPending() {
+        return ticketRepository.countPendingByAgencyId(fixture.agencyId());
+    }
+
+    @Benchmark
+    public Optional<Ticket> findNextPending() {
+        return ticketRepository.findNextPendingByAgencyId(fixture.agencyId());
+    }
+
+    @Benchmark
+    public List<Ticket> findNextPendingBySubstring() {
+        return entityManager.createQuery("SELECT t FROM Ticket t WHERE t.agency.id = :agencyId " +
+                        "AND t.status = 'EN_ATTENTE' ORDER BY CAST(SUBSTRING(t.number, 6) AS int) ASC", Ticket.class)
+                .setParameter("agencyId", fixture.agencyId())
+                .setMaxResults(1)
+                .getResultList();
+    }
+
+    @Benchmark
+    public List<Object[]> countTodayByStatus() {
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        return ticketRepository.countByAgencyAndStatusIssuedBetween(fixture.agencyId(), today, today.plusDays(1));
+    }
+}
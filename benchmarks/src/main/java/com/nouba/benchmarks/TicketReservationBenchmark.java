@@ -0,0 +1,144 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.TestData;
+import com.nouba.app.entities.Agency;
+import com.nouba.app.entities.Servicee;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.repositories.AgencyRepository;
+import com.nouba.app.repositories.ServiceRepository;
+import com.nouba.app.repositories.TicketRepository;
+import com.nouba.app.services.TicketService;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ticket reservations per second on one agency with 1, 8 and 64 clients reserving at once.
+ *
+ * - reserveN: TicketService.generateTicket, numbers from TicketSequenceAllocator's blocks.
+ * - maxPlusOneN: the allocation generateTicket used before, MAX(sequence_number) + 1 then insert,
+ *   retried up to 3 times when the insert hits the (agency_id, number) constraint. Each attempt
+ *   runs in its own transaction (the old code retried inside one, which cannot work once the
+ *   insert failed) and sends no emails, so these numbers flatter it. Reservations still failing
+ *   after 3 attempts are counted and reported at the end of the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketReservationBenchmark {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private NoubaContext context;
+    private TicketService ticketService;
+    private TicketRepository ticketRepository;
+    private AgencyRepository agencyRepository;
+    private ServiceRepository serviceRepository;
+    private AgencyQueueManager queueManager;
+    private TestData.Fixture fixture;
+    private final AtomicInteger failedReservations = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        context = NoubaContext.start();
+        ticketService = context.bean(TicketService.class);
+        ticketRepository = context.bean(TicketRepository.class);
+        agencyRepository = context.bean(AgencyRepository.class);
+        serviceRepository = context.bean(ServiceRepository.class);
+        queueManager = context.bean(AgencyQueueManager.class);
+        fixture = context.testData().createAgency();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (failedReservations.get() > 0) {
+            System.out.println("Failed reservations (max+1, after " + MAX_ATTEMPTS + " attempts): " + failedReservations.get());
+        }
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Ticket reserve1() {
+        return reserve();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Ticket reserve8() {
+        return reserve();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Ticket reserve64() {
+        return reserve();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Ticket maxPlusOne1() {
+        return reserveWithMaxPlusOne();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Ticket maxPlusOne8() {
+        return reserveWithMaxPlusOne();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Ticket maxPlusOne64() {
+        return reserveWithMaxPlusOne();
+    }
+
+    private Ticket reserve() {
+        return ticketService.generateTicket(fixture.agencyId(), fixture.serviceId(), fixture.client().getId(), fixture.client());
+    }
+
+    private Ticket reserveWithMaxPlusOne() {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            try {
+                return context.transaction().execute(status -> {
+                    Agency agency = agencyRepository.findById(fixture.agencyId()).orElseThrow();
+                    Servicee service = serviceRepository.findByIdAndAgenciesId(fixture.serviceId(), fixture.agencyId()).orElseThrow();
+                    int nextSequence = ticketRepository.findMaxSequenceByAgency(fixture.agencyId()).orElse(0) + 1;
+
+                    Ticket ticket = new Ticket();
+                    ticket.setAgency(agency);
+                    ticket.setAgencyService(service);
+                    ticket.setClient(fixture.client());
+                    ticket.setSequenceNumber(nextSequence);
+                    ticket.setNumber(Ticket.generateTicketNumber(nextSequence));
+                    ticket.setIssuedAt(LocalDateTime.now());
+                    ticket.setStatus(Ticket.TicketStatus.EN_ATTENTE);
+                    Ticket saved = ticketRepository.save(ticket);
+                    queueManager.ticketIssued(saved);
+                    return saved;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another client took the same number: read MAX again
+            }
+        }
+        failedReservations.incrementAndGet();
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.nouba.benchmarks;
+
+import com.nouba.app.TestData;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.services.TicketSequenceAllocator;
+import com.nouba.app.services.TicketService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticket issue and serve through TicketService, on the full application over H2.
+ * generateThenServe issues one ticket and serves the next one, so the line length stays
+ * constant; subtract generateTicket to get the cost of serveNextClient alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketServiceBenchmark {
+
+    private NoubaContext context;
+    private TicketService ticketService;
+    private TicketSequenceAllocator sequenceAllocator;
+    private TestData.Fixture fixture;
+
+    @Setup
+    public void setUp() {
+        context = NoubaContext.start();
+        ticketService = context.bean(TicketService.class);
+        sequenceAllocator = context.bean(TicketSequenceAllocator.class);
+        fixture = context.testData().createAgency();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Ticket generateTicket() {
+        return ticketService.generateTicket(fixture.agencyId(), fixture.serviceId(), fixture.client().getId(), fixture.client());
+    }
+
+    @Benchmark
+    public Optional<Ticket> generateThenServe() {
+        generateTicket();
+        return ticketService.serveNextClient(fixture.agencyId());
+    }
+
+    @Benchmark
+    public int allocateSequence() {
+        return sequenceAllocator.next(fixture.agencyId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int allocateSequenceContended() {
+        return sequenceAllocator.next(fixture.agencyId());
+    }
+}
@@ -0,0 +1,80 @@
+package com.nouba.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Every latency measured on one endpoint, kept whole so percentiles are exact.
+ * A load test records at most a few hundred thousand requests per endpoint, a few MB of longs.
+ */
+final class EndpointStats {
+    private final String name;
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private long firstStartNanos = Long.MAX_VALUE;
+    private long lastEndNanos = Long.MIN_VALUE;
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    synchronized void record(long startNanos, long endNanos, boolean error) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = endNanos - startNanos;
+        if (error) {
+            errors++;
+        }
+        firstStartNanos = Math.min(firstStartNanos, startNanos);
+        lastEndNanos = Math.max(lastEndNanos, endNanos);
+    }
+
+    synchronized Summary summary() {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double windowSeconds = count == 0 ? 0 : (lastEndNanos - firstStartNanos) / 1e9;
+        return new Summary(name, count, errors,
+                windowSeconds > 0 ? count / windowSeconds : 0,
+                percentileMillis(sorted, 0.50),
+                percentileMillis(sorted, 0.90),
+                percentileMillis(sorted, 0.99),
+                count == 0 ? 0 : sorted[count - 1] / 1e6);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        // Nearest-rank
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    record Summary(String endpoint, int requests, int errors, double throughputPerSecond,
+                   double p50Ms, double p90Ms, double p99Ms, double maxMs) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("endpoint", endpoint);
+            map.put("requests", requests);
+            map.put("errors", errors);
+            map.put("throughputPerSecond", round(throughputPerSecond));
+            map.put("p50Ms", round(p50Ms));
+            map.put("p90Ms", round(p90Ms));
+            map.put("p99Ms", round(p99Ms));
+            map.put("maxMs", round(maxMs));
+            return map;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+}
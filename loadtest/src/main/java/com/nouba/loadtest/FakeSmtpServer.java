@@ -0,0 +1,175 @@
+package com.nouba.loadtest;
+
+import jakarta.mail.BodyPart;
+import jakarta.mail.Multipart;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal SMTP server accepting every message, so the application can send its emails locally.
+ * Activation links are read from the received messages: the load test activates the accounts it
+ * registers the same way a user clicking the link would.
+ */
+final class FakeSmtpServer implements AutoCloseable {
+    private static final Pattern ACTIVATION_TOKEN = Pattern.compile("activate-account\\?token=([A-Za-z0-9-]+)");
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentMap<String, String> activationTokens = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+    private final Session session = Session.getInstance(new Properties());
+
+    private FakeSmtpServer(ServerSocket serverSocket) {
+        this.serverSocket = serverSocket;
+    }
+
+    static FakeSmtpServer start() throws IOException {
+        FakeSmtpServer server = new FakeSmtpServer(new ServerSocket(0, 512, InetAddress.getLoopbackAddress()));
+        Thread acceptor = new Thread(server::acceptLoop, "fake-smtp");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    long receivedMessages() {
+        return received.get();
+    }
+
+    /**
+     * Token of the last activation email sent to this address, if any.
+     */
+    Optional<String> activationToken(String email) {
+        return Optional.ofNullable(activationTokens.get(email.toLowerCase()));
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                return; // closed
+            } catch (IOException e) {
+                System.err.println("fake SMTP: accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        // ISO-8859-1 keeps the raw bytes of the message, decoded later by the MIME parser
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost fake SMTP");
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "MAIL" -> {
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        recipients.add(address(line));
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        onMessage(recipients, readData(in));
+                        reply(out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK"); // RSET, NOOP...
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private static String readData(BufferedReader in) throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            // Dot-stuffing: a leading dot was doubled by the sender
+            data.append(line.startsWith(".") ? line.substring(1) : line).append("\r\n");
+        }
+        return data.toString();
+    }
+
+    private void onMessage(List<String> recipients, String data) {
+        received.incrementAndGet();
+        try {
+            MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(data.getBytes(StandardCharsets.ISO_8859_1)));
+            Matcher matcher = ACTIVATION_TOKEN.matcher(text(message.getContent()));
+            if (matcher.find()) {
+                for (String recipient : recipients) {
+                    activationTokens.put(recipient, matcher.group(1));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("fake SMTP: unreadable message: " + e.getMessage());
+        }
+    }
+
+    private static String text(Object content) throws Exception {
+        if (content instanceof Multipart multipart) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                BodyPart part = multipart.getBodyPart(i);
+                text.append(text(part.getContent()));
+            }
+            return text.toString();
+        }
+        return content instanceof String string ? string : "";
+    }
+
+    private static String address(String rcptLine) {
+        int start = rcptLine.indexOf('<');
+        int end = rcptLine.indexOf('>');
+        String address = start >= 0 && end > start ? rcptLine.substring(start + 1, end) : rcptLine.substring(rcptLine.indexOf(':') + 1);
+        return address.trim().toLowerCase();
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.nouba.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the load test: {@code --name=value} options, anything under
+ * {@code --spring.}, {@code --server.}, {@code --nouba.} or {@code --logging.} is passed to the application.
+ * {@code --thread-modes=platform,virtual} runs the whole test once per mode and compares them.
+ */
+record LoadTestOptions(int clients,
+                       int agencies,
+                       int servicesPerAgency,
+                       int desksPerAgency,
+                       int morningSeconds,
+                       int meanServiceMs,
+                       int pollMs,
+                       int maxWaitSeconds,
+                       int setupConcurrency,
+                       long seed,
+                       String output,
+                       List<String> threadModes,
+                       List<String> applicationArgs) {
+
+    static final List<String> THREAD_MODES = List.of("platform", "virtual");
+    private static final List<String> APPLICATION_PREFIXES = List.of("--spring.", "--server.", "--nouba.", "--logging.");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (APPLICATION_PREFIXES.stream().anyMatch(arg::startsWith)) {
+                applicationArgs.add(arg);
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + arg + " (expected --name=value)");
+            }
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                intValue(values, "clients", 1000),
+                intValue(values, "agencies", 3),
+                intValue(values, "services", 3),
+                intValue(values, "desks", 3),
+                intValue(values, "morning-seconds", 300),
+                intValue(values, "service-ms", 1500),
+                intValue(values, "poll-ms", 2000),
+                intValue(values, "max-wait-seconds", 900),
+                intValue(values, "setup-concurrency", 32),
+                Long.parseLong(stringValue(values, "seed", "42")),
+                stringValue(values, "output", "target/loadtest-results.json"),
+                threadModes(stringValue(values, "thread-modes", "")),
+                List.copyOf(applicationArgs));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        return options;
+    }
+
+    private static List<String> threadModes(String value) {
+        List<String> modes = value.isEmpty() ? List.of() : List.of(value.split(","));
+        for (String mode : modes) {
+            if (!THREAD_MODES.contains(mode)) {
+                throw new IllegalArgumentException("--thread-modes: unknown mode " + mode + " (expected " + THREAD_MODES + ")");
+            }
+        }
+        return modes;
+    }
+
+    private static String stringValue(Map<String, String> values, String name, String defaultValue) {
+        String value = values.remove(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static int intValue(Map<String, String> values, String name, int defaultValue) {
+        String value = values.remove(name);
+        int parsed = value == null ? defaultValue : Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("--" + name + " must be positive");
+        }
+        return parsed;
+    }
+}
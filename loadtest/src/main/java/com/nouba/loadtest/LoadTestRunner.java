@@ -0,0 +1,249 @@
+package com.nouba.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nouba.app.AppApplication;
+import com.nouba.app.entities.Agency;
+import com.nouba.app.entities.City;
+import com.nouba.app.entities.Role;
+import com.nouba.app.entities.Servicee;
+import com.nouba.app.entities.User;
+import com.nouba.app.repositories.AgencyRepository;
+import com.nouba.app.repositories.CityRepository;
+import com.nouba.app.repositories.ServiceRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the application against the local database and a fake SMTP server, prepares the
+ * agencies and client accounts, replays a morning ({@link MorningScenario}) and reports the
+ * latency percentiles and throughput of every endpoint.
+ * With {@code --thread-modes=platform,virtual} the test runs once with Tomcat's platform thread pool
+ * and once with virtual threads ({@code spring.threads.virtual.enabled}), each against a fresh
+ * application and schema, and the two are compared side by side.
+ * Example: java -cp ... com.nouba.loadtest.LoadTestRunner --clients=2000 --agencies=4 --desks=4
+ */
+public class LoadTestRunner {
+    private static final String PASSWORD = "loadtest-password";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        if (options.threadModes().isEmpty()) {
+            run(options, null, options.output());
+            return;
+        }
+        Map<String, Map<String, Object>> runs = new LinkedHashMap<>();
+        for (String mode : options.threadModes()) {
+            System.out.printf("%n=== %s threads ===%n", mode);
+            runs.put(mode, run(options, mode, options.output().replaceFirst("(\\.json)?$", "-" + mode + ".json")));
+        }
+        compare(options, runs);
+    }
+
+    /**
+     * One complete test: application, set-up, morning, report. Returns the reported figures.
+     * @param threadMode "platform" or "virtual", null to keep the application's setting
+     */
+    private static Map<String, Object> run(LoadTestOptions options, String threadMode, String output) throws Exception {
+        try (FakeSmtpServer smtp = FakeSmtpServer.start();
+             ConfigurableApplicationContext app = startApplication(options, threadMode, smtp.port())) {
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/api";
+            NoubaApi api = new NoubaApi(baseUrl);
+
+            // Set-up: agencies and services are seeded (no endpoint creates services), clients go through the API
+            long setupStart = System.nanoTime();
+            List<SeededAgency> agencies = seedAgencies(app, options);
+            List<LoadClient> clients = registerClients(api, smtp, options);
+            long setupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - setupStart);
+            System.out.printf("Set-up: %d agencies, %d/%d clients registered, activated and logged in (%d ms)%n",
+                    agencies.size(), clients.size(), options.clients(), setupMs);
+
+            MorningScenario.Result result = new MorningScenario(api, options, agencies, clients).run();
+            return report(options, api, smtp, setupMs, result, output);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options, String threadMode, int smtpPort) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.config.location=classpath:/loadtest.properties");
+        args.add("--spring.mail.port=" + smtpPort);
+        args.addAll(options.applicationArgs());
+        if (threadMode != null) {
+            args.add("--spring.threads.virtual.enabled=" + "virtual".equals(threadMode));
+        }
+        return new SpringApplicationBuilder(AppApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static List<SeededAgency> seedAgencies(ConfigurableApplicationContext app, LoadTestOptions options) throws IOException {
+        PasswordEncoder passwordEncoder = app.getBean(PasswordEncoder.class);
+        TransactionTemplate transaction = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+        List<SeededAgency> seeded = transaction.execute(status -> {
+            City city = app.getBean(CityRepository.class).save(new City(null, "Load test city", null));
+            List<SeededAgency> agencies = new ArrayList<>();
+            for (int a = 1; a <= options.agencies(); a++) {
+                User user = new User();
+                user.setName("Agency " + a);
+                user.setEmail("agency" + a + "@loadtest.local");
+                user.setPassword(passwordEncoder.encode(PASSWORD));
+                user.setRole(Role.AGENCY);
+                user.setEnabled(true);
+
+                Agency agency = new Agency();
+                agency.setName("Agency " + a);
+                agency.setAddress("Load test");
+                agency.setCity(city);
+                agency.setUser(user);
+                agency = app.getBean(AgencyRepository.class).save(agency);
+
+                List<Long> serviceIds = new ArrayList<>();
+                for (int s = 1; s <= options.servicesPerAgency(); s++) {
+                    Servicee service = new Servicee();
+                    service.setName("Service " + a + "." + s);
+                    service.setAgencies(Set.of(agency));
+                    serviceIds.add(app.getBean(ServiceRepository.class).save(service).getId());
+                }
+                agencies.add(new SeededAgency(agency.getId(), user.getEmail(), serviceIds, null));
+            }
+            return agencies;
+        });
+
+        NoubaApi loginApi = new NoubaApi("http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/api");
+        List<SeededAgency> loggedIn = new ArrayList<>();
+        for (SeededAgency agency : seeded) {
+            loggedIn.add(agency.withToken(loginApi.login(agency.email(), PASSWORD)));
+        }
+        return loggedIn;
+    }
+
+    /**
+     * Registers the clients through the API, activates them with the link of their activation
+     * email and logs them in. A client whose set-up fails is left out of the morning.
+     */
+    private static List<LoadClient> registerClients(NoubaApi api, FakeSmtpServer smtp, LoadTestOptions options)
+            throws InterruptedException {
+        List<LoadClient> clients = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(options.setupConcurrency());
+        for (int i = 1; i <= options.clients(); i++) {
+            int n = i;
+            executor.execute(() -> {
+                String email = "client" + n + "@loadtest.local";
+                try {
+                    api.registerClient("Client " + n, email, PASSWORD, String.format("06%08d", n));
+                    // The activation email is sent before the registration returns
+                    String activationToken = smtp.activationToken(email)
+                            .orElseThrow(() -> new IOException("No activation email for " + email));
+                    api.activate(activationToken);
+                    String token = api.login(email, PASSWORD);
+                    clients.add(new LoadClient(n, email, api.claim(token, "clientId").asLong(), token));
+                } catch (IOException e) {
+                    System.err.println("Set-up of " + email + " failed: " + e.getMessage());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        // Same order on every run, whatever order the registrations finished in
+        clients.sort(Comparator.comparingInt(LoadClient::index));
+        return clients;
+    }
+
+    private static Map<String, Object> report(LoadTestOptions options, NoubaApi api, FakeSmtpServer smtp,
+                                              long setupMs, MorningScenario.Result result, String outputPath) throws IOException {
+        List<EndpointStats.Summary> endpoints = api.stats().stream()
+                .map(EndpointStats::summary)
+                .sorted(Comparator.comparing(EndpointStats.Summary::endpoint))
+                .toList();
+
+        System.out.printf("%nMorning: %d ms, %d tickets reserved, %d clients called, %d reservations failed, %d timed out, %d emails received%n",
+                result.durationMs(), result.reserved(), result.called(), result.failedReservations(), result.timedOut(),
+                smtp.receivedMessages());
+        System.out.printf("%-55s %9s %7s %9s %9s %9s %9s %9s%n", "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (EndpointStats.Summary summary : endpoints) {
+            printRow(summary);
+        }
+        printRow(result.waits());
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("options", options);
+        json.put("setupMs", setupMs);
+        json.put("morningMs", result.durationMs());
+        json.put("reserved", result.reserved());
+        json.put("called", result.called());
+        json.put("failedReservations", result.failedReservations());
+        json.put("timedOut", result.timedOut());
+        json.put("emailsReceived", smtp.receivedMessages());
+        json.put("endpoints", endpoints.stream().map(EndpointStats.Summary::toMap).toList());
+        json.put("waits", result.waits().toMap());
+        json.put("totals", totals(endpoints, result.durationMs()));
+        write(json, outputPath);
+        return json;
+    }
+
+    /**
+     * All endpoints together during the morning: requests, errors, requests/s and the worst p99.
+     */
+    private static Map<String, Object> totals(List<EndpointStats.Summary> endpoints, long morningMs) {
+        int requests = endpoints.stream().mapToInt(EndpointStats.Summary::requests).sum();
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("requests", requests);
+        totals.put("errors", endpoints.stream().mapToInt(EndpointStats.Summary::errors).sum());
+        totals.put("requestsPerSecond", morningMs > 0 ? requests * 1000.0 / morningMs : 0);
+        totals.put("worstP99Ms", endpoints.stream().mapToDouble(EndpointStats.Summary::p99Ms).max().orElse(0));
+        return totals;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void compare(LoadTestOptions options, Map<String, Map<String, Object>> runs) throws IOException {
+        System.out.printf("%nThread modes (%d clients)%n%-10s %10s %10s %10s %9s %10s %12s%n",
+                options.clients(), "Mode", "Set-up ms", "Morning ms", "Requests", "Errors", "Req/s", "Worst p99 ms");
+        for (Map.Entry<String, Map<String, Object>> run : runs.entrySet()) {
+            Map<String, Object> totals = (Map<String, Object>) run.getValue().get("totals");
+            System.out.printf("%-10s %10d %10d %10d %9d %10.1f %12.2f%n", run.getKey(),
+                    (Long) run.getValue().get("setupMs"), (Long) run.getValue().get("morningMs"),
+                    (Integer) totals.get("requests"), (Integer) totals.get("errors"),
+                    (Double) totals.get("requestsPerSecond"), (Double) totals.get("worstP99Ms"));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        runs.forEach((mode, run) -> json.put(mode, Map.of("setupMs", run.get("setupMs"), "morningMs", run.get("morningMs"),
+                "totals", run.get("totals"))));
+        write(json, options.output().replaceFirst("(\\.json)?$", "-comparison.json"));
+    }
+
+    private static void write(Map<String, Object> json, String path) throws IOException {
+        File output = new File(path);
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output, json);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+
+    private static void printRow(EndpointStats.Summary s) {
+        System.out.printf("%-55s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                s.endpoint(), s.requests(), s.errors(), s.throughputPerSecond(), s.p50Ms(), s.p90Ms(), s.p99Ms(), s.maxMs());
+    }
+
+    record SeededAgency(Long agencyId, String email, List<Long> serviceIds, String token) {
+        SeededAgency withToken(String token) {
+            return new SeededAgency(agencyId, email, serviceIds, token);
+        }
+    }
+
+    record LoadClient(int index, String email, long clientId, String token) {
+    }
+}
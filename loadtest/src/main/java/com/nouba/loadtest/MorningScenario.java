@@ -0,0 +1,166 @@
+package com.nouba.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A morning at the agencies, compressed into {@code morningSeconds}: clients arrive following the
+ * usual 08:00-12:00 profile (rush at opening, quieter before noon), reserve a ticket and poll its
+ * status until they are called, while every desk of every agency serves the next client, takes an
+ * exponentially distributed service time and serves again. Everything random derives from the seed,
+ * so two runs with the same options send the same requests in the same order of arrival.
+ */
+final class MorningScenario {
+    // Share of the morning's arrivals in each half hour from 08:00 to 12:00
+    private static final double[] ARRIVALS_PER_HALF_HOUR = {0.20, 0.18, 0.14, 0.12, 0.11, 0.10, 0.08, 0.07};
+    private static final long IDLE_DESK_MS = 250;
+
+    private final NoubaApi api;
+    private final LoadTestOptions options;
+    private final List<LoadTestRunner.SeededAgency> agencies;
+    private final List<LoadTestRunner.LoadClient> clients;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger called = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger timedOut = new AtomicInteger();
+    private final EndpointStats waits = new EndpointStats("wait (reserved -> called)");
+
+    MorningScenario(NoubaApi api, LoadTestOptions options,
+                    List<LoadTestRunner.SeededAgency> agencies, List<LoadTestRunner.LoadClient> clients) {
+        this.api = api;
+        this.options = options;
+        this.agencies = agencies;
+        this.clients = clients;
+    }
+
+    Result run() {
+        Random random = new Random(options.seed());
+        long[] arrivals = arrivalOffsetsMillis(clients.size(), options.morningSeconds() * 1000L, random);
+        List<Visit> visits = new ArrayList<>(clients.size());
+        for (int i = 0; i < clients.size(); i++) {
+            LoadTestRunner.SeededAgency agency = agencies.get(random.nextInt(agencies.size()));
+            long serviceId = agency.serviceIds().get(random.nextInt(agency.serviceIds().size()));
+            visits.add(new Visit(clients.get(i), agency, serviceId, arrivals[i]));
+        }
+        waiting.set(visits.size());
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int a = 0; a < agencies.size(); a++) {
+                for (int desk = 1; desk <= options.desksPerAgency(); desk++) {
+                    LoadTestRunner.SeededAgency agency = agencies.get(a);
+                    Integer deskNumber = options.desksPerAgency() == 1 ? null : desk;
+                    Random deskRandom = new Random(options.seed() * 31 + a * 1000L + desk);
+                    executor.execute(() -> runDesk(agency, deskNumber, deskRandom));
+                }
+            }
+            for (Visit visit : visits) {
+                executor.execute(() -> runVisit(visit, start));
+            }
+        } // waits for every desk and client
+        return new Result(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                reserved.get(), called.get(), failed.get(), timedOut.get(), waits.summary());
+    }
+
+    private void runVisit(Visit visit, long morningStart) {
+        try {
+            sleepUntil(morningStart + TimeUnit.MILLISECONDS.toNanos(visit.arrivalMs()));
+            LoadTestRunner.LoadClient client = visit.client();
+            long ticketId;
+            try {
+                ticketId = api.reserve(client.token(), visit.agency().agencyId(), client.clientId(), visit.serviceId());
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                return;
+            }
+            reserved.incrementAndGet();
+
+            long reservedAt = System.nanoTime();
+            long deadline = reservedAt + TimeUnit.SECONDS.toNanos(options.maxWaitSeconds());
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(options.pollMs());
+                String status;
+                try {
+                    status = api.ticketStatus(client.token(), ticketId);
+                } catch (IOException e) {
+                    continue; // counted as an error of the endpoint, the client keeps polling
+                }
+                if (!"EN_ATTENTE".equals(status)) {
+                    waits.record(reservedAt, System.nanoTime(), false);
+                    called.incrementAndGet();
+                    return;
+                }
+            }
+            timedOut.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void runDesk(LoadTestRunner.SeededAgency agency, Integer desk, Random random) {
+        try {
+            while (true) {
+                boolean serving;
+                try {
+                    serving = api.serve(agency.token(), agency.agencyId(), desk);
+                } catch (IOException e) {
+                    serving = false;
+                }
+                if (serving) {
+                    // Exponential service time around the configured mean
+                    Thread.sleep((long) (-Math.log(1 - random.nextDouble()) * options.meanServiceMs()));
+                } else if (waiting.get() == 0) {
+                    return; // this last call closed the ticket of the desk and nobody is left
+                } else {
+                    Thread.sleep(IDLE_DESK_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sorted arrival times, drawn from {@link #ARRIVALS_PER_HALF_HOUR}.
+     */
+    static long[] arrivalOffsetsMillis(int count, long morningMillis, Random random) {
+        double slotMillis = (double) morningMillis / ARRIVALS_PER_HALF_HOUR.length;
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            double draw = random.nextDouble();
+            int slot = 0;
+            while (slot < ARRIVALS_PER_HALF_HOUR.length - 1 && draw > ARRIVALS_PER_HALF_HOUR[slot]) {
+                draw -= ARRIVALS_PER_HALF_HOUR[slot];
+                slot++;
+            }
+            offsets[i] = (long) ((slot + random.nextDouble()) * slotMillis);
+        }
+        Arrays.sort(offsets);
+        return offsets;
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private record Visit(LoadTestRunner.LoadClient client, LoadTestRunner.SeededAgency agency, long serviceId, long arrivalMs) {
+    }
+
+    record Result(long durationMs, int reserved, int called, int failedReservations, int timedOut,
+                  EndpointStats.Summary waits) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.nouba.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+
+/**
+ * The HTTP calls made by the load test. Each call is timed under its endpoint template
+ * (path variables not expanded), a non-2xx status or an I/O failure counts as an error.
+ */
+final class NoubaApi {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final ConcurrentMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    NoubaApi(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    Collection<EndpointStats> stats() {
+        return stats.values();
+    }
+
+    void registerClient(String name, String email, String password, String phone) throws IOException {
+        post("POST /auth/register-client", "/auth/register-client", null,
+                Map.of("name", name, "email", email, "password", password, "phone", phone, "address", "Load test"));
+    }
+
+    void activate(String token) throws IOException {
+        send("GET /auth/activate", request("/auth/activate?token=" + URLEncoder.encode(token, StandardCharsets.UTF_8), null).GET());
+    }
+
+    /**
+     * Logs in and returns the JWT.
+     */
+    String login(String email, String password) throws IOException {
+        return post("POST /auth/login", "/auth/login", null, Map.of("email", email, "password", password))
+                .path("data").asText();
+    }
+
+    /**
+     * Reserves a ticket and returns its id.
+     */
+    long reserve(String token, long agencyId, long clientId, long serviceId) throws IOException {
+        return post("POST /tickets/agency/{agencyId}/{clientId}/{serviceId}",
+                "/tickets/agency/" + agencyId + "/" + clientId + "/" + serviceId, token, null)
+                .path("data").path("id").asLong();
+    }
+
+    /**
+     * Status of a ticket (EN_ATTENTE, EN_COURS...).
+     */
+    String ticketStatus(String token, long ticketId) throws IOException {
+        return send("GET /tickets/{ticketId}/status", request("/tickets/" + ticketId + "/status", token).GET())
+                .path("data").path("status").asText();
+    }
+
+    /**
+     * Completes the ticket at the desk and calls the next one; false when nobody was waiting.
+     * A null desk uses the single-counter endpoint.
+     */
+    boolean serve(String token, long agencyId, Integer desk) throws IOException {
+        HttpRequest.Builder request = desk == null
+                ? request("/tickets/agency/" + agencyId + "/serve", token)
+                : request("/tickets/agency/" + agencyId + "/desks/" + desk + "/serve", token);
+        String endpoint = desk == null ? "PUT /tickets/agency/{agencyId}/serve" : "PUT /tickets/agency/{agencyId}/desks/{desk}/serve";
+        return !send(endpoint, request.PUT(HttpRequest.BodyPublishers.noBody())).path("data").isNull();
+    }
+
+    /**
+     * A claim of the payload of a JWT (not verified, the server issued it).
+     */
+    JsonNode claim(String token, String name) throws IOException {
+        String payload = token.split("\\.")[1];
+        return mapper.readTree(Base64.getUrlDecoder().decode(payload)).path(name);
+    }
+
+    // ---------- Helpers ----------
+
+    private JsonNode post(String endpoint, String path, String token, Object body) throws IOException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body));
+        return send(endpoint, request(path, token).header("Content-Type", "application/json").POST(publisher));
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT);
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private JsonNode send(String endpoint, HttpRequest.Builder request) throws IOException {
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, EndpointStats::new);
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            endpointStats.record(start, System.nanoTime(), true);
+            throw new IOException("Interrupted", e);
+        } catch (IOException e) {
+            endpointStats.record(start, System.nanoTime(), true);
+            throw e;
+        }
+        long end = System.nanoTime();
+        boolean error = response.statusCode() / 100 != 2;
+        endpointStats.record(start, end, error);
+        if (error) {
+            throw new IOException(endpoint + " returned " + response.statusCode() + ": "
+                    + new String(response.body(), StandardCharsets.UTF_8));
+        }
+        return response.body().length == 0 ? mapper.nullNode() : mapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,137 @@
+package com.nouba.loadtest;
+
+import com.nouba.app.services.storage.LocalStorageBackend;
+import com.nouba.app.services.storage.S3StorageBackend;
+import com.nouba.app.services.storage.StorageBackend;
+import com.nouba.app.services.storage.StorageBackend.StoredObject;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Runs both storage backends through what the application does with them: store a photo
+ * (single request) and a large original (multipart on S3), touch, read back, follow the read URL
+ * the way a browser does after UploadController's redirect, list, delete. Every read is compared
+ * with what was written. The S3 backend runs against a local MinIO:
+ *   docker run -p 9000:9000 -e MINIO_ROOT_USER=minio -e MINIO_ROOT_PASSWORD=minio123 minio/minio server /data
+ * Example: java -cp ... com.nouba.loadtest.StorageBackendCheck --endpoint=http://localhost:9000 --access-key=minio --secret-key=minio123
+ * Exits with status 1 if any check fails.
+ */
+public class StorageBackendCheck {
+    private static final String PREFIX = "storage-check/";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unknown argument " + arg + " (expected --name=value)");
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        Path localDirectory = Files.createTempDirectory("nouba-storage-check");
+        boolean ok = check("local", new LocalStorageBackend(localDirectory.toString()));
+
+        S3StorageBackend s3 = new S3StorageBackend(
+                options.getOrDefault("endpoint", "http://localhost:9000"),
+                options.getOrDefault("region", "us-east-1"),
+                options.getOrDefault("bucket", "nouba-storage-check"),
+                "", // prefix
+                options.getOrDefault("access-key", "minio"),
+                options.getOrDefault("secret-key", "minio123"),
+                true, // path-style access, as MinIO expects
+                5 * 1024 * 1024,
+                600,
+                "", // no public base URL: reads are pre-signed
+                true);
+        ok &= check("s3", s3);
+
+        System.out.println(ok ? "All checks passed" : "Some checks FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean check(String backendName, StorageBackend backend) throws Exception {
+        System.out.printf("%n%s backend%n", backendName);
+        if (backend instanceof S3StorageBackend s3) {
+            s3.createBucketIfMissing();
+        }
+        Random random = new Random(42);
+        byte[] photo = new byte[300 * 1024];
+        byte[] original = new byte[13 * 1024 * 1024 + 123]; // three parts of 5MB, the last one short
+        random.nextBytes(photo);
+        random.nextBytes(original);
+        HttpClient client = HttpClient.newHttpClient();
+        boolean ok = true;
+
+        for (Map.Entry<String, byte[]> file : Map.of(PREFIX + "photo.jpg", photo, PREFIX + "original.png", original).entrySet()) {
+            String name = file.getKey();
+            byte[] content = file.getValue();
+
+            Path temporary = backend.createTemporaryFile();
+            Files.write(temporary, content);
+            long start = System.nanoTime();
+            backend.store(name, temporary, "image/jpeg");
+            long storeMillis = (System.nanoTime() - start) / 1_000_000;
+            Files.deleteIfExists(temporary);
+            ok &= report(name + " stored (" + content.length / 1024 + " KB, " + storeMillis + " ms)", true);
+
+            long before = backend.lastModified(name);
+            Thread.sleep(1100); // S3 dates have a one second resolution
+            ok &= report(name + " touched", backend.touch(name) && backend.lastModified(name) > before);
+
+            try (InputStream in = backend.open(name)) {
+                ok &= report(name + " read back", Arrays.equals(sha256(in.readAllBytes()), sha256(content)));
+            }
+
+            Optional<StorageBackend.ReadUrl> readUrl = backend.readUrl(name);
+            if (readUrl.isPresent()) {
+                URI uri = readUrl.get().uri();
+                HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+                ok &= report(name + " fetched from the read URL (HTTP " + response.statusCode() + ")",
+                        response.statusCode() == 200 && Arrays.equals(sha256(response.body()), sha256(content)));
+                ok &= report(name + " read URL reused", backend.readUrl(name).map(url -> url.uri().equals(uri)).orElse(false));
+            } else {
+                ok &= report(name + " served from " + backend.localFile(name), backend.localFile(name) != null);
+            }
+        }
+
+        try (Stream<StoredObject> objects = backend.list()) {
+            List<String> names = objects.map(StoredObject::name).filter(name -> name.startsWith(PREFIX)).sorted().toList();
+            ok &= report("listed " + names, names.equals(List.of(PREFIX + "original.png", PREFIX + "photo.jpg")));
+        }
+
+        ok &= report("missing file not touched", !backend.touch(PREFIX + "missing.jpg"));
+        ok &= report("missing file has no date", backend.lastModified(PREFIX + "missing.jpg") == -1);
+        ok &= report("invalid name refused", backend.readUrl("../secret").isEmpty() && backend.localFile("../secret") == null);
+
+        backend.delete(PREFIX + "photo.jpg");
+        backend.delete(PREFIX + "original.png");
+        ok &= report("deleted", backend.lastModified(PREFIX + "photo.jpg") == -1 && backend.lastModified(PREFIX + "original.png") == -1);
+        if (backend instanceof S3StorageBackend s3) {
+            s3.close();
+        }
+        return ok;
+    }
+
+    private static boolean report(String check, boolean passed) {
+        System.out.printf("  %-4s %s%n", passed ? "ok" : "FAIL", check);
+        return passed;
+    }
+
+    private static byte[] sha256(byte[] content) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(content);
+    }
+}
@@ -0,0 +1,202 @@
+package com.nouba.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nouba.app.AppApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Compares the two ways of serving /uploads/**: the plain Spring resource handler
+ * ({@code nouba.uploads.legacy-handler=true}) and UploadController (sendfile, Range, ETag, LRU).
+ * For each handler the application is started (in-memory H2, no mail), files of a thumbnail, a
+ * photo and a large original are written to uploads/loadtest/, and every scenario sends the same
+ * requests from {@code --concurrency} clients. Reported per scenario: requests/s, MB/s received,
+ * and server CPU per request (CPU time of the Tomcat threads, so the client side is not counted).
+ * Example: java -cp ... com.nouba.loadtest.UploadServingBenchmark --requests=2000 --concurrency=32
+ */
+public class UploadServingBenchmark {
+    private static final String DIRECTORY = "loadtest";
+    private static final Map<String, Integer> FILES = new LinkedHashMap<>();
+
+    static {
+        FILES.put("thumbnail.jpg", 8 * 1024);
+        FILES.put("photo.jpg", 300 * 1024);
+        FILES.put("original.png", 5 * 1024 * 1024);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unknown argument " + arg + " (expected --name=value)");
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int requests = Integer.parseInt(options.getOrDefault("requests", "2000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        String output = options.getOrDefault("output", "target/upload-benchmark-results.json");
+
+        Path directory = Paths.get("uploads", DIRECTORY);
+        writeFiles(directory);
+        Map<String, Object> results = new LinkedHashMap<>();
+        try {
+            for (String handler : List.of("resource", "controller")) {
+                results.put(handler, run(handler, requests, concurrency));
+            }
+        } finally {
+            for (String name : FILES.keySet()) {
+                Files.deleteIfExists(directory.resolve(name));
+            }
+            Files.deleteIfExists(directory);
+        }
+
+        File file = new File(output);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, results);
+        System.out.println("Results written to " + file.getAbsolutePath());
+    }
+
+    private static void writeFiles(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(42);
+        for (Map.Entry<String, Integer> file : FILES.entrySet()) {
+            byte[] content = new byte[file.getValue()];
+            random.nextBytes(content);
+            Files.write(directory.resolve(file.getKey()), content);
+        }
+    }
+
+    private static List<Map<String, Object>> run(String handler, int requests, int concurrency) throws Exception {
+        List<Map<String, Object>> scenarios = new ArrayList<>();
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(AppApplication.class).run(
+                "--spring.config.location=classpath:/loadtest.properties",
+                "--spring.datasource.url=jdbc:h2:mem:uploads;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--nouba.notifications.enabled=false",
+                "--nouba.uploads.legacy-handler=" + "resource".equals(handler))) {
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/api/uploads/" + DIRECTORY + "/";
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(concurrency)).build();
+
+            System.out.printf("%nHandler: %s%n%-40s %9s %9s %10s %14s%n", handler, "Scenario", "Errors", "Req/s", "MB/s", "CPU us/req");
+            for (String name : FILES.keySet()) {
+                URI uri = URI.create(baseUrl + name);
+                scenarios.add(scenario(handler, "GET " + name, client, requests, concurrency,
+                        () -> HttpRequest.newBuilder(uri).GET().build()));
+            }
+            URI original = URI.create(baseUrl + "original.png");
+            scenarios.add(scenario(handler, "GET original.png, 1MB range", client, requests, concurrency,
+                    () -> HttpRequest.newBuilder(original).header("Range", "bytes=1048576-2097151").GET().build()));
+
+            // Revalidation of a photo the client already has
+            URI photo = URI.create(baseUrl + "photo.jpg");
+            HttpResponse<Void> first = client.send(HttpRequest.newBuilder(photo).GET().build(), HttpResponse.BodyHandlers.discarding());
+            String lastModified = first.headers().firstValue("Last-Modified").orElse("");
+            String etag = first.headers().firstValue("ETag").orElse(null);
+            scenarios.add(scenario(handler, "revalidate photo.jpg", client, requests, concurrency, () -> {
+                HttpRequest.Builder builder = HttpRequest.newBuilder(photo).header("If-Modified-Since", lastModified).GET();
+                return etag == null ? builder.build() : builder.header("If-None-Match", etag).build();
+            }));
+        }
+        return scenarios;
+    }
+
+    private static Map<String, Object> scenario(String handler, String name, HttpClient client, int requests, int concurrency,
+                                                Supplier<HttpRequest> request) throws InterruptedException {
+        // One untimed pass warms up the JIT, the page cache and the LRU
+        send(client, Math.min(requests, 200), concurrency, request, new LongAdder(), new AtomicInteger());
+
+        LongAdder bytes = new LongAdder();
+        AtomicInteger errors = new AtomicInteger();
+        long cpuBefore = serverCpuNanos();
+        long start = System.nanoTime();
+        send(client, requests, concurrency, request, bytes, errors);
+        long elapsed = System.nanoTime() - start;
+        long cpu = serverCpuNanos() - cpuBefore;
+
+        double seconds = elapsed / 1e9;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("handler", handler);
+        result.put("scenario", name);
+        result.put("requests", requests);
+        result.put("errors", errors.get());
+        result.put("requestsPerSecond", requests / seconds);
+        result.put("megabytesPerSecond", bytes.sum() / seconds / (1024 * 1024));
+        result.put("serverCpuMicrosPerRequest", cpu / 1000.0 / requests);
+        System.out.printf("%-40s %9d %9.0f %10.1f %14.1f%n", name, errors.get(), requests / seconds,
+                bytes.sum() / seconds / (1024 * 1024), cpu / 1000.0 / requests);
+        return result;
+    }
+
+    private static void send(HttpClient client, int requests, int concurrency, Supplier<HttpRequest> request,
+                             LongAdder bytes, AtomicInteger errors) throws InterruptedException {
+        AtomicInteger remaining = new AtomicInteger(requests);
+        ExecutorService senders = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            senders.execute(() -> {
+                byte[] buffer = new byte[64 * 1024];
+                while (remaining.getAndDecrement() > 0) {
+                    try {
+                        HttpResponse<InputStream> response = client.send(request.get(), HttpResponse.BodyHandlers.ofInputStream());
+                        try (InputStream body = response.body()) {
+                            for (int read; (read = body.read(buffer)) >= 0; ) {
+                                bytes.add(read);
+                            }
+                        }
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        senders.shutdown();
+        senders.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    /**
+     * CPU time of Tomcat's threads (acceptor, poller that runs sendfile, request workers).
+     */
+    private static long serverCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && info.getThreadName().startsWith("http-nio-")) {
+                total += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,34 @@
+package com.nouba.app.config;
+
+import com.nouba.app.metrics.QueryMetrics;
+import com.nouba.app.metrics.QueryMetricsDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource so every SQL statement is measured by {@link QueryMetrics}.
+ * Replaces spring.jpa.show-sql / org.hibernate.SQL=DEBUG: statistics stay in memory
+ * (GET /api/admin/query-metrics) and only sampled slow queries are logged.
+ */
+@Configuration
+@ConditionalOnProperty(name = "nouba.query-metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor queryMetricsDataSourcePostProcessor(ObjectProvider<QueryMetrics> queryMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof QueryMetricsDataSource)) {
+                    return new QueryMetricsDataSource(dataSource, queryMetrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
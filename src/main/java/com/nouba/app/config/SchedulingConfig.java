@@ -0,0 +1,10 @@
+package com.nouba.app.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables the @Scheduled jobs (daily ticket rollover)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
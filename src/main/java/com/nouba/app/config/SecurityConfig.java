@@ -1,6 +1,7 @@
 package com.nouba.app.config;
 
 import com.nouba.app.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,11 +51,16 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches of SSE streams (completion/timeout) were authorized on the initial request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Public endpoints
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/uploads/**").permitAll()
                         .requestMatchers("/admin/agencies").permitAll()
                         .requestMatchers("/public/tickets/**").permitAll()
+                        // Health and Prometheus scrape (other actuator endpoints are not exposed)
+                        .requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/prometheus").permitAll()
                         .requestMatchers(HttpMethod.GET, "/tickets/agency/*/services").permitAll()
 
                         // Admin endpoints
@@ -83,6 +89,7 @@ public class SecurityConfig {
                         // Client endpoints
                         .requestMatchers(HttpMethod.GET, "/tickets/*/status").hasRole("CLIENT")
                         .requestMatchers(HttpMethod.GET, "/tickets/*/ahead").hasRole("CLIENT")
+                        .requestMatchers(HttpMethod.GET, "/tickets/*/stream").hasRole("CLIENT")
                         .requestMatchers(HttpMethod.PUT, "/tickets/*/cancel").hasAnyRole("CLIENT", "AGENCY")
                         //.requestMatchers(HttpMethod.PUT, "/tickets/*/cancel-pending").hasAnyRole("CLIENT")
                         .requestMatchers(HttpMethod.PUT, "/tickets/*/cancel-pending").hasAnyRole("AGENCY")//
@@ -1,14 +1,33 @@
 package com.nouba.app.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.TimeUnit;
+
+// Plain resource handler for /uploads/**, replaced by UploadController (ETag, Range, sendfile).
+// Kept behind nouba.uploads.legacy-handler=true to compare both in the load test.
 @Configuration
+@ConditionalOnProperty(name = "nouba.uploads.legacy-handler", havingValue = "true")
 public class WebConfig implements WebMvcConfigurer {
+    // Only files of the local storage backend (nouba.storage.backend=local)
+    private final String uploadDirectory;
+
+    public WebConfig(@Value("${nouba.storage.local.directory:uploads}") String uploadDirectory) {
+        this.uploadDirectory = uploadDirectory;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // Image variants are named after their content: a URL never changes content, cache it for a year
+        registry.addResourceHandler("/uploads/variants/**")
+                .addResourceLocations("file:" + uploadDirectory + "/variants/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
         registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/");
+                .addResourceLocations("file:" + uploadDirectory + "/");
     }
 }
\ No newline at end of file
@@ -2,20 +2,38 @@ package com.nouba.app.controller;
 
 import com.nouba.app.dto.AdminSummaryDTO;
 import com.nouba.app.dto.ApiResponse;
+import com.nouba.app.dto.NotificationStatsDTO;
+import com.nouba.app.dto.QueryShapeStatsDTO;
+import com.nouba.app.dto.ServiceTimeStatsDTO;
+import com.nouba.app.dto.WaitTimeReplayReportDTO;
+import com.nouba.app.metrics.QueryMetrics;
 import com.nouba.app.services.AdminService;
+import com.nouba.app.services.NotificationOutboxService;
+import com.nouba.app.services.WaitTimeReplayService;
+import com.nouba.app.services.queue.WaitTimeEstimator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/admin")
 @RequiredArgsConstructor
 public class AdminController {
     private final AdminService adminService;
+    private final NotificationOutboxService notificationOutboxService;
+    private final WaitTimeEstimator waitTimeEstimator;
+    private final WaitTimeReplayService waitTimeReplayService;
+    private final QueryMetrics queryMetrics;
 
     /**
      * Retrieves summary statistics for admin dashboard
@@ -30,4 +48,67 @@ public class AdminController {
                 "Admin summary retrieved successfully",
                 200));
     }
-}
\ No newline at end of file
+
+    /**
+     * Email outbox health: queue depth, send latency and failure counters
+     */
+    @GetMapping("/notifications/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<NotificationStatsDTO>> getNotificationStats() {
+        return ResponseEntity.ok(new ApiResponse<>(
+                notificationOutboxService.getStats(),
+                "Notification stats retrieved successfully",
+                200));
+    }
+
+    /**
+     * Service times learned by the wait-time estimator, per agency and per agency service
+     */
+    @GetMapping("/wait-estimator/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<ServiceTimeStatsDTO>>> getWaitEstimatorStats() {
+        return ResponseEntity.ok(new ApiResponse<>(
+                waitTimeEstimator.getStats(),
+                "Wait estimator stats retrieved successfully",
+                200));
+    }
+
+    /**
+     * Replays archived tickets to score the wait-time estimator against the former 5 minutes per person
+     * Example: /admin/wait-estimator/replay?from=2025-05-01&to=2025-05-31&agencyId=3
+     */
+    @GetMapping("/wait-estimator/replay")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WaitTimeReplayReportDTO>> replayWaitEstimator(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long agencyId) {
+        return ResponseEntity.ok(new ApiResponse<>(
+                waitTimeReplayService.replay(from, to, agencyId),
+                "Wait estimator replay completed",
+                200));
+    }
+
+    /**
+     * SQL statistics per query shape (count, errors, latency percentiles), most expensive first
+     */
+    @GetMapping("/query-metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<QueryShapeStatsDTO>>> getQueryMetrics(
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(new ApiResponse<>(
+                queryMetrics.snapshot(limit),
+                "Query metrics retrieved successfully (" + queryMetrics.droppedSlowSamples() + " slow query samples dropped)",
+                200));
+    }
+
+    /**
+     * Clears the SQL statistics, e.g. before measuring a load test
+     */
+    @DeleteMapping("/query-metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> resetQueryMetrics() {
+        queryMetrics.reset();
+        return ResponseEntity.ok(new ApiResponse<>(null, "Query metrics reset", 200));
+    }
+}
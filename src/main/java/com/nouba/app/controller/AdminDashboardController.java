@@ -2,12 +2,16 @@ package com.nouba.app.controller;
 
 import com.nouba.app.dto.*;
 import com.nouba.app.services.AdminDashboardService;
+import com.nouba.app.services.TicketListingService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -18,6 +22,7 @@ import java.util.List;
 public class AdminDashboardController {
 
     private final AdminDashboardService adminDashboardService;
+    private final TicketListingService ticketListingService;
 
     @GetMapping("/agences-actives")
     public ResponseEntity<ApiResponse<List<AgencyActiveDto>>> getAllAgencesActives() {
@@ -40,6 +45,23 @@ public class AdminDashboardController {
                 new ApiResponse<>(tickets, "Liste des tickets en attente", 200));
     }
 
+    // Tickets en attente par page (curseur de la page précédente, du plus récent au plus ancien)
+    @GetMapping("/tickets-en-attente/page")
+    public ResponseEntity<ApiResponse<CursorPageDTO<TicketEnAttenteDto>>> getTicketsEnAttentePage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(new ApiResponse<>(
+                ticketListingService.getPendingTicketsPage(cursor, size), "Liste des tickets en attente", 200));
+    }
+
+    // Tous les tickets en attente en NDJSON (un ticket par ligne)
+    @GetMapping(value = "/tickets-en-attente/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTicketsEnAttente() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ticketListingService::exportPendingTickets);
+    }
+
     @GetMapping("/tickets-reserves")
     public ResponseEntity<ApiResponse<List<TicketReserveDto>>> getAllTicketsReservesAujourdhui() {
         List<TicketReserveDto> tickets = adminDashboardService.getAllTicketsReservesAujourdhui();
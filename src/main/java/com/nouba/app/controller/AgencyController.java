@@ -4,6 +4,7 @@ import com.nouba.app.dto.*;
 import com.nouba.app.entities.User;
 import com.nouba.app.services.AgencyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -17,19 +18,30 @@ import java.util.List;
 public class AgencyController {
     private final AgencyService agencyService;
 
+    // Catalogue responses carry its version as ETag: Spring answers 304 to a matching
+    // If-None-Match before anything is serialized. The ETag is read before the data, so at worst
+    // it is older than the body and the client simply downloads the catalogue again next time.
+
     @GetMapping
     public ResponseEntity<List<AgencyResponseDTO>> getAllAgencies() {
-        return ResponseEntity.ok(agencyService.getAllAgencies());
+        String etag = agencyService.getCatalogueEtag();
+        return catalogue(etag).body(agencyService.getAllAgencies());
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<AgencyResponseDTO> getAgencyById(@PathVariable Long id) {
-        return ResponseEntity.ok(agencyService.getAgencyById(id));
+        String etag = agencyService.getCatalogueEtag();
+        return catalogue(etag).body(agencyService.getAgencyById(id));
     }
 
     @GetMapping("/city/{cityId}")
     public ResponseEntity<List<AgencyResponseDTO>> getAgenciesByCity(@PathVariable Long cityId) {
-        return ResponseEntity.ok(agencyService.getAgenciesByCity(cityId));
+        String etag = agencyService.getCatalogueEtag();
+        return catalogue(etag).body(agencyService.getAgenciesByCity(cityId));
+    }
+
+    private static ResponseEntity.BodyBuilder catalogue(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache());
     }
 
     /**@GetMapping("/{id}/stats")
@@ -3,34 +3,32 @@ package com.nouba.app.controller;
 import com.nouba.app.dto.AgencyBasicDTO;
 import com.nouba.app.dto.ApiResponse;
 import com.nouba.app.dto.CityDTO;
-import com.nouba.app.entities.Agency;
-import com.nouba.app.entities.City;
-import com.nouba.app.repositories.CityRepository;
+import com.nouba.app.services.CatalogueCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/cities")
 @RequiredArgsConstructor
 public class CityController {
 
-    private final CityRepository cityRepository;
+    private final CatalogueCache catalogueCache;
 
     /**
      * Récupère toutes les villes disponibles
+     * (catalogue en cache ; ETag = version du catalogue, 304 si inchangé)
      */
     @GetMapping
     public ResponseEntity<ApiResponse<List<CityDTO>>> getAllCities() {
-        List<City> cities = cityRepository.findAll();
-        List<CityDTO> dtos = cities.stream()
-                .map(CityDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(
-                new ApiResponse<>(dtos, "Liste des villes récupérée avec succès", 200));
+        CatalogueCache.Snapshot catalogue = catalogueCache.snapshot();
+        return ResponseEntity.ok()
+                .eTag(catalogue.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(new ApiResponse<>(catalogue.cities(), "Liste des villes récupérée avec succès", 200));
     }
 
     /**
@@ -38,14 +36,16 @@ public class CityController {
      */
     @GetMapping("/{cityId}/agencies")
     public ResponseEntity<ApiResponse<List<AgencyBasicDTO>>> getAgenciesByCityId(@PathVariable Long cityId) {
-        City city = cityRepository.findById(cityId)
-                .orElseThrow(() -> new RuntimeException("Ville non trouvée"));
+        CatalogueCache.Snapshot catalogue = catalogueCache.snapshot();
+        if (!catalogue.hasCity(cityId)) {
+            throw new RuntimeException("Ville non trouvée");
+        }
 
-        List<AgencyBasicDTO> agencies = city.getAgencies().stream()
-                .map(AgencyBasicDTO::new)
-                .collect(Collectors.toList());
+        List<AgencyBasicDTO> agencies = catalogue.agencyNamesByCity().getOrDefault(cityId, List.of());
 
-        return ResponseEntity.ok(
-                new ApiResponse<>(agencies, "Agences de la ville récupérées", 200));
+        return ResponseEntity.ok()
+                .eTag(catalogue.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(new ApiResponse<>(agencies, "Agences de la ville récupérées", 200));
     }
-}
\ No newline at end of file
+}
@@ -6,13 +6,19 @@ import com.nouba.app.repositories.AgencyRepository;
 import com.nouba.app.repositories.ClientRepository;
 import com.nouba.app.repositories.ServiceRepository;
 import com.nouba.app.repositories.TicketRepository;
+import com.nouba.app.exceptions.TicketNotFoundException;
+import com.nouba.app.services.TicketListingService;
 import com.nouba.app.services.TicketService;
+import com.nouba.app.services.queue.QueueEventHub;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
@@ -27,10 +33,12 @@ import java.util.Optional;
 public class TicketController {
 
     private final TicketService ticketService;
+    private final TicketListingService ticketListingService;
     private final ClientRepository clientRepository;
     private final ServiceRepository serviceRepository;
     private final AgencyRepository agencyRepository;
     private final TicketRepository ticketRepository;
+    private final QueueEventHub queueEventHub;
 
     /**
      * Create a new ticket for an agency with service selection
@@ -89,6 +97,22 @@ public class TicketController {
                         200));
     }
 
+    /**
+     * Live position of a ticket (Server-Sent Events), replaces polling /status and /ahead
+     * Position en direct d'un ticket (SSE) / موقع التذكرة مباشرة
+     */
+    @GetMapping(value = "/{ticketId}/stream", produces = "text/event-stream")
+    public SseEmitter streamTicketPosition(
+            @PathVariable Long ticketId,
+            @AuthenticationPrincipal User user) {
+
+        Ticket ticket = ticketRepository.findByIdAndClientUserId(ticketId, user.getId())
+                .orElseThrow(() -> new TicketNotFoundException(
+                        "Ticket not found or unauthorized / Ticket non trouvé ou non autorisé / التذكرة غير موجودة أو غير مصرح بها"
+                ));
+        return queueEventHub.subscribeTicket(ticket.getAgency().getId(), ticketId);
+    }
+
     /**
      * Get number of people ahead in queue / الحصول على عدد الأشخاص في الطابور قبل التذكرة
      * @param ticketId ID of the ticket / معرّف التذكرة
@@ -143,6 +167,52 @@ public class TicketController {
                         200)));
     }
 
+    /**
+     * Serve the next client at a given desk (multi-counter mode) / خدمة العميل التالي في شباك معيّن
+     * Each desk completes its own ticket and claims the next one; two desks never get the same ticket.
+     * @param agencyId ID of the agency / معرّف الوكالة
+     * @param desk Desk number / رقم الشباك
+     */
+    @PutMapping("/agency/{agencyId}/desks/{desk}/serve")
+    @PreAuthorize("hasRole('AGENCY')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> serveNextClientAtDesk(
+            @PathVariable Long agencyId,
+            @PathVariable Integer desk) {
+
+        Optional<Ticket> servedTicketOpt = ticketService.serveNextAtDesk(agencyId, desk);
+
+        return servedTicketOpt.map(ticket -> {
+            String clientName = ticket.getClient() != null && ticket.getClient().getUser() != null
+                    ? ticket.getClient().getUser().getName()
+                    : "Unknown Client";
+
+            Map<String, Object> response = Map.of(
+                    "ticketNumber", ticket.getNumber(),
+                    "clientName", clientName,
+                    "deskNumber", desk,
+                    "startedAt", ticket.getStartedAt() != null ? ticket.getStartedAt() : LocalDateTime.now()
+            );
+
+            return ResponseEntity.ok(
+                    new ApiResponse<>(response,
+                            "Next client served at desk " + desk,
+                            200));
+        }).orElseGet(() -> ResponseEntity.ok(
+                new ApiResponse<>(null,
+                        "No clients in queue",
+                        200)));
+    }
+
+    /**
+     * Live queue state of an agency (Server-Sent Events), replaces polling /current and /pending/count
+     * État de la file en direct (SSE) / حالة الطابور مباشرة
+     */
+    @GetMapping(value = "/agency/{agencyId}/stream", produces = "text/event-stream")
+    @PreAuthorize("hasRole('AGENCY')")
+    public SseEmitter streamAgencyQueue(@PathVariable Long agencyId) {
+        return queueEventHub.subscribeAgency(agencyId);
+    }
+
     /**
      * Get current ticket being served / الحصول على التذكرة قيد الخدمة حالياً
      * @param agencyId ID of the agency / معرّف الوكالة
@@ -180,6 +250,28 @@ public class TicketController {
         );
     }
 
+    /**
+     * Today's reservations one page at a time (cursor from the previous page, newest first)
+     * Réservations du jour par page / حجوزات اليوم صفحة بصفحة
+     */
+    @GetMapping("/admin/reservations/today/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageDTO<TicketReservationDTO>>> getReservationsTodayPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(new ApiResponse<>(
+                ticketListingService.getReservationsTodayPage(cursor, size), "Today's ticket reservations retrieved", 200));
+    }
+
+    /**
+     * Today's reservations streamed as NDJSON (one ticket per line)
+     */
+    @GetMapping(value = "/admin/reservations/today/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportReservationsToday() {
+        return ndjson(ticketListingService::exportReservationsToday);
+    }
+
     /**
      * Get all pending tickets for an agency / الحصول على جميع التذاكر المعلقة لوكالة
      * @param agencyId ID of the agency / معرّف الوكالة
@@ -190,10 +282,7 @@ public class TicketController {
     public ResponseEntity<ApiResponse<List<TicketDTO>>> getAllPendingTicketsByAgency(
             @PathVariable Long agencyId) {
 
-        List<Ticket> pendingTickets = ticketService.getAllPendingTicketsByAgency(agencyId);
-        List<TicketDTO> ticketDTOs = pendingTickets.stream()
-                .map(TicketDTO::from)
-                .toList();
+        List<TicketDTO> ticketDTOs = ticketService.getAllPendingTicketsByAgency(agencyId);
 
         return ResponseEntity.ok(
                 new ApiResponse<>(ticketDTOs,
@@ -256,9 +345,10 @@ public class TicketController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<String>> manualResetTickets() {
         try {
-            ticketService.deleteAllTicketsDaily();
+            RolloverReportDTO report = ticketService.deleteAllTicketsDaily();
             return ResponseEntity.ok(
-                    new ApiResponse<>(null, "All tickets deleted successfully", 200)
+                    new ApiResponse<>(null, report.getArchivedTickets() + " tickets archived successfully in "
+                            + report.getTotalDurationMs() + " ms", 200)
             );
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -291,6 +381,38 @@ public class TicketController {
                 new ApiResponse<>(history, "Agency ticket history retrieved", 200));
     }
 
+    /**
+     * Agency history one page at a time (cursor from the previous page, newest first)
+     * Historique de l'agence par page / سجل الوكالة صفحة بصفحة
+     */
+    @GetMapping("/agency/{agencyId}/history/page")
+    @PreAuthorize("hasAnyRole('AGENCY', 'ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageDTO<TicketDTO>>> getAgencyTicketHistoryPage(
+            @PathVariable Long agencyId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal User user) {
+        if (user.getRole() == Role.AGENCY) {
+            verifyAgencyAccess(user, agencyId);
+        }
+        return ResponseEntity.ok(new ApiResponse<>(
+                ticketListingService.getAgencyHistoryPage(agencyId, cursor, size), "Agency ticket history retrieved", 200));
+    }
+
+    /**
+     * Whole agency history streamed as NDJSON (one ticket per line)
+     */
+    @GetMapping(value = "/agency/{agencyId}/history/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('AGENCY', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAgencyTicketHistory(
+            @PathVariable Long agencyId,
+            @AuthenticationPrincipal User user) {
+        if (user.getRole() == Role.AGENCY) {
+            verifyAgencyAccess(user, agencyId);
+        }
+        return ndjson(out -> ticketListingService.exportAgencyHistory(agencyId, out));
+    }
+
     // Add to TicketController.java
 
     /**
@@ -374,6 +496,26 @@ public class TicketController {
                 new ApiResponse<>(count, "TERMINE count for today", 200));
     }
 
+    /**
+     * Get all of today's counts for an agency in one call (no database read)
+     * @param agencyId ID of the agency
+     * @return Counts of waiting, in-progress, cancelled and completed tickets
+     */
+    @GetMapping("/agency/{agencyId}/today/stats")
+    @PreAuthorize("hasAnyRole('AGENCY', 'ADMIN')")
+    public ResponseEntity<ApiResponse<AgencyTodayStatsDTO>> getTodayStats(
+            @PathVariable Long agencyId,
+            @AuthenticationPrincipal User user) {
+
+        if (user.getRole() == Role.AGENCY) {
+            verifyAgencyAccess(user, agencyId);
+        }
+
+        AgencyTodayStatsDTO stats = ticketService.getTodayStats(agencyId);
+        return ResponseEntity.ok(
+                new ApiResponse<>(stats, "Agency stats for today", 200));
+    }
+
     // Helper method for agency authorization
     private void verifyAgencyAccess(User user, Long agencyId) {
         Agency userAgency = agencyRepository.findByUser(user)
@@ -408,6 +550,34 @@ public class TicketController {
                 new ApiResponse<>(tickets, "All tickets retrieved", 200));
     }
 
+    /**
+     * All tickets of the agency one page at a time (cursor from the previous page, newest first)
+     * Tous les tickets de l'agence par page / جميع تذاكر الوكالة صفحة بصفحة
+     */
+    @GetMapping("/agency/{agencyId}/all/page")
+    @PreAuthorize("hasRole('AGENCY')")
+    public ResponseEntity<ApiResponse<CursorPageDTO<TicketAgencyDto>>> getAllTicketsByAgencyPage(
+            @PathVariable Long agencyId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal User user) {
+        verifyAgencyAccess(user, agencyId);
+        return ResponseEntity.ok(new ApiResponse<>(
+                ticketListingService.getAgencyTicketsPage(agencyId, cursor, size), "All tickets retrieved", 200));
+    }
+
+    /**
+     * All tickets of the agency streamed as NDJSON (one ticket per line)
+     */
+    @GetMapping(value = "/agency/{agencyId}/all/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('AGENCY')")
+    public ResponseEntity<StreamingResponseBody> exportAllTicketsByAgency(
+            @PathVariable Long agencyId,
+            @AuthenticationPrincipal User user) {
+        verifyAgencyAccess(user, agencyId);
+        return ndjson(out -> ticketListingService.exportAgencyTickets(agencyId, out));
+    }
+
     /**
      * 2. Change status from EN_ATTENTE to EN_COURS (Role: AGENCY)
      * Returns: ticket number, service, creation date, client name
@@ -655,5 +825,9 @@ public class TicketController {
         }
     }
 
-
-}
\ No newline at end of file
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
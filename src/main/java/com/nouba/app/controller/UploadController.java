@@ -0,0 +1,188 @@
+package com.nouba.app.controller;
+
+import com.nouba.app.services.FileStorageService;
+import com.nouba.app.services.UploadFileCache;
+import com.nouba.app.services.storage.StorageBackend.ReadUrl;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the uploaded files (agency photos and their variants) under /uploads/**.
+ * Sert les fichiers envoyés (photos d'agence et leurs variantes).
+ *
+ * Files are never rewritten in place (unique or content-hashed names, atomic moves), so size and
+ * modification time identify the content: they make the strong ETag. Conditional requests
+ * (If-None-Match, If-Modified-Since) get 304, a single byte range gets 206 (several ranges are
+ * answered with the whole file). Small files come from {@link UploadFileCache}; large ones are
+ * handed to Tomcat's sendfile so the bytes go from the page cache to the socket without being
+ * copied through the JVM, or copied with {@link FileChannel#transferTo} when sendfile is unavailable.
+ * With an object store backend ({@code nouba.storage.backend=s3}) the client is redirected to it
+ * instead, so the bytes never go through the request threads.
+ * Set {@code nouba.uploads.legacy-handler=true} to serve them with the plain resource handler instead.
+ */
+@RestController
+@ConditionalOnProperty(name = "nouba.uploads.legacy-handler", havingValue = "false", matchIfMissing = true)
+public class UploadController {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String VARIANTS_PREFIX = "variants/";
+
+    private final FileStorageService fileStorageService;
+    private final UploadFileCache cache;
+    private final long sendfileMinBytes;
+    private final long maxAgeSeconds;
+    private final String photoCacheControl;
+    private final String variantCacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue();
+
+    public UploadController(FileStorageService fileStorageService,
+                            UploadFileCache cache,
+                            @Value("${nouba.uploads.sendfile-min-bytes:49152}") long sendfileMinBytes,
+                            @Value("${nouba.uploads.max-age-seconds:3600}") long maxAgeSeconds) {
+        this.fileStorageService = fileStorageService;
+        this.cache = cache;
+        this.sendfileMinBytes = sendfileMinBytes;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.photoCacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().getHeaderValue();
+    }
+
+    @GetMapping("/uploads/{*fileName}")
+    public void serve(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String name = fileName.startsWith("/") ? fileName.substring(1) : fileName;
+        Optional<ReadUrl> readUrl = fileStorageService.readUrl(name);
+        if (readUrl.isPresent()) {
+            redirect(response, readUrl.get());
+            return;
+        }
+        Path file = fileStorageService.locate(name);
+        // Temporary files of storeFile start with a dot
+        if (file == null || file.getFileName().toString().startsWith(".") || !Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, name.startsWith(VARIANTS_PREFIX) ? variantCacheControl : photoCacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Sets ETag and Last-Modified, and answers 304 (or 412) when the client's copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && length > 0 && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of(); // malformed: ignored, the whole file is sent
+            }
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        response.setContentType(MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        byte[] cached = cache.get(file, length, lastModified);
+        if (cached != null) {
+            response.getOutputStream().write(cached, (int) start, (int) count);
+            return;
+        }
+        if (count >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file once this method returns (end is exclusive)
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break; // file truncated meanwhile
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Sends the client to the object store. The redirect may be cached while the URL stays valid
+     * (pre-signed URLs expire), by the browser only: a shared cache must not keep a signed URL.
+     */
+    private void redirect(HttpServletResponse response, ReadUrl readUrl) {
+        long validSeconds = readUrl.expiresAt().equals(Instant.MAX)
+                ? maxAgeSeconds : Duration.between(Instant.now(), readUrl.expiresAt()).toSeconds() - 60;
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(Math.max(0, Math.min(maxAgeSeconds, validSeconds)), TimeUnit.SECONDS).cachePrivate().getHeaderValue());
+        response.setHeader(HttpHeaders.LOCATION, readUrl.uri().toString());
+        response.setStatus(HttpServletResponse.SC_FOUND);
+    }
+
+    /**
+     * If-Range: the range applies only if the client's copy is the current one (ETag or date).
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.nouba.app.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 
 @Data
+@NoArgsConstructor
 public class AgencyActiveDto {
     private Long id;
     private String name;
     private String city;
     private int ticketsToday;
-}
 
+    // Constructeur de projection (requête JPQL "SELECT new ... COUNT(t)")
+    public AgencyActiveDto(Long id, String name, String city, Long ticketsToday) {
+        this.id = id;
+        this.name = name;
+        this.city = city;
+        this.ticketsToday = ticketsToday.intValue();
+    }
+}
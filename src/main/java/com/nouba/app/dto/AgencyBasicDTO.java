@@ -14,4 +14,9 @@ public class AgencyBasicDTO {
         this.id = agency.getId();
         this.name = agency.getName();
     }
+
+    public AgencyBasicDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
 }
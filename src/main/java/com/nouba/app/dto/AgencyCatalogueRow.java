@@ -0,0 +1,17 @@
+package com.nouba.app.dto;
+
+/**
+ * One agency of the public catalogue, read by projection (no Agency/User entities loaded).
+ * Une agence du catalogue public, lue par projection.
+ */
+public record AgencyCatalogueRow(Long id,
+                                 String name,
+                                 String photoUrl,
+                                 String photoThumbnailUrl,
+                                 String photoMediumUrl,
+                                 String address,
+                                 String phone,
+                                 Long cityId,
+                                 String cityName,
+                                 String email) {
+}
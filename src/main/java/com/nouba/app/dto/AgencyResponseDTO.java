@@ -9,6 +9,8 @@ public class AgencyResponseDTO {
     private Long id;
     private String name;
     private String photoUrl;
+    private String photoThumbnailUrl;
+    private String photoMediumUrl;
     private String address;
     private String phone;
     private CityBasicDTO city;
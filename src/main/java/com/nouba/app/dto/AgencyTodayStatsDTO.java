@@ -0,0 +1,22 @@
+package com.nouba.app.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Today's ticket counts of an agency, one call instead of the four /today/.../count endpoints
+ * Statistiques du jour d'une agence en un seul appel
+ */
+@Data
+@Builder
+public class AgencyTodayStatsDTO {
+    private Long agencyId;
+    private LocalDate date;
+    private int enAttente;
+    private int enCours;
+    private int annule;
+    private int termine;
+    private int total;
+}
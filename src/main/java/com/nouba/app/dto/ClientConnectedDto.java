@@ -1,10 +1,14 @@
 package com.nouba.app.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ClientConnectedDto {
     private Long id;
     private String name;
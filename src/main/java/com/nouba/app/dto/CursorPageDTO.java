@@ -0,0 +1,18 @@
+package com.nouba.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing; pass {@code nextCursor} back to get the next page.
+ * Page d'une liste paginée par curseur ; {@code nextCursor} est null sur la dernière page.
+ */
+@Data
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,15 @@
+package com.nouba.app.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class NotificationStatsDTO {
+    private long pending;          // Queue depth in the outbox
+    private long sent;             // Sent since startup
+    private long failed;           // Send attempts that failed since startup
+    private long abandoned;        // Notifications given up after max attempts
+    private double averageSendLatencyMs;
+    private long maxSendLatencyMs;
+}
@@ -0,0 +1,19 @@
+package com.nouba.app.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class QueryShapeStatsDTO {
+    private String shape;          // SQL with literals and IN lists collapsed to ?
+    private long count;
+    private long errors;           // Executions that threw
+    private long slow;             // Executions over nouba.query-metrics.slow-threshold-ms
+    private double totalMs;
+    private double meanMs;
+    private double p50Ms;
+    private double p95Ms;
+    private double p99Ms;
+    private double maxMs;
+}
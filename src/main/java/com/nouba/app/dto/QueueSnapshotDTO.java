@@ -0,0 +1,19 @@
+package com.nouba.app.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Live queue state pushed on the agency stream
+ * État de la file envoyé en direct sur le flux de l'agence
+ */
+@Data
+@Builder
+public class QueueSnapshotDTO {
+    private Long agencyId;
+    private String currentTicketNumber;   // Ticket being served (null if none)
+    private String nextTicketNumber;      // First waiting ticket (null if none)
+    private int pendingCount;
+    private int servingCount;
+    private int estimatedWaitMinutes;
+}
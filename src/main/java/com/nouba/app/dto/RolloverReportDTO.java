@@ -0,0 +1,17 @@
+package com.nouba.app.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class RolloverReportDTO {
+    private LocalDateTime cutoff;        // Tickets issued before this instant were archived
+    private long archivedTickets;
+    private int batches;
+    private long totalDurationMs;
+    private long maxBatchDurationMs;     // Longest batch transaction, i.e. longest time rows stayed locked
+    private long sequenceResetMs;
+}
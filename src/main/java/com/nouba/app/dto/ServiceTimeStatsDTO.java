@@ -0,0 +1,14 @@
+package com.nouba.app.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ServiceTimeStatsDTO {
+    private Long agencyId;
+    private Long serviceId;        // null for the agency-wide row
+    private double meanMinutes;    // EWMA of completedAt - startedAt
+    private double stdDevMinutes;
+    private long samples;
+}
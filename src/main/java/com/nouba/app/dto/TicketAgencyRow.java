@@ -0,0 +1,18 @@
+package com.nouba.app.dto;
+
+import com.nouba.app.entities.Ticket;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns of a ticket needed by the agency ticket list, selected by a JPQL constructor expression:
+ * no Ticket entity is built, so its eager client/agency associations are never loaded.
+ * Colonnes d'un ticket pour la liste des tickets d'une agence.
+ */
+public record TicketAgencyRow(Long id,
+                              String number,
+                              String serviceName,
+                              LocalDateTime issuedAt,
+                              Integer sequenceNumber,
+                              Ticket.TicketStatus status) {
+}
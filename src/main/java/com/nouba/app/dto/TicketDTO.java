@@ -1,11 +1,14 @@
 package com.nouba.app.dto;
 
 import com.nouba.app.entities.Ticket;
+import com.nouba.app.entities.TicketArchive;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class TicketDTO {
     private Long id;
     private String number;
@@ -20,6 +23,27 @@ public class TicketDTO {
     private String clientName;
     private String status;  // Added
 
+    /**
+     * Projection constructor for JPQL "SELECT new" queries: only these columns are read
+     * Constructeur de projection : seules ces colonnes sont lues
+     */
+    public TicketDTO(Long id, String number, boolean served, LocalDateTime issuedAt, LocalDateTime servedAt,
+                     Long agencyId, String agencyName, Long serviceId, String serviceName,
+                     Long clientId, String clientName, Ticket.TicketStatus status) {
+        this.id = id;
+        this.number = number;
+        this.served = served;
+        this.issuedAt = issuedAt;
+        this.servedAt = servedAt;
+        this.agencyId = agencyId;
+        this.agencyName = agencyName;
+        this.serviceId = serviceId;
+        this.serviceName = serviceName;
+        this.clientId = clientId;
+        this.clientName = clientName;
+        this.status = status.name();
+    }
+
     public static TicketDTO from(Ticket ticket) {
         TicketDTO dto = new TicketDTO();
         dto.setId(ticket.getId());
@@ -36,4 +60,21 @@ public class TicketDTO {
         dto.setStatus(ticket.getStatus().name());
         return dto;
     }
+
+    public static TicketDTO from(TicketArchive ticket) {
+        TicketDTO dto = new TicketDTO();
+        dto.setId(ticket.getId());
+        dto.setNumber(ticket.getNumber());
+        dto.setServed(ticket.isServed() || ticket.getStatus() == Ticket.TicketStatus.TERMINE);
+        dto.setIssuedAt(ticket.getIssuedAt());
+        dto.setServedAt(ticket.getCompletedAt());
+        dto.setAgencyId(ticket.getAgencyId());
+        dto.setAgencyName(ticket.getAgencyName());
+        dto.setServiceId(ticket.getServiceId());
+        dto.setServiceName(ticket.getServiceName());
+        dto.setClientId(ticket.getClientId());
+        dto.setClientName(ticket.getClientName());
+        dto.setStatus(ticket.getStatus().name());
+        return dto;
+    }
 }
\ No newline at end of file
@@ -1,14 +1,29 @@
 package com.nouba.app.dto;
 
+import com.nouba.app.entities.Ticket;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class TicketEnAttenteDto {
     private Long id;
     private String number;
     private String agencyName;
     private String clientName;
     private LocalDateTime dateCreation;
+
+    public static TicketEnAttenteDto from(Ticket ticket) {
+        TicketEnAttenteDto dto = new TicketEnAttenteDto();
+        dto.setId(ticket.getId());
+        dto.setNumber(ticket.getNumber());
+        dto.setAgencyName(ticket.getAgency().getName());
+        dto.setClientName(ticket.getClient().getUser().getName());
+        dto.setDateCreation(ticket.getIssuedAt());
+        return dto;
+    }
 }
@@ -0,0 +1,19 @@
+package com.nouba.app.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Live position of one ticket pushed on the ticket stream
+ * Position en direct d'un ticket envoyée sur le flux du ticket
+ */
+@Data
+@Builder
+public class TicketPositionDTO {
+    private Long ticketId;
+    private String status;                // EN_ATTENTE, EN_COURS, or CLOSED once completed/cancelled
+    private Integer peopleAhead;          // Only while waiting
+    private Integer currentPosition;
+    private String currentTicketNumber;
+    private int pendingCount;
+}
@@ -1,12 +1,19 @@
 package com.nouba.app.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class TicketReservationDTO {
+    @JsonIgnore
+    private Long id; // ticket id, page cursor only
     private String ticketNumber;
     private String clientName;
     private String clientEmail;
@@ -14,4 +21,13 @@ public class TicketReservationDTO {
     private String city;
     private LocalDateTime issuedAt;
     private String timeAgo; // e.g. "5 minutes ago"
-}
\ No newline at end of file
+
+    /**
+     * Projection constructor for JPQL "SELECT new" queries (timeAgo is computed afterwards)
+     * Constructeur de projection ; timeAgo est calculé ensuite
+     */
+    public TicketReservationDTO(Long id, String ticketNumber, String clientName, String clientEmail,
+                                String agencyName, String city, LocalDateTime issuedAt) {
+        this(id, ticketNumber, clientName, clientEmail, agencyName, city, issuedAt, null);
+    }
+}
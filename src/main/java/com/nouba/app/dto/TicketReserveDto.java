@@ -1,10 +1,13 @@
 package com.nouba.app.dto;
 
+import com.nouba.app.entities.Ticket;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class TicketReserveDto {
     private Long id;
     private String number;
@@ -12,4 +15,15 @@ public class TicketReserveDto {
     private String clientName;
     private String status;
     private LocalDateTime dateCreation;
+
+    // Constructeur de projection (requête JPQL "SELECT new")
+    public TicketReserveDto(Long id, String number, String agencyName, String clientName,
+                            Ticket.TicketStatus status, LocalDateTime dateCreation) {
+        this.id = id;
+        this.number = number;
+        this.agencyName = agencyName;
+        this.clientName = clientName;
+        this.status = status.name();
+        this.dateCreation = dateCreation;
+    }
 }
@@ -0,0 +1,10 @@
+package com.nouba.app.dto;
+
+/**
+ * Current name, email and enabled flag of a user, read by projection when a token is first seen.
+ * Nom, email et état actuels d'un utilisateur, lus à la première vérification d'un token.
+ */
+public record UserAccountRow(String name,
+                             String email,
+                             boolean enabled) {
+}
@@ -0,0 +1,27 @@
+package com.nouba.app.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class WaitTimeReplayReportDTO {
+    private LocalDate from;
+    private LocalDate to;
+    private Long agencyId;                 // null when all agencies were replayed
+    private int agencies;
+    private long tickets;                  // Archived tickets read
+    private long samples;                  // Tickets with a known actual wait (issued then started)
+
+    // Estimator (EWMA of real service times, divided by active counters)
+    private double estimatorMeanAbsErrorMinutes;
+    private double estimatorP90AbsErrorMinutes;
+    private double estimatorBiasMinutes;   // Mean of (estimate - actual): > 0 means pessimistic
+
+    // Former fixed rule: 5 minutes per person ahead
+    private double fixedMeanAbsErrorMinutes;
+    private double fixedP90AbsErrorMinutes;
+    private double fixedBiasMinutes;
+}
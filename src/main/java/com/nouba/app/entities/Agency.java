@@ -17,6 +17,9 @@ public class Agency {
 
     private String name;
     private String photoUrl;
+    // Resized copies of the photo (see ImageVariantService), null until generated
+    private String photoThumbnailUrl;
+    private String photoMediumUrl;
     private String address;
     private String phone;
 
@@ -0,0 +1,30 @@
+package com.nouba.app.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * High-water mark of the ticket sequence of one agency.
+ * Each application node reserves a block of numbers from this row and then
+ * hands them out from memory (hi/lo allocation).
+ */
+@Entity
+@Table(name = "agency_sequence")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgencySequence {
+
+    @Id
+    @Column(name = "agency_id")
+    private Long agencyId;
+
+    // First sequence number of the next block to reserve, 0 after a reset (restart from the live tickets)
+    // Premier numéro du prochain bloc, 0 après une remise à zéro
+    @Column(nullable = false)
+    private Integer nextValue;
+
+    // Incremented by every reset: blocks reserved under an older epoch are no longer handed out
+    @Column(nullable = false)
+    private Integer epoch;
+}
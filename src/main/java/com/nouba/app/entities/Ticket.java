@@ -10,6 +10,14 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "ticket", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"agency_id", "number"})
+}, indexes = {
+        // Queue lookups: waiting tickets of an agency in sequence order
+        @Index(name = "idx_ticket_agency_status_seq", columnList = "agency_id, status, sequence_number"),
+        // Per-day statistics: issuedAt range within an agency
+        @Index(name = "idx_ticket_agency_issued", columnList = "agency_id, issued_at"),
+        // Admin listings across agencies, paged on (issuedAt, id)
+        @Index(name = "idx_ticket_status_issued", columnList = "status, issued_at"),
+        @Index(name = "idx_ticket_issued", columnList = "issued_at")
 })
 
 @Data
@@ -58,6 +66,14 @@ public class Ticket {
     @Column(nullable = false)
     private Integer sequenceNumber;
 
+    // Set once the "your turn is approaching" email has been queued, so it is sent only once
+    @Column(nullable = false)
+    private boolean approachNotified = false;
+
+    // Service desk (guichet) serving the ticket, null when served without a desk
+    @Column(nullable = true)
+    private Integer deskNumber;
+
     @ManyToOne(optional = false)
     @JoinColumn(name = "client_id", nullable = false)
     @JsonIgnoreProperties("tickets")
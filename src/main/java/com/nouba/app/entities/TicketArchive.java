@@ -0,0 +1,64 @@
+package com.nouba.app.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ticket of a previous day, moved out of the live ticket table by the daily rollover.
+ * Ticket d'un jour précédent, déplacé hors de la table ticket par la bascule quotidienne.
+ *
+ * Agency/client/service are kept as ids plus the names at archive time (no foreign keys),
+ * so deleting an agency or a client never has to touch the archive.
+ */
+@Entity
+@Table(name = "ticket_archive", indexes = {
+        @Index(name = "idx_ticket_archive_agency_issued", columnList = "agency_id, issued_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketArchive {
+
+    @Id
+    private Long id; // Same id as the original ticket
+
+    @Column(nullable = false)
+    private String number;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Ticket.TicketStatus status;
+
+    @Column(name = "issued_at", nullable = false)
+    private LocalDateTime issuedAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+    @Column(nullable = false)
+    private boolean served;
+
+    @Column(nullable = false)
+    private Integer sequenceNumber;
+
+    @Column(name = "agency_id", nullable = false)
+    private Long agencyId;
+
+    private String agencyName;
+
+    @Column(name = "client_id", nullable = false)
+    private Long clientId;
+
+    private String clientName;
+
+    @Column(name = "service_id")
+    private Long serviceId;
+
+    private String serviceName;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,174 @@
+package com.nouba.app.metrics;
+
+import com.nouba.app.dto.QueryShapeStatsDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory statistics of every SQL statement, grouped by query shape.
+ * Statistiques en mémoire des requêtes SQL, regroupées par forme de requête.
+ *
+ * Fed by {@link QueryMetricsDataSource}. A shape is the SQL text with literals replaced and
+ * IN lists collapsed, so "IN (?, ?, ?)" and "IN (?)" count as the same query. Recording is
+ * lock-free; the number of shapes is capped ({@code nouba.query-metrics.max-shapes}) and extra
+ * shapes are counted under {@link #OTHER_SHAPE}. Slow statements are sampled
+ * ({@code slow-sample-rate}) into a bounded queue and logged by a background thread, so request
+ * threads never write SQL to the log; samples that do not fit in the queue are dropped.
+ */
+@Component
+public class QueryMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+
+    public static final String OTHER_SHAPE = "(other)";
+    private static final int MAX_SHAPE_LENGTH = 2000;
+    private static final int MAX_CACHED_SQL = 4096;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int maxShapes;
+    private final long slowThresholdNanos;
+    private final double slowSampleRate;
+
+    private final ConcurrentMap<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    // Raw SQL -> shape, so the regexes run once per distinct statement text
+    private final ConcurrentMap<String, String> shapeCache = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> slowLog;
+    private final LongAdder droppedSlowSamples = new LongAdder();
+    private final Thread slowLogWriter;
+
+    public QueryMetrics(@Value("${nouba.query-metrics.max-shapes:500}") int maxShapes,
+                        @Value("${nouba.query-metrics.slow-threshold-ms:200}") long slowThresholdMs,
+                        @Value("${nouba.query-metrics.slow-sample-rate:0.1}") double slowSampleRate,
+                        @Value("${nouba.query-metrics.slow-log-queue-size:1000}") int slowLogQueueSize) {
+        this.maxShapes = Math.max(1, maxShapes);
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.slowSampleRate = slowSampleRate;
+        this.slowLog = new ArrayBlockingQueue<>(Math.max(1, slowLogQueueSize));
+        this.slowLogWriter = new Thread(this::writeSlowLog, "query-slow-log");
+        this.slowLogWriter.setDaemon(true);
+        this.slowLogWriter.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        slowLogWriter.interrupt();
+    }
+
+    /**
+     * Records one statement execution. {@code sql} may be null for batches without text.
+     */
+    public void record(String sql, long nanos, boolean failed) {
+        String shape = shapeOf(sql);
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null) {
+            stats = shapes.size() < maxShapes
+                    ? shapes.computeIfAbsent(shape, s -> new ShapeStats())
+                    : shapes.computeIfAbsent(OTHER_SHAPE, s -> new ShapeStats());
+        }
+        stats.latency.record(nanos);
+        if (failed) {
+            stats.errors.increment();
+        }
+        if (nanos >= slowThresholdNanos) {
+            stats.slow.increment();
+            if (ThreadLocalRandom.current().nextDouble() < slowSampleRate) {
+                String line = String.format("Slow query (%.1f ms): %s", nanos / 1_000_000.0, shape);
+                if (!slowLog.offer(line)) {
+                    droppedSlowSamples.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Shapes sorted by total time spent, the most expensive first.
+     */
+    public List<QueryShapeStatsDTO> snapshot(int limit) {
+        return shapes.entrySet().stream()
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .sorted(Comparator.comparingDouble(QueryShapeStatsDTO::getTotalMs).reversed())
+                .limit(Math.max(1, limit))
+                .toList();
+    }
+
+    public long droppedSlowSamples() {
+        return droppedSlowSamples.sum();
+    }
+
+    public void reset() {
+        shapes.clear();
+        droppedSlowSamples.reset();
+    }
+
+    String shapeOf(String sql) {
+        if (sql == null) {
+            return "(batch)";
+        }
+        String cached = shapeCache.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String shape = normalize(sql);
+        if (shapeCache.size() >= MAX_CACHED_SQL) {
+            shapeCache.clear(); // statements with ever-changing text; recomputing is cheap enough
+        }
+        shapeCache.put(sql, shape);
+        return shape;
+    }
+
+    static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        shape = IN_LIST.matcher(shape).replaceAll("in (?)");
+        return shape.length() > MAX_SHAPE_LENGTH ? shape.substring(0, MAX_SHAPE_LENGTH) + "..." : shape;
+    }
+
+    private void writeSlowLog() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                logger.warn(slowLog.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ShapeStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+
+        QueryShapeStatsDTO toDto(String shape) {
+            return QueryShapeStatsDTO.builder()
+                    .shape(shape)
+                    .count(latency.count())
+                    .errors(errors.sum())
+                    .slow(slow.sum())
+                    .totalMs(latency.totalMillis())
+                    .meanMs(latency.meanMillis())
+                    .p50Ms(latency.percentileMillis(0.50))
+                    .p95Ms(latency.percentileMillis(0.95))
+                    .p99Ms(latency.percentileMillis(0.99))
+                    .maxMs(latency.maxMillis())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.nouba.app.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource wrapper that times every statement execution and reports it to {@link QueryMetrics}.
+ * Enveloppe du DataSource qui mesure chaque exécution de requête.
+ *
+ * Connections and statements are JDK proxies: only the {@code execute*} calls are timed,
+ * everything else goes straight to the pooled objects. No SQL is logged here.
+ */
+public class QueryMetricsDataSource extends DelegatingDataSource {
+
+    private final QueryMetrics queryMetrics;
+
+    public QueryMetricsDataSource(DataSource target, QueryMetrics queryMetrics) {
+        super(target);
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            String name = method.getName();
+            if (result instanceof CallableStatement statement && name.equals("prepareCall")) {
+                return proxy(CallableStatement.class, statement, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement statement && name.equals("prepareStatement")) {
+                return proxy(PreparedStatement.class, statement, (String) args[0]);
+            }
+            if (result instanceof Statement statement && name.equals("createStatement")) {
+                return proxy(Statement.class, statement, null);
+            }
+            return result;
+        }
+    }
+
+    private Object proxy(Class<? extends Statement> type, Statement statement, String sql) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{type}, new StatementHandler(statement, sql));
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return invokeTarget(target, method, args);
+            }
+            // Statement.execute*(sql, ...) carries its SQL; prepared statements were given theirs upfront
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invokeTarget(target, method, args);
+                failed = false;
+                return result;
+            } finally {
+                queryMetrics.record(sql, System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
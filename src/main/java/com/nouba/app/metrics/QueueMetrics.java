@@ -0,0 +1,153 @@
+package com.nouba.app.metrics;
+
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.services.queue.AgencyQueue;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import com.nouba.app.services.queue.TicketServedEvent;
+import com.nouba.app.services.queue.TicketStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Micrometer meters for the ticket queues (scraped at /actuator/prometheus).
+ * Métriques des files d'attente exposées à Prometheus.
+ *
+ * - nouba.queue.pending / nouba.queue.serving: per-agency gauges, only for the
+ *   {@code nouba.metrics.queue.top-agencies} longest queues (re-selected every refresh), so the
+ *   number of series stays bounded however many agencies exist.
+ * - nouba.queue.pending.total / nouba.queue.serving.total: all agencies, no agency tag.
+ * - nouba.ticket.wait / nouba.ticket.service: histograms of issuedAt → startedAt and
+ *   startedAt → completedAt, without agency tag.
+ * - nouba.ticket.transitions: status transitions, tagged from/to (a handful of series).
+ * Operation latencies (generate, serve, start, complete, cancel) come from @Timed on TicketService.
+ */
+@Component
+public class QueueMetrics {
+
+    private final AgencyQueueManager queueManager;
+    private final MeterRegistry registry;
+    private final int topAgencies;
+
+    private final MultiGauge pendingByAgency;
+    private final MultiGauge servingByAgency;
+    private final Timer waitTimer;
+    private final Timer serviceTimer;
+    // "FROM>TO" -> counter; at most (statuses + 1) * statuses entries
+    private final ConcurrentMap<String, Counter> transitions = new ConcurrentHashMap<>();
+
+    public QueueMetrics(AgencyQueueManager queueManager,
+                        MeterRegistry registry,
+                        @Value("${nouba.metrics.queue.top-agencies:50}") int topAgencies) {
+        this.queueManager = queueManager;
+        this.registry = registry;
+        this.topAgencies = Math.max(0, topAgencies);
+
+        this.pendingByAgency = MultiGauge.builder("nouba.queue.pending")
+                .description("Waiting tickets of the agencies with the longest queues")
+                .register(registry);
+        this.servingByAgency = MultiGauge.builder("nouba.queue.serving")
+                .description("Tickets being served, same agencies as nouba.queue.pending")
+                .register(registry);
+        this.waitTimer = Timer.builder("nouba.ticket.wait")
+                .description("Time from issue to start of service")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofSeconds(10))
+                .maximumExpectedValue(Duration.ofHours(4))
+                .register(registry);
+        this.serviceTimer = Timer.builder("nouba.ticket.service")
+                .description("Time from start of service to completion")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofSeconds(10))
+                .maximumExpectedValue(Duration.ofHours(4))
+                .register(registry);
+    }
+
+    // Not in the constructor: the gauges hold on to this bean, which must be fully built first
+    @PostConstruct
+    void registerTotals() {
+        Gauge.builder("nouba.queue.pending.total", this, QueueMetrics::totalPending)
+                .description("Waiting tickets, all agencies")
+                .register(registry);
+        Gauge.builder("nouba.queue.serving.total", this, QueueMetrics::totalServing)
+                .description("Tickets being served, all agencies")
+                .register(registry);
+    }
+
+    /**
+     * Re-selects the agencies that get their own pending/serving series.
+     */
+    @Scheduled(fixedDelayString = "${nouba.metrics.queue.refresh-ms:15000}")
+    public void refreshAgencyGauges() {
+        List<AgencyQueue> top = queueManager.loadedQueues().stream()
+                .sorted(Comparator.comparingInt(AgencyQueue::pendingCount).reversed())
+                .limit(topAgencies)
+                .toList();
+        pendingByAgency.register(top.stream()
+                .map(queue -> MultiGauge.Row.of(agencyTag(queue), queue, q -> q.pendingCount()))
+                .toList(), true);
+        servingByAgency.register(top.stream()
+                .map(queue -> MultiGauge.Row.of(agencyTag(queue), queue, q -> q.servingCount()))
+                .toList(), true);
+    }
+
+    @EventListener
+    public void onStatusChanged(TicketStatusChangedEvent event) {
+        transitionCounter(event.from(), event.to()).increment();
+        if (event.from() == Ticket.TicketStatus.EN_ATTENTE && event.to() == Ticket.TicketStatus.EN_COURS
+                && event.issuedAt() != null) {
+            // Published right after the start committed, so "now" is the start time
+            record(waitTimer, event.issuedAt(), LocalDateTime.now());
+        }
+    }
+
+    @EventListener
+    public void onTicketServed(TicketServedEvent event) {
+        if (event.startedAt() != null && event.completedAt() != null) {
+            record(serviceTimer, event.startedAt(), event.completedAt());
+        }
+    }
+
+    private double totalPending() {
+        return queueManager.loadedQueues().stream().mapToInt(AgencyQueue::pendingCount).sum();
+    }
+
+    private double totalServing() {
+        return queueManager.loadedQueues().stream().mapToInt(AgencyQueue::servingCount).sum();
+    }
+
+    private Counter transitionCounter(Ticket.TicketStatus from, Ticket.TicketStatus to) {
+        String fromName = from != null ? from.name() : "NEW";
+        return transitions.computeIfAbsent(fromName + ">" + to.name(), key -> Counter.builder("nouba.ticket.transitions")
+                .description("Ticket status transitions")
+                .tag("from", fromName)
+                .tag("to", to.name())
+                .register(registry));
+    }
+
+    private static void record(Timer timer, LocalDateTime from, LocalDateTime to) {
+        Duration duration = Duration.between(from, to);
+        if (!duration.isNegative()) {
+            timer.record(duration);
+        }
+    }
+
+    private static Tags agencyTag(AgencyQueue queue) {
+        return Tags.of("agency", String.valueOf(queue.getAgencyId()));
+    }
+}
@@ -0,0 +1,124 @@
+package com.nouba.app.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads pinned to their carrier thread, in virtual-thread mode only
+ * ({@code spring.threads.virtual.enabled=true}).
+ * Signale les threads virtuels bloqués sur leur thread porteur.
+ *
+ * On Java 21 a virtual thread that blocks inside a synchronized block (JDBC drivers and pools were
+ * the usual culprits) keeps its carrier busy, so a few of them can stall every request. The JVM
+ * records each pin longer than {@code nouba.threads.pinned-threshold-ms} as a JFR
+ * {@code jdk.VirtualThreadPinned} event; they are read in-process from a JFR stream and
+ * - timed in nouba.threads.pinned, tagged with the code that held the pin (jdbc-driver,
+ *   connection-pool, application, other), for /actuator/prometheus;
+ * - logged once per pinning site (first frame outside the JDK) with its stack, at most
+ *   {@value #MAX_LOGGED_SITES} sites.
+ * Outside Spring, {@code -Djdk.tracePinnedThreads=short} prints the same stacks to stdout.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "nouba.threads.pinning-monitor.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_LOGGED_SITES = 100;
+    private static final int LOGGED_FRAMES = 15;
+
+    private final MeterRegistry registry;
+    private final Duration threshold;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Boolean> loggedSites = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry registry,
+                                       @Value("${nouba.threads.pinned-threshold-ms:20}") long thresholdMs) {
+        this.registry = registry;
+        this.threshold = Duration.ofMillis(Math.max(0, thresholdMs));
+    }
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        logger.info("Monitoring virtual thread pinning longer than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    void stop() {
+        stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String source = source(frames);
+        timers.computeIfAbsent(source, s -> Timer.builder("nouba.threads.pinned")
+                        .description("Time virtual threads spent pinned to their carrier")
+                        .tag("source", s)
+                        .register(registry))
+                .record(event.getDuration());
+
+        String site = site(frames);
+        if (loggedSites.size() < MAX_LOGGED_SITES && loggedSites.putIfAbsent(site, Boolean.TRUE) == null) {
+            logger.warn("Virtual thread pinned for {} ms at {} ({}):\n\t{}", event.getDuration().toMillis(), site, source,
+                    frames.stream().limit(LOGGED_FRAMES).map(VirtualThreadPinningMonitor::describe).collect(Collectors.joining("\n\t")));
+        }
+    }
+
+    // The innermost recognisable code: a driver or pool frame above application code is the driver's lock
+    private static String source(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = type(frame);
+            if (type.startsWith("com.mysql.") || type.startsWith("org.h2.")) {
+                return "jdbc-driver";
+            }
+            if (type.startsWith("com.zaxxer.hikari.")) {
+                return "connection-pool";
+            }
+            if (type.startsWith("com.nouba.")) {
+                return "application";
+            }
+        }
+        return "other";
+    }
+
+    private static String site(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = type(frame);
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return describe(frame);
+            }
+        }
+        return frames.isEmpty() ? "(no stack trace)" : describe(frames.get(0));
+    }
+
+    private static String type(RecordedFrame frame) {
+        return frame.getMethod() == null ? "" : frame.getMethod().getType().getName();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod() == null ? "?" : type(frame) + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -1,8 +1,11 @@
 package com.nouba.app.repositories;
 
+import com.nouba.app.dto.AgencyActiveDto;
+import com.nouba.app.dto.AgencyCatalogueRow;
 import com.nouba.app.entities.Agency;
 import com.nouba.app.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -24,9 +27,45 @@ public interface AgencyRepository extends JpaRepository<Agency, Long> {
     @Query("SELECT a FROM Agency a LEFT JOIN FETCH a.city LEFT JOIN FETCH a.user WHERE a.city.id = :cityId")
     List<Agency> findByCityId(Long cityId);
 
-    @Query("SELECT DISTINCT a FROM Agency a JOIN a.tickets t WHERE t.issuedAt BETWEEN :debut AND :fin")
-    List<Agency> findActiveAgencies(@Param("debut") LocalDateTime debut,
-                                    @Param("fin") LocalDateTime fin);
+    // Agencies with tickets in [debut, fin) and how many, counted by the database
+    @Query("SELECT new com.nouba.app.dto.AgencyActiveDto(a.id, a.name, ci.name, COUNT(t)) " +
+            "FROM Ticket t JOIN t.agency a JOIN a.city ci " +
+            "WHERE t.issuedAt >= :debut AND t.issuedAt < :fin GROUP BY a.id, a.name, ci.name")
+    List<AgencyActiveDto> findActiveAgencies(@Param("debut") LocalDateTime debut,
+                                             @Param("fin") LocalDateTime fin);
+
+    // Public catalogue (see CatalogueCache): one row per agency, no entity graph
+    @Query("SELECT new com.nouba.app.dto.AgencyCatalogueRow(a.id, a.name, a.photoUrl, a.photoThumbnailUrl, a.photoMediumUrl, a.address, a.phone, ci.id, ci.name, u.email) " +
+            "FROM Agency a LEFT JOIN a.city ci LEFT JOIN a.user u ORDER BY a.id")
+    List<AgencyCatalogueRow> findCatalogueRows();
+
+    /**
+     * Records the variants of a photo, unless the agency changed photo since they were requested
+     * @return 1 if recorded, 0 if the photo is no longer the same
+     */
+    @Modifying
+    @Query("UPDATE Agency a SET a.photoThumbnailUrl = :thumbnail, a.photoMediumUrl = :medium " +
+            "WHERE a.id = :agencyId AND a.photoUrl = :photoUrl")
+    int updatePhotoVariants(@Param("agencyId") Long agencyId,
+                            @Param("photoUrl") String photoUrl,
+                            @Param("thumbnail") String thumbnail,
+                            @Param("medium") String medium);
+
+    // Photos without variants yet: {agency id, photo file}
+    @Query("SELECT a.id, a.photoUrl FROM Agency a WHERE a.photoUrl IS NOT NULL AND a.photoThumbnailUrl IS NULL")
+    List<Object[]> findPhotosWithoutVariants();
+
+    // {thumbnail, medium} of an agency (empty if the agency no longer exists)
+    @Query("SELECT a.photoThumbnailUrl, a.photoMediumUrl FROM Agency a WHERE a.id = :agencyId")
+    List<Object[]> findPhotoVariants(@Param("agencyId") Long agencyId);
+
+    // Uploads are content-addressed, so agencies with the same photo share its files (see UploadGarbageCollector)
+    @Query("SELECT COUNT(a) FROM Agency a WHERE a.photoUrl = :file OR a.photoThumbnailUrl = :file OR a.photoMediumUrl = :file")
+    long countFileReferences(@Param("file") String file);
+
+    // {photo, thumbnail, medium} of every agency
+    @Query("SELECT a.photoUrl, a.photoThumbnailUrl, a.photoMediumUrl FROM Agency a")
+    List<Object[]> findFileReferences();
 
     Optional<Agency> findByUserId(Long userId);
 
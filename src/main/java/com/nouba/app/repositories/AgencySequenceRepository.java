@@ -0,0 +1,42 @@
+package com.nouba.app.repositories;
+
+import com.nouba.app.entities.AgencySequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface AgencySequenceRepository extends JpaRepository<AgencySequence, Long> {
+
+    /**
+     * Locks the sequence row of an agency while a block is reserved
+     * Verrouille la ligne de séquence d'une agence pendant la réservation d'un bloc
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AgencySequence s WHERE s.agencyId = :agencyId")
+    Optional<AgencySequence> findForUpdate(@Param("agencyId") Long agencyId);
+
+    /**
+     * Current reset epoch of an agency, without locking the row
+     */
+    @Query("SELECT s.epoch FROM AgencySequence s WHERE s.agencyId = :agencyId")
+    Optional<Integer> findEpoch(@Param("agencyId") Long agencyId);
+
+    /**
+     * Next block start of an agency, without locking the row (0 right after a reset)
+     */
+    @Query("SELECT s.nextValue FROM AgencySequence s WHERE s.agencyId = :agencyId")
+    Optional<Integer> findNextValue(@Param("agencyId") Long agencyId);
+
+    /**
+     * Restarts every agency (daily reset): the next block is seeded from the live tickets,
+     * and the blocks other nodes hold become stale
+     */
+    @Modifying
+    @Query("UPDATE AgencySequence s SET s.nextValue = 0, s.epoch = s.epoch + 1")
+    int restartAll();
+}
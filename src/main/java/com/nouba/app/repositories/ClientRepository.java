@@ -2,6 +2,7 @@ package com.nouba.app.repositories;
 
 
 
+import com.nouba.app.dto.ClientDto;
 import com.nouba.app.entities.Client;
 import com.nouba.app.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -19,8 +20,9 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     @Query("SELECT COUNT(DISTINCT c) FROM Client c JOIN c.tickets t WHERE t.agency.id = :agencyId")
     int countDistinctByTicketsAgencyId(@Param("agencyId") Long agencyId);
 
-    @Query("SELECT DISTINCT t.client FROM Ticket t WHERE t.agency.id = :agencyId")
-    List<Client> findClientsByAgencyId(@Param("agencyId") Long agencyId);
+    @Query("SELECT DISTINCT new com.nouba.app.dto.ClientDto(u.name, u.email, u.phone) " +
+            "FROM Ticket t JOIN t.client c JOIN c.user u WHERE t.agency.id = :agencyId")
+    List<ClientDto> findClientsByAgencyId(@Param("agencyId") Long agencyId);
 
 
 
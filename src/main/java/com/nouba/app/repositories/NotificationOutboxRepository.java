@@ -0,0 +1,57 @@
+package com.nouba.app.repositories;
+
+import com.nouba.app.entities.NotificationOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /**
+     * Locks the oldest pending notifications that are due (not backing off after a failure),
+     * skipping rows already claimed by another node
+     * Verrouille les notifications en attente les plus anciennes dont l'heure d'envoi est passée (SKIP LOCKED)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT n FROM NotificationOutbox n WHERE n.status = 'PENDING' " +
+            "AND (n.nextAttemptAt IS NULL OR n.nextAttemptAt <= :now) ORDER BY n.id ASC")
+    List<NotificationOutbox> lockPending(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(NotificationOutbox.Status status);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox n SET n.status = 'SENDING', n.claimedAt = :now WHERE n.id IN :ids")
+    int markSending(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox n SET n.status = 'SENT', n.sentAt = :now, n.attempts = n.attempts + 1, n.lastError = null WHERE n.id IN :ids")
+    int markSent(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Records a failed attempt; a PENDING row is not claimed again before {@code nextAttemptAt}
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutbox n SET n.status = :status, n.attempts = n.attempts + 1, n.lastError = :error, " +
+            "n.claimedAt = null, n.nextAttemptAt = :nextAttemptAt WHERE n.id = :id")
+    int markFailed(@Param("id") Long id,
+                   @Param("status") NotificationOutbox.Status status,
+                   @Param("error") String error,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Puts back notifications claimed by a node that died before finishing them
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutbox n SET n.status = 'PENDING', n.claimedAt = null WHERE n.status = 'SENDING' AND n.claimedAt < :before")
+    int releaseStaleClaims(@Param("before") LocalDateTime before);
+}
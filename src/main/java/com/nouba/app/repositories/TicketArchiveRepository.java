@@ -0,0 +1,73 @@
+package com.nouba.app.repositories;
+
+import com.nouba.app.dto.TicketDTO;
+import com.nouba.app.entities.TicketArchive;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface TicketArchiveRepository extends JpaRepository<TicketArchive, Long> {
+
+    // Archived tickets as TicketDTO rows (same shape as the live history), without building entities
+    String TICKET_DTO = "SELECT new com.nouba.app.dto.TicketDTO(ta.id, ta.number, " +
+            "CASE WHEN ta.served = true OR ta.status = 'TERMINE' THEN true ELSE false END, ta.issuedAt, ta.completedAt, " +
+            "ta.agencyId, ta.agencyName, ta.serviceId, ta.serviceName, ta.clientId, ta.clientName, ta.status) " +
+            "FROM TicketArchive ta ";
+
+    /**
+     * Copies a batch of live tickets into the archive (single INSERT ... SELECT)
+     * Copie un lot de tickets vers l'archive en une seule requête
+     */
+    @Modifying
+    @Query("INSERT INTO TicketArchive (id, number, status, issuedAt, startedAt, completedAt, served, sequenceNumber, " +
+            "agencyId, agencyName, clientId, clientName, serviceId, serviceName, archivedAt) " +
+            "SELECT t.id, t.number, t.status, t.issuedAt, t.startedAt, t.completedAt, t.served, t.sequenceNumber, " +
+            "a.id, a.name, c.id, u.name, s.id, s.name, LOCAL DATETIME " +
+            "FROM Ticket t JOIN t.agency a JOIN t.client c JOIN c.user u LEFT JOIN t.agencyService s " +
+            "WHERE t.id IN :ids")
+    int archiveTickets(@Param("ids") List<Long> ids);
+
+    /**
+     * Completed and cancelled archived tickets of an agency, newest first
+     * Tickets archivés terminés ou annulés d'une agence, du plus récent au plus ancien
+     */
+    @Query(TICKET_DTO + "WHERE ta.agencyId = :agencyId AND (ta.status = 'ANNULE' OR ta.status = 'TERMINE') ORDER BY ta.issuedAt DESC, ta.id DESC")
+    List<TicketDTO> findHistoryByAgencyId(@Param("agencyId") Long agencyId);
+
+    /**
+     * Archived tickets issued in [from, to), grouped by agency then in issue order (wait-time replay)
+     * Tickets archivés émis sur une période, par agence puis par ordre d'émission
+     */
+    @Query("SELECT ta FROM TicketArchive ta WHERE ta.issuedAt >= :from AND ta.issuedAt < :to " +
+            "AND (:agencyId IS NULL OR ta.agencyId = :agencyId) ORDER BY ta.agencyId, ta.issuedAt")
+    List<TicketArchive> findIssuedBetween(@Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to,
+                                          @Param("agencyId") Long agencyId);
+
+    /**
+     * Page of an agency's completed and cancelled archived tickets older than the cursor (issuedAt, id)
+     * Page de l'historique archivé d'une agence, par curseur
+     */
+    @Query(TICKET_DTO + "WHERE ta.agencyId = :agencyId AND (ta.status = 'ANNULE' OR ta.status = 'TERMINE') " +
+            "AND (ta.issuedAt < :issuedAt OR (ta.issuedAt = :issuedAt AND ta.id < :id)) " +
+            "ORDER BY ta.issuedAt DESC, ta.id DESC")
+    List<TicketDTO> findHistoryPageByAgencyId(@Param("agencyId") Long agencyId,
+                                              @Param("issuedAt") LocalDateTime issuedAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TicketRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(TICKET_DTO + "WHERE ta.agencyId = :agencyId AND (ta.status = 'ANNULE' OR ta.status = 'TERMINE') " +
+            "ORDER BY ta.issuedAt DESC, ta.id DESC")
+    Stream<TicketDTO> streamHistoryByAgencyId(@Param("agencyId") Long agencyId);
+}
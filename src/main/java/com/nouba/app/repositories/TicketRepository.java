@@ -1,12 +1,20 @@
 package com.nouba.app.repositories;
 
+import com.nouba.app.dto.TicketAgencyRow;
+import com.nouba.app.dto.TicketDTO;
+import com.nouba.app.dto.TicketEnAttenteDto;
+import com.nouba.app.dto.TicketReservationDTO;
+import com.nouba.app.dto.TicketReserveDto;
 import com.nouba.app.entities.Client;
 import com.nouba.app.entities.Ticket;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import org.springframework.data.domain.Pageable;
@@ -17,9 +25,23 @@ import org.springframework.data.domain.Sort;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
 
+    /** Rows fetched per round trip by the streamed exports (needs useCursorFetch=true on MySQL) */
+    String EXPORT_FETCH_SIZE = "500";
+
+    // Read-only listings select DTOs directly ("SELECT new"): only the listed columns are read and
+    // no entity (nor its eager client/user/agency graph, password hashes included) is loaded
+    String TICKET_DTO = "SELECT new com.nouba.app.dto.TicketDTO(t.id, t.number, t.served, t.issuedAt, t.completedAt, " +
+            "a.id, a.name, s.id, s.name, c.id, u.name, t.status) " +
+            "FROM Ticket t JOIN t.agency a JOIN t.client c JOIN c.user u LEFT JOIN t.agencyService s ";
+    String RESERVATION_DTO = "SELECT new com.nouba.app.dto.TicketReservationDTO(t.id, t.number, u.name, u.email, a.name, ci.name, t.issuedAt) " +
+            "FROM Ticket t JOIN t.agency a JOIN a.city ci JOIN t.client c JOIN c.user u ";
+    String EN_ATTENTE_DTO = "SELECT new com.nouba.app.dto.TicketEnAttenteDto(t.id, t.number, a.name, u.name, t.issuedAt) " +
+            "FROM Ticket t JOIN t.agency a JOIN t.client c JOIN c.user u ";
+
     boolean existsByIdAndClientUserId(Long ticketId, Long userId);
 
     /**
@@ -44,7 +66,7 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
      * Counts pending tickets before a specific number
      * يحسب التذاكر المعلقة قبل رقم معين
      */
-    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.agency.id = :agencyId AND CAST(SUBSTRING(t.number, 6) AS int) < :sequence AND t.status = 'EN_ATTENTE'")
+    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'EN_ATTENTE' AND t.sequenceNumber < :sequence")
     int countByAgencyIdAndSequenceLessThanAndPending(@Param("agencyId") Long agencyId,
                                                      @Param("sequence") Integer sequence);
 
@@ -59,7 +81,7 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
      * Finds the next ticket to serve
      * يجد التذكرة التالية للخدمة
      */
-    @Query("SELECT t FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'EN_ATTENTE' ORDER BY CAST(SUBSTRING(t.number, 6) AS int) ASC")
+    @Query("SELECT t FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'EN_ATTENTE' ORDER BY t.sequenceNumber ASC LIMIT 1")
     Optional<Ticket> findNextPendingByAgencyId(@Param("agencyId") Long agencyId);
 
     /**
@@ -101,10 +123,81 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
      */
     int countByAgencyIdAndStatus(Long agencyId, Ticket.TicketStatus status);
 
-    // Add this method to your existing TicketRepository
-    @Query("SELECT t FROM Ticket t WHERE t.issuedAt BETWEEN :start AND :end")
-    List<Ticket> findByIssuedAtBetween(@Param("start") LocalDateTime start,
-                                       @Param("end") LocalDateTime end);
+    /**
+     * Finds tickets by agency ID and status, oldest started first (used to rebuild the in-memory queue)
+     * Trouver les tickets par agence et statut, du plus ancien démarré au plus récent
+     */
+    List<Ticket> findByAgencyIdAndStatusOrderByStartedAtAsc(Long agencyId, Ticket.TicketStatus status);
+
+    /**
+     * Flags a waiting ticket as notified; returns 0 if it was already flagged (or is no longer waiting)
+     * Marque un ticket en attente comme notifié ; retourne 0 s'il l'était déjà
+     */
+    @Modifying
+    @Query("UPDATE Ticket t SET t.approachNotified = true WHERE t.id = :ticketId AND t.approachNotified = false AND t.status = 'EN_ATTENTE'")
+    int markApproachNotified(@Param("ticketId") Long ticketId);
+
+    /**
+     * Starts a ticket only if it is still in {@code from}; returns 0 if another desk or request got there first
+     * Démarre un ticket seulement s'il est encore dans le statut attendu ; retourne 0 sinon
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Ticket t SET t.status = :to, t.startedAt = :at, t.deskNumber = :desk " +
+            "WHERE t.id = :ticketId AND t.status = :from")
+    int startIfStatus(@Param("ticketId") Long ticketId,
+                      @Param("from") Ticket.TicketStatus from,
+                      @Param("to") Ticket.TicketStatus to,
+                      @Param("desk") Integer desk,
+                      @Param("at") LocalDateTime at);
+
+    /**
+     * Closes a ticket only if it is still in {@code from}; returns 0 if it was already closed
+     * Termine un ticket seulement s'il est encore dans le statut attendu ; retourne 0 sinon
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Ticket t SET t.status = :to, t.completedAt = :at WHERE t.id = :ticketId AND t.status = :from")
+    int closeIfStatus(@Param("ticketId") Long ticketId,
+                      @Param("from") Ticket.TicketStatus from,
+                      @Param("to") Ticket.TicketStatus to,
+                      @Param("at") LocalDateTime at);
+
+    /**
+     * Atomically claims a waiting ticket for a desk (EN_ATTENTE → EN_COURS)
+     */
+    default boolean claimPending(Long ticketId, Integer desk, LocalDateTime at) {
+        return startIfStatus(ticketId, Ticket.TicketStatus.EN_ATTENTE, Ticket.TicketStatus.EN_COURS, desk, at) == 1;
+    }
+
+    /**
+     * Atomically completes a ticket being served (EN_COURS → TERMINE)
+     */
+    default boolean completeIfServing(Long ticketId, LocalDateTime at) {
+        return closeIfStatus(ticketId, Ticket.TicketStatus.EN_COURS, Ticket.TicketStatus.TERMINE, at) == 1;
+    }
+
+    /**
+     * Atomically cancels a waiting ticket (EN_ATTENTE → ANNULE); false if a desk claimed it first
+     */
+    default boolean cancelIfPending(Long ticketId, LocalDateTime at) {
+        return closeIfStatus(ticketId, Ticket.TicketStatus.EN_ATTENTE, Ticket.TicketStatus.ANNULE, at) == 1;
+    }
+
+    /**
+     * Atomically cancels a ticket being served (EN_COURS → ANNULE)
+     */
+    default boolean cancelIfServing(Long ticketId, LocalDateTime at) {
+        return closeIfStatus(ticketId, Ticket.TicketStatus.EN_COURS, Ticket.TicketStatus.ANNULE, at) == 1;
+    }
+
+    /**
+     * Tickets issued in [start, end) as admin dashboard rows
+     * Tickets émis sur une période, en lignes du tableau de bord admin
+     */
+    @Query("SELECT new com.nouba.app.dto.TicketReserveDto(t.id, t.number, a.name, u.name, t.status, t.issuedAt) " +
+            "FROM Ticket t JOIN t.agency a JOIN t.client c JOIN c.user u " +
+            "WHERE t.issuedAt >= :start AND t.issuedAt < :end")
+    List<TicketReserveDto> findReservedBetween(@Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end);
 
     // Add to PUBLIC VERIFICATION
     Optional<Ticket> findByNumber(String number);
@@ -119,21 +212,19 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
             @Param("agencyId") Long agencyId,
             @Param("cityId") Long cityId);
 
-    // Add this to TicketRepository.java
-    @Query("SELECT t FROM Ticket t " +
-            "JOIN FETCH t.agency a " +
-            "JOIN FETCH a.city " +
-            "JOIN FETCH t.client c " +
-            "JOIN FETCH c.user " +
-            "WHERE DATE(t.issuedAt) = CURRENT_DATE " +
-            "ORDER BY t.issuedAt DESC")
-    List<Ticket> findAllTicketsReservedToday();
+    /**
+     * Reservations issued in [from, to), newest first (range on issued_at, index friendly)
+     * Réservations émises sur une période, de la plus récente à la plus ancienne
+     */
+    @Query(RESERVATION_DTO + "WHERE t.issuedAt >= :from AND t.issuedAt < :to ORDER BY t.issuedAt DESC, t.id DESC")
+    List<TicketReservationDTO> findReservationsIssuedBetween(@Param("from") LocalDateTime from,
+                                                             @Param("to") LocalDateTime to);
     /**
      * Finds all pending tickets for an agency
      * Trouver tous les tickets en attente pour une agence
      * العثور على جميع التذاكر المعلقة لوكالة
      */
-    @Query("SELECT t FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'EN_ATTENTE' ORDER BY CAST(SUBSTRING(t.number, 6) AS int) ASC")
+    @Query("SELECT t FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'EN_ATTENTE' ORDER BY t.sequenceNumber ASC")
     List<Ticket> findAllPendingByAgencyId(@Param("agencyId") Long agencyId);
 
     // Add to TicketRepository.java
@@ -141,40 +232,75 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     @Query("DELETE FROM Ticket")
     void deleteAllTickets();
 
+    /**
+     * Next batch of ticket ids issued before the cutoff, in id order (daily rollover)
+     * Prochain lot d'identifiants de tickets émis avant la date limite
+     */
+    @Query("SELECT t.id FROM Ticket t WHERE t.issuedAt < :cutoff AND t.id > :afterId ORDER BY t.id ASC")
+    List<Long> findIdsIssuedBefore(@Param("cutoff") LocalDateTime cutoff,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Ticket t WHERE t.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+
     // Add to TicketRepository.java
     @Query("SELECT t FROM Ticket t WHERE t.agency.id = :agencyId ORDER BY t.issuedAt DESC")
     List<Ticket> findAllByAgencyId(@Param("agencyId") Long agencyId);
 
-    // Add to TicketRepository.java
-
-    // Count EN_ATTENTE tickets for agency today
-    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'EN_ATTENTE' AND DATE(t.issuedAt) = CURRENT_DATE")
-    int countEnAttenteTodayByAgency(@Param("agencyId") Long agencyId);
+    /**
+     * Ticket counts per status for an agency over an issuedAt range, as (status, count) rows
+     * Nombre de tickets par statut pour une agence sur une plage de dates d'émission
+     */
+    @Query("SELECT t.status, COUNT(t) FROM Ticket t WHERE t.agency.id = :agencyId AND t.issuedAt >= :from AND t.issuedAt < :to GROUP BY t.status")
+    List<Object[]> countByAgencyAndStatusIssuedBetween(@Param("agencyId") Long agencyId,
+                                                       @Param("from") LocalDateTime from,
+                                                       @Param("to") LocalDateTime to);
 
-    // Count EN_COURS tickets for agency today
-    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'EN_COURS' AND DATE(t.issuedAt) = CURRENT_DATE")
-    int countEnCoursTodayByAgency(@Param("agencyId") Long agencyId);
 
-    // Count ANNULE tickets for agency today
-    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'ANNULE' AND DATE(t.issuedAt) = CURRENT_DATE")
-    int countAnnuleTodayByAgency(@Param("agencyId") Long agencyId);
 
-    // Count TERMINE tickets for agency today
-    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'TERMINE' AND DATE(t.issuedAt) = CURRENT_DATE")
-    int countTermineTodayByAgency(@Param("agencyId") Long agencyId);
+        // For endpoint 1
+        List<Ticket> findByAgencyId(Long agencyId);
 
+    String AGENCY_ROW = "SELECT new com.nouba.app.dto.TicketAgencyRow(t.id, t.number, s.name, t.issuedAt, t.sequenceNumber, t.status) " +
+            "FROM Ticket t LEFT JOIN t.agencyService s ";
 
+    /**
+     * All tickets of an agency with their service name in a single query (agency ticket list)
+     * Tous les tickets d'une agence avec le nom du service, en une seule requête
+     */
+    @Query(AGENCY_ROW + "WHERE t.agency.id = :agencyId ORDER BY t.id")
+    List<TicketAgencyRow> findAgencyRowsByAgencyId(@Param("agencyId") Long agencyId);
 
-        // For endpoint 1
-        List<Ticket> findByAgencyId(Long agencyId);
+    /**
+     * Sequence numbers of an agency's waiting tickets in queue order (index only)
+     * Numéros de séquence des tickets en attente d'une agence
+     */
+    @Query("SELECT t.sequenceNumber FROM Ticket t WHERE t.agency.id = :agencyId AND t.status = 'EN_ATTENTE' ORDER BY t.sequenceNumber ASC")
+    List<Integer> findPendingSequencesByAgencyId(@Param("agencyId") Long agencyId);
 
         // For endpoints 2, 4, 5
         @Query("SELECT t FROM Ticket t WHERE t.id = :ticketId AND t.agency.id = :agencyId")
         Optional<Ticket> findByIdAndAgencyId(@Param("ticketId") Long ticketId,
                                              @Param("agencyId") Long agencyId);
 
-    @Query("SELECT t FROM Ticket t WHERE t.agency.id = :agencyId AND (t.status = 'ANNULE' OR t.status = 'TERMINE') ORDER BY t.issuedAt DESC")
-    List<Ticket> findCompletedAndCancelledByAgencyId(@Param("agencyId") Long agencyId);
+    @Query(TICKET_DTO + "WHERE a.id = :agencyId AND (t.status = 'ANNULE' OR t.status = 'TERMINE') ORDER BY t.issuedAt DESC, t.id DESC")
+    List<TicketDTO> findHistoryByAgencyId(@Param("agencyId") Long agencyId);
+
+    /**
+     * Waiting tickets of an agency in queue order, as DTOs
+     * Tickets en attente d'une agence dans l'ordre de la file
+     */
+    @Query(TICKET_DTO + "WHERE a.id = :agencyId AND t.status = 'EN_ATTENTE' ORDER BY t.sequenceNumber ASC")
+    List<TicketDTO> findPendingDtosByAgencyId(@Param("agencyId") Long agencyId);
+
+    /**
+     * Tickets in a status across all agencies, newest first (admin dashboard)
+     * Tickets d'un statut, toutes agences
+     */
+    @Query(EN_ATTENTE_DTO + "WHERE t.status = :status ORDER BY t.issuedAt DESC, t.id DESC")
+    List<TicketEnAttenteDto> findEnAttenteDtosByStatus(@Param("status") Ticket.TicketStatus status);
 
     /**
      * Find first ticket by agency ID and status, ordered by issuedAt descending
@@ -206,5 +332,78 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     @Query("DELETE FROM Ticket t WHERE t.client.id = :clientId")
     void deleteAllByClientId(@Param("clientId") Long clientId);
 
+
+    // ---------- Keyset pages (issuedAt, id) newest first, and streamed exports ----------
+
+    /**
+     * Page of an agency's tickets older than the cursor
+     * Page des tickets d'une agence plus anciens que le curseur
+     */
+    @Query(AGENCY_ROW + "WHERE t.agency.id = :agencyId " +
+            "AND (t.issuedAt < :issuedAt OR (t.issuedAt = :issuedAt AND t.id < :id)) " +
+            "ORDER BY t.issuedAt DESC, t.id DESC")
+    List<TicketAgencyRow> findPageByAgencyId(@Param("agencyId") Long agencyId,
+                                             @Param("issuedAt") LocalDateTime issuedAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(AGENCY_ROW + "WHERE t.agency.id = :agencyId ORDER BY t.issuedAt DESC, t.id DESC")
+    Stream<TicketAgencyRow> streamByAgencyId(@Param("agencyId") Long agencyId);
+
+    /**
+     * Page of an agency's completed and cancelled tickets older than the cursor
+     * Page de l'historique (terminés et annulés) d'une agence
+     */
+    @Query(TICKET_DTO + "WHERE a.id = :agencyId AND (t.status = 'ANNULE' OR t.status = 'TERMINE') " +
+            "AND (t.issuedAt < :issuedAt OR (t.issuedAt = :issuedAt AND t.id < :id)) " +
+            "ORDER BY t.issuedAt DESC, t.id DESC")
+    List<TicketDTO> findHistoryPageByAgencyId(@Param("agencyId") Long agencyId,
+                                              @Param("issuedAt") LocalDateTime issuedAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(TICKET_DTO + "WHERE a.id = :agencyId AND (t.status = 'ANNULE' OR t.status = 'TERMINE') " +
+            "ORDER BY t.issuedAt DESC, t.id DESC")
+    Stream<TicketDTO> streamHistoryByAgencyId(@Param("agencyId") Long agencyId);
+
+    /**
+     * Page of the tickets issued in [from, to) older than the cursor, all agencies (admin)
+     * Page des tickets émis sur une période, toutes agences
+     */
+    @Query(RESERVATION_DTO + "WHERE t.issuedAt >= :from AND t.issuedAt < :to " +
+            "AND (t.issuedAt < :issuedAt OR (t.issuedAt = :issuedAt AND t.id < :id)) " +
+            "ORDER BY t.issuedAt DESC, t.id DESC")
+    List<TicketReservationDTO> findIssuedBetweenPage(@Param("from") LocalDateTime from,
+                                                     @Param("to") LocalDateTime to,
+                                                     @Param("issuedAt") LocalDateTime issuedAt,
+                                                     @Param("id") Long id,
+                                                     Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(RESERVATION_DTO + "WHERE t.issuedAt >= :from AND t.issuedAt < :to ORDER BY t.issuedAt DESC, t.id DESC")
+    Stream<TicketReservationDTO> streamIssuedBetween(@Param("from") LocalDateTime from,
+                                                     @Param("to") LocalDateTime to);
+
+    /**
+     * Page of the tickets in a status older than the cursor, all agencies (admin dashboard)
+     * Page des tickets d'un statut, toutes agences
+     */
+    @Query(EN_ATTENTE_DTO + "WHERE t.status = :status AND (t.issuedAt < :issuedAt OR (t.issuedAt = :issuedAt AND t.id < :id)) " +
+            "ORDER BY t.issuedAt DESC, t.id DESC")
+    List<TicketEnAttenteDto> findPageByStatus(@Param("status") Ticket.TicketStatus status,
+                                              @Param("issuedAt") LocalDateTime issuedAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(EN_ATTENTE_DTO + "WHERE t.status = :status ORDER BY t.issuedAt DESC, t.id DESC")
+    Stream<TicketEnAttenteDto> streamByStatus(@Param("status") Ticket.TicketStatus status);
+
 }
 
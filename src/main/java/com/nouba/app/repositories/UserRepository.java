@@ -1,5 +1,7 @@
 package com.nouba.app.repositories;
 
+import com.nouba.app.dto.ClientConnectedDto;
+import com.nouba.app.dto.UserAccountRow;
 import com.nouba.app.entities.Role;
 import com.nouba.app.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -18,6 +20,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByLastLoginBetween(LocalDateTime start, LocalDateTime end);
     List<User> findByRole(Role role);
 
+    @Query("SELECT new com.nouba.app.dto.UserAccountRow(u.name, u.email, u.enabled) FROM User u WHERE u.id = :id")
+    Optional<UserAccountRow> findAccountRow(@Param("id") Long id);
+
+    @Query("SELECT new com.nouba.app.dto.ClientConnectedDto(u.id, u.name, u.email, u.lastLogin) FROM User u " +
+            "WHERE u.role = :role AND u.lastLogin >= :start AND u.lastLogin < :end")
+    List<ClientConnectedDto> findConnectedBetween(@Param("role") Role role,
+                                                  @Param("start") LocalDateTime start,
+                                                  @Param("end") LocalDateTime end);
+
     @Query("SELECT u FROM User u WHERE u.enabled = true AND u.activatedAt BETWEEN :startDate AND :endDate")
     List<User> findActiveUsersThisWeek(
             @Param("startDate") LocalDateTime startDate,
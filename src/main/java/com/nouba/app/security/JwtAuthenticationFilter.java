@@ -1,6 +1,13 @@
 package com.nouba.app.security;
 
+import com.nouba.app.dto.UserAccountRow;
+import com.nouba.app.entities.Agency;
+import com.nouba.app.entities.Client;
+import com.nouba.app.entities.Role;
+import com.nouba.app.entities.User;
+import com.nouba.app.repositories.UserRepository;
 import com.nouba.app.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,11 +16,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -24,6 +33,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenAuthenticationCache tokenCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -38,12 +53,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = authHeader.substring(7);
 
-        if (jwtUtils.validateToken(token)) {
-            String username = jwtUtils.extractUsername(token);
-
-            // Load user details from DB (includes roles)
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        UserDetails userDetails = tokenCache.get(token);
+        if (userDetails == null) {
+            userDetails = authenticate(token);
+        }
 
+        if (userDetails != null) {
             // Create Authentication object with authorities
             UsernamePasswordAuthenticationToken authentication =
                     new UsernamePasswordAuthenticationToken(
@@ -58,5 +73,81 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
 
+    /**
+     * Verifies a token that is not cached yet (parsed once) and caches the principal built from its claims.
+     * Returns null if the token is invalid or its user no longer exists.
+     */
+    private User authenticate(String token) {
+        Optional<Claims> parsed = jwtUtils.parseToken(token);
+        if (parsed.isEmpty()) {
+            return null;
+        }
+        Claims claims = parsed.get();
+
+        User user = principalFromClaims(claims);
+        if (user == null) {
+            // Token without the expected claims: load the user from the database (not cached,
+            // the managed entity must not outlive its session)
+            try {
+                return (User) userDetailsService.loadUserByUsername(claims.getSubject());
+            } catch (UsernameNotFoundException e) {
+                return null;
+            }
+        }
+        // Name, email and enabled come from the database, not the token: an agency renamed or an
+        // account disabled after the token was issued shows as such from the next cache miss
+        Optional<UserAccountRow> account = userRepository.findAccountRow(user.getId());
+        if (account.isEmpty()) {
+            return null;
+        }
+        user.setName(account.get().name());
+        user.setEmail(account.get().email());
+        user.setEnabled(account.get().enabled());
+
+        tokenCache.put(token, user, claims.getExpiration());
+        return user;
+    }
+
+    /**
+     * Builds the principal from the claims written by {@link JwtUtils#generateToken}.
+     * The client/agency are id-only references, enough for ownership checks and repository lookups.
+     * Name, email and enabled are filled in by {@link #authenticate} from the user's row.
+     */
+    private User principalFromClaims(Claims claims) {
+        Long id = claims.get("id", Long.class);
+        String roleName = claims.get("role", String.class);
+        if (id == null || roleName == null) {
+            return null;
+        }
+        Role role;
+        try {
+            role = Role.valueOf(roleName);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Long clientId = claims.get("clientId", Long.class);
+        Long agencyId = claims.get("agencyId", Long.class);
+        if ((role == Role.CLIENT && clientId == null) || (role == Role.AGENCY && agencyId == null)) {
+            return null;
+        }
+
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+
+        if (clientId != null) {
+            Client client = new Client();
+            client.setId(clientId);
+            client.setUser(user);
+            user.setClient(client);
+        }
+        if (agencyId != null) {
+            Agency agency = new Agency();
+            agency.setId(agencyId);
+            agency.setUser(user);
+            user.setAgency(agency);
+        }
+        return user;
+    }
+}
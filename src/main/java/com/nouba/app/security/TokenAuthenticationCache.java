@@ -0,0 +1,100 @@
+package com.nouba.app.security;
+
+import com.nouba.app.entities.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of already verified tokens and the principal built from them.
+ * Cache des tokens déjà vérifiés et de l'utilisateur construit à partir de leurs claims.
+ *
+ * A hit skips both the signature check and the user lookup. Entries live for
+ * {@code nouba.security.token-cache.ttl-seconds} at most (never past the token expiry),
+ * the least recently used entry is dropped once {@code max-size} is reached, and
+ * {@link #invalidateUserAfterCommit(Long)} drops every token of a user that was updated or deleted.
+ */
+@Component
+public class TokenAuthenticationCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public TokenAuthenticationCache(@Value("${nouba.security.token-cache.max-size:10000}") int maxSize,
+                                    @Value("${nouba.security.token-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TokenAuthenticationCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Principal of a previously verified token, or null if unknown or expired.
+     */
+    public synchronized User get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(token);
+            return null;
+        }
+        return entry.user;
+    }
+
+    public synchronized void put(String token, User user, Date tokenExpiration) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        if (tokenExpiration != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiration.getTime());
+        }
+        entries.put(token, new Entry(user, expiresAt));
+    }
+
+    /**
+     * Forgets every cached token of a user (updated, disabled or deleted account).
+     */
+    public synchronized void invalidateUser(Long userId) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (userId.equals(iterator.next().user.getId())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Same, once the current transaction commits (right away without one): a request arriving
+     * before the commit would otherwise cache the user's old row again.
+     */
+    public void invalidateUserAfterCommit(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateUser(userId);
+                }
+            });
+        } else {
+            invalidateUser(userId);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private record Entry(User user, long expiresAt) {
+    }
+}
@@ -4,6 +4,7 @@ import com.nouba.app.dto.*;
 import com.nouba.app.entities.*;
 import com.nouba.app.exceptions.auth.UserAlreadyExistsException;
 import com.nouba.app.repositories.*;
+import com.nouba.app.security.TokenAuthenticationCache;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -22,6 +23,10 @@ public class AgencyAdminService {
     private final PasswordEncoder passwordEncoder;
     private final FileStorageService fileStorageService;
     private final EmailService emailService;
+    private final TokenAuthenticationCache tokenCache;
+    private final CatalogueCache catalogueCache;
+    private final ImageVariantService imageVariantService;
+    private final UploadGarbageCollector uploadGarbageCollector;
 
     @Transactional
     public AgencyResponseDTO createAgency(AgencyCreateDTO dto) throws IOException {
@@ -51,6 +56,8 @@ public class AgencyAdminService {
         agency.setCity(city);
         agency.setUser(user);
         agency = agencyRepository.save(agency);
+        catalogueCache.invalidateAfterCommit();
+        imageVariantService.generateAfterCommit(agency.getId(), photoUrl);
 
         emailService.sendAgencyCreationEmail(
                 dto.getEmail(),
@@ -76,10 +83,10 @@ public class AgencyAdminService {
         }
 
         if (updateDTO.getPhoto() != null && !updateDTO.getPhoto().isEmpty()) {
-            if (agency.getPhotoUrl() != null) {
-                fileStorageService.deleteFile(agency.getPhotoUrl());
-            }
+            // The previous photo may be shared with another agency: the collector checks before deleting
+            uploadGarbageCollector.releaseAfterCommit(agency.getPhotoUrl());
             agency.setPhotoUrl(fileStorageService.storeFile(updateDTO.getPhoto()));
+            imageVariantService.generateAfterCommit(agency.getId(), agency.getPhotoUrl());
         }
 
         updateIfNotNull(updateDTO.getName(), agency::setName);
@@ -91,19 +98,24 @@ public class AgencyAdminService {
        updateIfNotNull(updateDTO.getName(), user::setName);
         userRepository.save(user);
 
-        return convertToDTO(agencyRepository.save(agency));
+        agency = agencyRepository.save(agency);
+        catalogueCache.invalidateAfterCommit();
+        // Cached tokens carry the agency user's old name and email
+        tokenCache.invalidateUserAfterCommit(user.getId());
+        return convertToDTO(agency);
     }
 
     @Transactional
     public void deleteAgency(Long id) {
         Agency agency = agencyRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Agency not found"));
-        if (agency.getPhotoUrl() != null) {
-           fileStorageService.deleteFile(agency.getPhotoUrl());
-        }
-
         //  userRepository.delete(agency.getUser());
         agencyRepository.delete(agency);
+        catalogueCache.invalidateAfterCommit();
+        uploadGarbageCollector.releaseAfterCommit(agency.getPhotoUrl(), agency.getPhotoThumbnailUrl(), agency.getPhotoMediumUrl());
+
+        // The agency user is removed with it (cascade), drop its cached tokens
+        tokenCache.invalidateUserAfterCommit(agency.getUser().getId());
     }
 
     private <T> void updateIfNotNull(T newValue, Consumer<T> setter) {
@@ -117,6 +129,8 @@ public class AgencyAdminService {
                 .id(agency.getId())
                 .name(agency.getName())
                 .photoUrl(agency.getPhotoUrl())
+                .photoThumbnailUrl(agency.getPhotoThumbnailUrl())
+                .photoMediumUrl(agency.getPhotoMediumUrl())
                 .address(agency.getAddress())
                 .phone(agency.getPhone())
                 .city(CityBasicDTO.builder().name(agency.getCity().getName()).build())
@@ -3,13 +3,14 @@ package com.nouba.app.services;
 import com.nouba.app.dto.*;
 import com.nouba.app.entities.*;
 import com.nouba.app.repositories.*;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import com.nouba.app.services.queue.DailyTicketCounters;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import org.springframework.security.access.AccessDeniedException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -18,23 +19,33 @@ public class AgencyService {
     private final TicketRepository ticketRepository;
     private final ClientRepository clientRepository;
     private final UserRepository userRepository;
+    private final AgencyQueueManager queueManager;
+    private final DailyTicketCounters dailyCounters;
+    private final CatalogueCache catalogueCache;
+
+    // The public catalogue is served from CatalogueCache, the database is read only after a change
 
     public List<AgencyResponseDTO> getAllAgencies() {
-        return agencyRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return catalogueCache.snapshot().agencies();
     }
 
     public List<AgencyResponseDTO> getAgenciesByCity(Long cityId) {
-        return agencyRepository.findByCityId(cityId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return catalogueCache.snapshot().agenciesByCity().getOrDefault(cityId, List.of());
     }
 
     public AgencyResponseDTO getAgencyById(Long id) {
-        return agencyRepository.findById(id)
-                .map(this::convertToDTO)
-                .orElseThrow(() -> new RuntimeException("Agency not found"));
+        AgencyResponseDTO agency = catalogueCache.snapshot().agenciesById().get(id);
+        if (agency == null) {
+            throw new RuntimeException("Agency not found");
+        }
+        return agency;
+    }
+
+    /**
+     * Catalogue version, used as ETag by the catalogue endpoints
+     */
+    public String getCatalogueEtag() {
+        return catalogueCache.snapshot().etag();
     }
 
     /**public int getQueueCount(Long agencyId) {
@@ -47,18 +58,6 @@ public class AgencyService {
                 .orElse(null);
     }*/
 
-    private AgencyResponseDTO convertToDTO(Agency agency) {
-        return AgencyResponseDTO.builder()
-                .id(agency.getId())
-                .name(agency.getName())
-                .photoUrl(agency.getPhotoUrl())
-                .address(agency.getAddress())
-                .phone(agency.getPhone())
-                .city(CityBasicDTO.builder().name(agency.getCity().getName()).build())
-                .email(agency.getUser().getEmail())
-                .build();
-    }
-
     public AgencyStatsDTO getAgencyStats(Long agencyId, User currentUser) {
         // Verify if the current user has access to this agency's stats
         if (!hasAccessToAgency(currentUser, agencyId)) {
@@ -68,9 +67,10 @@ public class AgencyService {
         Agency agency = agencyRepository.findById(agencyId)
                 .orElseThrow(() -> new RuntimeException("Agency not found"));
 
-        int pending = ticketRepository.countByAgencyIdAndStatus(agencyId, Ticket.TicketStatus.EN_ATTENTE);
-        int completed = ticketRepository.countByAgencyIdAndStatus(agencyId, Ticket.TicketStatus.TERMINE);
-        int inProgress = ticketRepository.countByAgencyIdAndStatus(agencyId, Ticket.TicketStatus.EN_COURS);
+        // Live counts come from the in-memory queue, completed ones from today's counters
+        int pending = queueManager.pendingCount(agencyId);
+        int inProgress = queueManager.servingCount(agencyId);
+        int completed = dailyCounters.today(agencyId, Ticket.TicketStatus.TERMINE);
 
         // Count clients associated with this agency through tickets
         int clientCount = clientRepository.countDistinctByTicketsAgencyId(agencyId);
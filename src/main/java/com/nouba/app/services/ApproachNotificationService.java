@@ -0,0 +1,144 @@
+package com.nouba.app.services;
+
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.repositories.TicketRepository;
+import com.nouba.app.services.queue.AgencyQueue;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import com.nouba.app.services.queue.QueueAdvancedEvent;
+import com.nouba.app.services.queue.QueueEntry;
+import com.nouba.app.services.queue.WaitTimeEstimator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the "your turn is approaching" email when a ticket reaches the head of the line.
+ * Envoie l'email "votre tour approche" quand un ticket arrive en tête de file.
+ *
+ * Runs on {@link QueueAdvancedEvent}s, i.e. only when an agency issues, serves, completes or
+ * cancels a ticket, and only inspects the first {@code threshold + 1} waiting tickets of
+ * that agency in memory. Each ticket is flagged in the database with a conditional update
+ * before its email is queued, so it is notified exactly once even with concurrent events.
+ *
+ * The events are published once the serving transaction committed, on the thread that served
+ * the ticket; the check and the outbox inserts are handed to a few worker threads
+ * ({@code nouba.queue.approach-workers}) so the desk's request never waits for them. Events of
+ * an agency already waiting for a worker are coalesced into that one check.
+ */
+@Service
+public class ApproachNotificationService {
+    private static final Logger logger = LoggerFactory.getLogger(ApproachNotificationService.class);
+
+    private final AgencyQueueManager queueManager;
+    private final TicketRepository ticketRepository;
+    private final EmailService emailService;
+    private final NotificationOutboxService notificationOutbox;
+    private final WaitTimeEstimator waitTimeEstimator;
+    private final TransactionTemplate requiresNew;
+    private final int threshold;
+    private final Set<Long> scheduledAgencies = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers;
+
+    public ApproachNotificationService(AgencyQueueManager queueManager,
+                                       TicketRepository ticketRepository,
+                                       EmailService emailService,
+                                       NotificationOutboxService notificationOutbox,
+                                       WaitTimeEstimator waitTimeEstimator,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${nouba.queue.approach-threshold:5}") int threshold,
+                                       @Value("${nouba.queue.approach-workers:2}") int workers) {
+        this.queueManager = queueManager;
+        this.ticketRepository = ticketRepository;
+        this.emailService = emailService;
+        this.notificationOutbox = notificationOutbox;
+        this.waitTimeEstimator = waitTimeEstimator;
+        // Runs on a worker thread after the serving transaction committed: each ticket in its own transaction
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.threshold = threshold;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "approach-notifier-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    @EventListener
+    public void onQueueAdvanced(QueueAdvancedEvent event) {
+        Long agencyId = event.agencyId();
+        if (scheduledAgencies.add(agencyId)) {
+            try {
+                workers.execute(() -> {
+                    // Removed first: an event arriving during the check schedules another one
+                    scheduledAgencies.remove(agencyId);
+                    notifyApproachingTickets(agencyId);
+                });
+            } catch (RejectedExecutionException e) {
+                scheduledAgencies.remove(agencyId); // shutting down
+            }
+        }
+    }
+
+    private void notifyApproachingTickets(Long agencyId) {
+        AgencyQueue queue = queueManager.queue(agencyId);
+        List<QueueEntry> candidates = queue.approachCandidates(threshold);
+        for (QueueEntry entry : candidates) {
+            try {
+                int peopleAhead = queue.pendingBefore(entry.sequence());
+                requiresNew.executeWithoutResult(status -> notifyApproaching(entry.ticketId(), peopleAhead));
+                queue.markApproachNotified(entry.ticketId());
+            } catch (Exception e) {
+                // Left unflagged: retried on the next event for this agency
+                logger.error("Error sending approaching notification / Erreur lors de l'envoi de la notification d'approche / خطأ في إرسال إشعار الاقتراب", e);
+            }
+        }
+    }
+
+    private void notifyApproaching(Long ticketId, int peopleAhead) {
+        if (ticketRepository.markApproachNotified(ticketId) == 0) {
+            return; // already notified by another node/event, or no longer waiting
+        }
+        Ticket ticket = ticketRepository.findById(ticketId).orElseThrow();
+
+        Map<String, String> values = new HashMap<>();
+        values.put("clientName", ticket.getClient().getUser().getName());
+        values.put("ticketNumber", ticket.getNumber());
+        values.put("agencyName", ticket.getAgency().getName());
+        values.put("peopleAhead", String.valueOf(peopleAhead));
+        values.put("estimatedWait", String.valueOf(waitTimeEstimator.estimateWaitMinutes(ticket.getAgency().getId(), peopleAhead)));
+        values.put("status", ticket.getStatus().name());
+
+        try {
+            String content = emailService.loadEmailTemplate("templates/emails/ticket-approaching.html", values);
+            notificationOutbox.enqueue(
+                    ticket.getClient().getUser().getEmail(),
+                    "Votre tour approche (" + ticket.getAgency().getName() + ")",
+                    content
+            );
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not queue approaching notification for ticket " + ticketId, e);
+        }
+    }
+}
@@ -63,6 +63,9 @@ public class AuthService {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private CatalogueCache catalogueCache;
+
     // register admin
     // Dans AuthService.java
     @Transactional
@@ -165,6 +168,7 @@ public class AuthService {
         City city = cityRepository.findById(request.getCityId()).orElseThrow();
         agency.setCity(city);
         agencyRepository.save(agency);
+        catalogueCache.invalidateAfterCommit();
 
         String activationLink = "http://localhost:4200/auth/activate-account?token=" + user.getActivationToken();
 
@@ -0,0 +1,173 @@
+package com.nouba.app.services;
+
+import com.nouba.app.dto.AgencyBasicDTO;
+import com.nouba.app.dto.AgencyCatalogueRow;
+import com.nouba.app.dto.AgencyResponseDTO;
+import com.nouba.app.dto.CityBasicDTO;
+import com.nouba.app.dto.CityDTO;
+import com.nouba.app.repositories.AgencyRepository;
+import com.nouba.app.repositories.CityRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-through cache of the public catalogue (cities and their agencies).
+ * Cache du catalogue public (villes et agences), rechargé seulement quand il change.
+ *
+ * The catalogue is read at every start of the client apps but changes only when an agency is
+ * created, updated or deleted. It is kept as one immutable {@link Snapshot} built by two queries;
+ * {@link #invalidateAfterCommit()} bumps the version so the next read loads a new one. A load that
+ * overlaps an invalidation is served to its caller but not kept. The version is also the HTTP ETag
+ * of the catalogue endpoints, so an unchanged catalogue is answered 304 without building a body.
+ * Snapshots older than {@code nouba.catalogue.max-age-seconds} are reloaded anyway (changes made
+ * by another instance or straight in the database).
+ */
+@Component
+public class CatalogueCache {
+
+    private final CityRepository cityRepository;
+    private final AgencyRepository agencyRepository;
+    private final long maxAgeMillis;
+    // Versions restart at 1 with the application: the boot time keeps ETags of a previous run from matching
+    private final String etagPrefix = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong(1);
+    private volatile Snapshot current;
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public CatalogueCache(CityRepository cityRepository,
+                          AgencyRepository agencyRepository,
+                          @Value("${nouba.catalogue.max-age-seconds:600}") long maxAgeSeconds) {
+        this.cityRepository = cityRepository;
+        this.agencyRepository = agencyRepository;
+        this.maxAgeMillis = maxAgeSeconds * 1000;
+    }
+
+    /**
+     * Current catalogue, loaded from the database on the first read after a change.
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version() == version.get() && !isExpired(snapshot)) {
+            return snapshot;
+        }
+        return load();
+    }
+
+    /**
+     * Drops the catalogue once the current transaction commits (right away outside a transaction),
+     * so a read between the change and the commit cannot cache the old data again.
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    private boolean isExpired(Snapshot snapshot) {
+        return maxAgeMillis > 0 && System.currentTimeMillis() - snapshot.loadedAt() > maxAgeMillis;
+    }
+
+    // A lock rather than synchronized: the load runs queries, and a virtual thread blocked in or on a
+    // synchronized block stays pinned to its carrier (Java 21)
+    private Snapshot load() {
+        loadLock.lock();
+        try {
+            return loadSnapshot();
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private Snapshot loadSnapshot() {
+        // Another thread may have loaded it while this one waited
+        Snapshot snapshot = current;
+        long loading = version.get();
+        if (snapshot != null && snapshot.version() == loading && !isExpired(snapshot)) {
+            return snapshot;
+        }
+        if (snapshot != null && snapshot.version() == loading) {
+            version.compareAndSet(loading, loading + 1); // expired: new version, new ETag
+            loading = version.get();
+        }
+
+        Map<Long, CityDTO> cities = new LinkedHashMap<>();
+        cityRepository.findAll().forEach(city -> cities.put(city.getId(), new CityDTO(city)));
+
+        List<AgencyResponseDTO> agencies = new ArrayList<>();
+        Map<Long, AgencyResponseDTO> agenciesById = new HashMap<>();
+        Map<Long, List<AgencyResponseDTO>> agenciesByCity = new HashMap<>();
+        Map<Long, List<AgencyBasicDTO>> agencyNamesByCity = new HashMap<>();
+        for (AgencyCatalogueRow row : agencyRepository.findCatalogueRows()) {
+            AgencyResponseDTO agency = AgencyResponseDTO.builder()
+                    .id(row.id())
+                    .name(row.name())
+                    .photoUrl(row.photoUrl())
+                    .photoThumbnailUrl(row.photoThumbnailUrl())
+                    .photoMediumUrl(row.photoMediumUrl())
+                    .address(row.address())
+                    .phone(row.phone())
+                    .city(CityBasicDTO.builder().name(row.cityName()).build())
+                    .email(row.email())
+                    .build();
+            agencies.add(agency);
+            agenciesById.put(row.id(), agency);
+            if (row.cityId() != null) {
+                agenciesByCity.computeIfAbsent(row.cityId(), id -> new ArrayList<>()).add(agency);
+                agencyNamesByCity.computeIfAbsent(row.cityId(), id -> new ArrayList<>())
+                        .add(new AgencyBasicDTO(row.id(), row.name()));
+            }
+        }
+
+        snapshot = new Snapshot(loading, etagPrefix + "-" + loading, System.currentTimeMillis(),
+                List.copyOf(cities.values()), List.copyOf(agencies), Map.copyOf(agenciesById),
+                copyOfLists(agenciesByCity), copyOfLists(agencyNamesByCity));
+        if (version.get() == loading) {
+            current = snapshot; // not kept if the catalogue changed during the load
+        }
+        return snapshot;
+    }
+
+    private static <T> Map<Long, List<T>> copyOfLists(Map<Long, List<T>> lists) {
+        Map<Long, List<T>> copy = new HashMap<>();
+        lists.forEach((key, list) -> copy.put(key, List.copyOf(list)));
+        return Map.copyOf(copy);
+    }
+
+    /**
+     * One version of the catalogue. Immutable, shared by every request.
+     */
+    public record Snapshot(long version,
+                           String etag,
+                           long loadedAt,
+                           List<CityDTO> cities,
+                           List<AgencyResponseDTO> agencies,
+                           Map<Long, AgencyResponseDTO> agenciesById,
+                           Map<Long, List<AgencyResponseDTO>> agenciesByCity,
+                           Map<Long, List<AgencyBasicDTO>> agencyNamesByCity) {
+
+        public boolean hasCity(Long cityId) {
+            return cities.stream().anyMatch(city -> city.getId().equals(cityId));
+        }
+    }
+}
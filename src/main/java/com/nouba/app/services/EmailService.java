@@ -3,15 +3,11 @@ package com.nouba.app.services;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.apache.commons.lang3.text.StrSubstitutor;
 
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
@@ -19,6 +15,7 @@ import java.util.Map;
 @Service
 public class EmailService {
     private final JavaMailSender mailSender;
+    private final EmailTemplateEngine templateEngine;
 
 
 
@@ -52,17 +49,14 @@ public class EmailService {
         mailSender.send(message);
     }
     //end that
-    public EmailService(JavaMailSender mailSender) {
+    public EmailService(JavaMailSender mailSender, EmailTemplateEngine templateEngine) {
         this.mailSender = mailSender;
+        this.templateEngine = templateEngine;
     }
 
     public String loadEmailTemplate(String templatePath, Map<String, String> values) throws Exception {
-        // Charger le fichier HTML
-        String content = Files.readString(new ClassPathResource(templatePath).getFile().toPath(), StandardCharsets.UTF_8);
-
-        // Remplacer les variables dynamiques
-        StrSubstitutor substitutor = new StrSubstitutor(values);
-        return substitutor.replace(content);
+        // Templates are loaded and parsed once at startup, only the variables are filled in here
+        return templateEngine.render(templatePath, values);
     }
 
     public void sendEmail(String to, String subject, String content) throws MessagingException {
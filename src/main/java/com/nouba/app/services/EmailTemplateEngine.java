@@ -0,0 +1,133 @@
+package com.nouba.app.services;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the HTML email templates once and renders them without re-reading or re-parsing.
+ * Charge les modèles d'email une seule fois et les rend sans relecture ni analyse.
+ *
+ * Every file under {@code templates/emails} is read through its input stream (works from
+ * the packaged jar, unlike {@code Resource.getFile()}) and split into literal and
+ * {@code ${name}} segments. Rendering only appends segments to a per-thread buffer.
+ * Placeholders without a value are left as-is and {@code $${name}} renders as a literal
+ * {@code ${name}}, like the StrSubstitutor it replaces.
+ */
+@Component
+public class EmailTemplateEngine {
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateEngine.class);
+    private static final String TEMPLATE_LOCATION = "classpath*:templates/emails/*.html";
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+
+    @PostConstruct
+    void loadTemplates() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(TEMPLATE_LOCATION);
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                templates.put(resource.getFilename(), CompiledTemplate.parse(source));
+            }
+        }
+        logger.info("Loaded {} email templates", templates.size());
+    }
+
+    /**
+     * Renders a template. The path may be given with any prefix
+     * ("templates/emails/x.html", "templates.emails/x.html"), only the file name is used.
+     */
+    public String render(String templatePath, Map<String, String> values) {
+        CompiledTemplate template = templates.get(fileName(templatePath));
+        if (template == null) {
+            throw new IllegalArgumentException("Email template not found: " + templatePath);
+        }
+        StringBuilder out = buffers.get();
+        out.setLength(0);
+        template.renderTo(out, values);
+        String result = out.toString();
+        if (out.capacity() > MAX_POOLED_CAPACITY) {
+            buffers.remove(); // don't keep an oversized buffer around
+        }
+        return result;
+    }
+
+    public boolean hasTemplate(String templatePath) {
+        return templates.containsKey(fileName(templatePath));
+    }
+
+    private static String fileName(String templatePath) {
+        return templatePath.substring(templatePath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Template split into alternating segments: even entries are literals, odd entries are
+     * variable names (the literal before a variable may be empty).
+     */
+    static final class CompiledTemplate {
+        private final String[] literals;
+        private final String[] variables;
+
+        private CompiledTemplate(String[] literals, String[] variables) {
+            this.literals = literals;
+            this.variables = variables;
+        }
+
+        static CompiledTemplate parse(String source) {
+            List<String> literals = new ArrayList<>();
+            List<String> variables = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            int i = 0;
+            int length = source.length();
+            while (i < length) {
+                char c = source.charAt(i);
+                if (c == '$' && i + 2 < length && source.charAt(i + 1) == '$' && source.charAt(i + 2) == '{') {
+                    // Escaped placeholder: $${x} -> ${x}
+                    literal.append("${");
+                    i += 3;
+                    continue;
+                }
+                if (c == '$' && i + 1 < length && source.charAt(i + 1) == '{') {
+                    int end = source.indexOf('}', i + 2);
+                    if (end > i + 2) {
+                        literals.add(literal.toString());
+                        variables.add(source.substring(i + 2, end));
+                        literal.setLength(0);
+                        i = end + 1;
+                        continue;
+                    }
+                }
+                literal.append(c);
+                i++;
+            }
+            literals.add(literal.toString());
+            return new CompiledTemplate(literals.toArray(new String[0]), variables.toArray(new String[0]));
+        }
+
+        void renderTo(StringBuilder out, Map<String, String> values) {
+            for (int i = 0; i < variables.length; i++) {
+                out.append(literals[i]);
+                String value = values.get(variables[i]);
+                if (value != null) {
+                    out.append(value);
+                } else {
+                    out.append("${").append(variables[i]).append('}');
+                }
+            }
+            out.append(literals[variables.length]);
+        }
+    }
+}
@@ -1,51 +1,151 @@
 package com.nouba.app.services;
 
+import com.nouba.app.services.storage.StorageBackend;
+import com.nouba.app.services.storage.StorageBackend.ReadUrl;
+import com.nouba.app.services.storage.StorageBackend.StoredObject;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * AgencyService for handling file storage operations
+ *
+ * Uploads are content-addressed: a file is stored once under the SHA-256 of its bytes,
+ * {@code objects/ab/cd/abcd<...>.jpg} (two levels of 256 directories keep each directory small),
+ * so the same photo uploaded twice takes the space of one. Files are only deleted by
+ * {@link UploadGarbageCollector}, once nothing refers to them any more. Where the bytes live
+ * (local directory or S3 bucket) is up to the {@link StorageBackend}.
  */
 @Service
+@RequiredArgsConstructor
 public class FileStorageService {
-    private final String uploadDir = "uploads/";
+    static final String OBJECTS_DIR = "objects/";
+
+    private final StorageBackend storageBackend;
 
     /**
-     * Stores a file in the upload directory
+     * Stores an uploaded file, hashed while it is copied to a temporary file (never held in memory)
      * @param file The file to store
-     * @return The generated filename
+     * @return The generated filename (the same for identical content)
      * @throws IOException if file operations fail
      */
     public String storeFile(MultipartFile file) throws IOException {
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        Path temporary = storageBackend.createTemporaryFile();
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, temporary, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String fileName = OBJECTS_DIR + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/"
+                    + hash + extension(file.getOriginalFilename());
+            // Already stored: fresh modification time so the garbage collector's grace period starts again.
+            // Otherwise stored; same content if another upload wins the race, so replacing it is harmless
+            if (!storageBackend.touch(fileName)) {
+                storageBackend.store(fileName, temporary, contentType(fileName));
+            }
+            return fileName;
+        } finally {
+            Files.deleteIfExists(temporary);
         }
+    }
+
+    /**
+     * Stores generated content (e.g. an image variant) under the given name; a reader never
+     * sees it half written
+     * @param fileName Name relative to the upload directory, may contain sub-directories
+     * @param content The bytes to store
+     * @throws IOException if file operations fail
+     */
+    public void storeFile(String fileName, byte[] content) throws IOException {
+        storageBackend.store(fileName, content, contentType(fileName));
+    }
+
+    /**
+     * Path of a stored file on this node's disk, or null if the name is invalid or the
+     * files are not kept locally
+     * @param fileName Name relative to the upload directory
+     */
+    public Path locate(String fileName) {
+        return storageBackend.localFile(fileName);
+    }
+
+    /**
+     * URL the client should be redirected to for this file, when it is not served by the application
+     */
+    public Optional<ReadUrl> readUrl(String fileName) {
+        return storageBackend.readUrl(fileName);
+    }
+
+    /**
+     * Opens a stored file for reading
+     * @param fileName The name returned by storeFile
+     * @throws IOException if the file does not exist or cannot be read
+     */
+    public InputStream openFile(String fileName) throws IOException {
+        return storageBackend.open(fileName);
+    }
 
-        String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Modification time of a stored file in milliseconds, -1 if it does not exist
+     */
+    public long lastModified(String fileName) throws IOException {
+        return storageBackend.lastModified(fileName);
+    }
 
-        return fileName;
+    /**
+     * Every stored file (name, size, modification time); the stream must be closed
+     */
+    public Stream<StoredObject> listFiles() throws IOException {
+        return storageBackend.list();
     }
 
     /**
-     * Deletes a file from the upload directory
+     * Deletes a stored file
      * @param fileName The name of the file to delete
      */
     public void deleteFile(String fileName) {
-        Path filePath = Paths.get(uploadDir).resolve(fileName);
         try {
-            Files.deleteIfExists(filePath);
+            storageBackend.delete(fileName);
         } catch (IOException e) {
             throw new RuntimeException("Could not delete file: " + fileName, e);
         }
     }
+
+    private static String contentType(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    // ".jpg" from "Agence CIH.JPG"; letters and digits only so the name stays a safe path
+    private static String extension(String originalFilename) {
+        if (originalFilename == null || originalFilename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.') + 1)
+                .toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+        return extension.isEmpty() || extension.length() > 10 ? "" : "." + extension;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,226 @@
+package com.nouba.app.services;
+
+import com.nouba.app.repositories.AgencyRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resized copies of the agency photos.
+ * Génère les vignettes et la taille moyenne des photos d'agence, hors du thread de la requête.
+ *
+ * Agency lists used to download the original upload (up to 5MB). After an upload commits, a small
+ * pool of background threads decodes the photo once and writes two JPEG variants, a thumbnail and
+ * a medium size, to {@code uploads/variants/}. Each variant is named after the hash of its bytes,
+ * so it never changes under a given URL and is served with a one year immutable cache header
+ * ({@code WebConfig}). The variants are recorded on the agency only if it still has the same photo,
+ * and the ones they replace are released to {@link UploadGarbageCollector}.
+ * Photos uploaded before the pipeline existed are processed once at start-up.
+ */
+@Service
+public class ImageVariantService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+    static final String VARIANTS_DIR = "variants/";
+
+    private final FileStorageService fileStorageService;
+    private final AgencyRepository agencyRepository;
+    private final CatalogueCache catalogueCache;
+    private final UploadGarbageCollector uploadGarbageCollector;
+    private final TransactionTemplate transactionTemplate;
+    private final int thumbnailWidth;
+    private final int mediumWidth;
+    private final float jpegQuality;
+    private final ExecutorService workers;
+
+    public ImageVariantService(FileStorageService fileStorageService,
+                               AgencyRepository agencyRepository,
+                               CatalogueCache catalogueCache,
+                               UploadGarbageCollector uploadGarbageCollector,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${nouba.images.thumbnail-width:160}") int thumbnailWidth,
+                               @Value("${nouba.images.medium-width:640}") int mediumWidth,
+                               @Value("${nouba.images.jpeg-quality:0.82}") float jpegQuality,
+                               @Value("${nouba.images.workers:2}") int workers) {
+        this.fileStorageService = fileStorageService;
+        this.agencyRepository = agencyRepository;
+        this.catalogueCache = catalogueCache;
+        this.uploadGarbageCollector = uploadGarbageCollector;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.thumbnailWidth = thumbnailWidth;
+        this.mediumWidth = mediumWidth;
+        this.jpegQuality = Math.min(1f, Math.max(0.1f, jpegQuality));
+        // Resizing is CPU bound: a few platform threads, never the request threads
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "image-variants-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queues the variants of an agency photo once the current transaction commits. The agency
+     * keeps its previous variants until the new ones are recorded.
+     */
+    public void generateAfterCommit(Long agencyId, String photoFile) {
+        if (photoFile != null) {
+            afterCommit(() -> workers.execute(() -> generate(agencyId, photoFile)));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void generateMissing() {
+        List<Object[]> photos = agencyRepository.findPhotosWithoutVariants();
+        if (!photos.isEmpty()) {
+            logger.info("Generating image variants for {} agency photos", photos.size());
+        }
+        for (Object[] photo : photos) {
+            workers.execute(() -> generate((Long) photo[0], (String) photo[1]));
+        }
+    }
+
+    private void generate(Long agencyId, String photoFile) {
+        try {
+            BufferedImage source;
+            try (InputStream in = fileStorageService.openFile(photoFile)) {
+                source = ImageIO.read(in);
+            }
+            String thumbnail = null;
+            String medium = null;
+            if (source == null) {
+                // Not an image ImageIO can read: the agency is left without variants
+                logger.warn("Photo {} of agency {} is not a readable image, no variants", photoFile, agencyId);
+            } else {
+                thumbnail = store(source, thumbnailWidth);
+                medium = store(source, mediumWidth);
+            }
+
+            String newThumbnail = thumbnail;
+            String newMedium = medium;
+            List<String> unused = transactionTemplate.execute(status -> {
+                List<Object[]> previous = agencyRepository.findPhotoVariants(agencyId);
+                if (agencyRepository.updatePhotoVariants(agencyId, photoFile, newThumbnail, newMedium) == 0) {
+                    return Arrays.asList(newThumbnail, newMedium); // photo changed (or agency deleted) meanwhile
+                }
+                catalogueCache.invalidateAfterCommit();
+                return previous.isEmpty() ? List.<String>of() : Arrays.asList((String) previous.get(0)[0], (String) previous.get(0)[1]);
+            });
+            uploadGarbageCollector.release(unused.stream().filter(Objects::nonNull).toList());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not generate variants of {} for agency {}: {}", photoFile, agencyId, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Writes one variant and returns its name: {@code variants/<hash of the bytes>-w<width>.jpg}
+     */
+    private String store(BufferedImage source, int width) throws IOException {
+        byte[] jpeg = encodeJpeg(resize(source, width));
+        String fileName = VARIANTS_DIR + HexFormat.of().formatHex(sha256(jpeg), 0, 10) + "-w" + width + ".jpg";
+        fileStorageService.storeFile(fileName, jpeg);
+        return fileName;
+    }
+
+    /**
+     * Scales to the given width (never up), halving first for large sources so bilinear
+     * filtering keeps the detail. Transparent areas become white (JPEG has no alpha).
+     */
+    static BufferedImage resize(BufferedImage source, int width) {
+        int targetWidth = Math.min(width, source.getWidth());
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            if (currentWidth == targetWidth || currentWidth < targetWidth * 2) {
+                currentWidth = targetWidth;
+            }
+            currentHeight = Math.max(1, (int) Math.round((double) source.getHeight() * currentWidth / source.getWidth()));
+            BufferedImage scaled = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, currentWidth, currentHeight);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = scaled;
+        } while (currentWidth > targetWidth);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
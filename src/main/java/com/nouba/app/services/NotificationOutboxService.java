@@ -0,0 +1,335 @@
+package com.nouba.app.services;
+
+import com.nouba.app.dto.NotificationStatsDTO;
+import com.nouba.app.entities.NotificationOutbox;
+import com.nouba.app.repositories.NotificationOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbox-based email pipeline for ticket events.
+ * Pipeline d'envoi d'emails basé sur une table outbox.
+ *
+ * {@link #enqueue} only inserts a row, in the caller's transaction, so SMTP latency never
+ * holds a reservation or its database connection. A dispatcher claims pending rows in
+ * batches and hands them to a bounded pool of virtual threads; each worker sends its
+ * batch through a single {@link JavaMailSender#send(MimeMessage...)} call, which reuses
+ * one SMTP connection for the whole batch.
+ *
+ * A failed email goes back to PENDING with {@code next_attempt_at} pushed back exponentially
+ * ({@code nouba.notifications.retry-base-ms}, doubled per attempt up to
+ * {@code nouba.notifications.retry-max-ms}), so an SMTP outage or a rejected recipient is not
+ * retried on every poll; after {@code max-attempts} it is left FAILED.
+ *
+ * The sender is only used through the {@link JavaMailSender} interface, so a local fake
+ * SMTP server (spring.mail.host/port) or a stub bean can replace Gmail when testing.
+ */
+@Service
+public class NotificationOutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxService.class);
+    private static final int STALE_CLAIM_MINUTES = 5;
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long pollIntervalMs;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+
+    private final ExecutorService workerPool = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "notification-dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final Semaphore workerPermits;
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder abandonedCount = new LongAdder();
+    private final LongAdder sendLatencyTotalMs = new LongAdder();
+    private final AtomicLong sendLatencyMaxMs = new AtomicLong();
+
+    public NotificationOutboxService(NotificationOutboxRepository outboxRepository,
+                                     JavaMailSender mailSender,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${nouba.notifications.enabled:true}") boolean enabled,
+                                     @Value("${nouba.notifications.workers:4}") int workers,
+                                     @Value("${nouba.notifications.batch-size:20}") int batchSize,
+                                     @Value("${nouba.notifications.max-attempts:5}") int maxAttempts,
+                                     @Value("${nouba.notifications.poll-interval-ms:2000}") long pollIntervalMs,
+                                     @Value("${nouba.notifications.retry-base-ms:30000}") long retryBaseMs,
+                                     @Value("${nouba.notifications.retry-max-ms:1800000}") long retryMaxMs) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.pollIntervalMs = pollIntervalMs;
+        this.retryBaseMs = Math.max(0, retryBaseMs);
+        this.retryMaxMs = Math.max(this.retryBaseMs, retryMaxMs);
+        this.workerPermits = new Semaphore(Math.max(1, workers));
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            logger.info("Notification dispatcher disabled, emails stay in notification_outbox");
+            return;
+        }
+        dispatcher.scheduleWithFixedDelay(this::dispatchSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        dispatcher.scheduleWithFixedDelay(this::releaseStaleClaims, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        dispatcher.shutdownNow();
+        workerPool.shutdown();
+    }
+
+    /**
+     * Queues an email in the current transaction (or its own one if none is active).
+     * Met un email en file dans la transaction courante.
+     */
+    @Transactional
+    public void enqueue(String to, String subject, String content) {
+        NotificationOutbox notification = new NotificationOutbox();
+        notification.setRecipient(to);
+        notification.setSubject(subject);
+        notification.setBody(content);
+        notification.setStatus(NotificationOutbox.Status.PENDING);
+        notification.setCreatedAt(LocalDateTime.now());
+        notification.setNextAttemptAt(notification.getCreatedAt());
+        outboxRepository.save(notification);
+
+        // Wake the dispatcher as soon as the row is visible instead of waiting for the next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    requestDispatch();
+                }
+            });
+        }
+    }
+
+    public NotificationStatsDTO getStats() {
+        long sent = sentCount.sum();
+        return NotificationStatsDTO.builder()
+                .pending(outboxRepository.countByStatus(NotificationOutbox.Status.PENDING))
+                .sent(sent)
+                .failed(failedCount.sum())
+                .abandoned(abandonedCount.sum())
+                .averageSendLatencyMs(sent == 0 ? 0 : (double) sendLatencyTotalMs.sum() / sent)
+                .maxSendLatencyMs(sendLatencyMaxMs.get())
+                .build();
+    }
+
+    private void requestDispatch() {
+        if (enabled && !dispatcher.isShutdown()) {
+            dispatcher.execute(this::dispatchSafely);
+        }
+    }
+
+    private void dispatchSafely() {
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatch();
+        } catch (Exception e) {
+            logger.error("Error while dispatching notifications", e);
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    /**
+     * Claims pending rows and feeds them to the workers until the outbox is drained.
+     * Blocks on the worker permits, which is what bounds the number of open SMTP connections.
+     */
+    private void dispatch() throws InterruptedException {
+        while (true) {
+            workerPermits.acquire();
+            List<NotificationOutbox> batch;
+            try {
+                batch = claimBatch();
+            } catch (RuntimeException e) {
+                workerPermits.release();
+                throw e;
+            }
+            if (batch.isEmpty()) {
+                workerPermits.release();
+                return;
+            }
+            workerPool.execute(() -> {
+                try {
+                    send(batch);
+                } finally {
+                    workerPermits.release();
+                }
+            });
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private List<NotificationOutbox> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationOutbox> batch = outboxRepository.lockPending(now, PageRequest.of(0, batchSize));
+            if (!batch.isEmpty()) {
+                outboxRepository.markSending(batch.stream().map(NotificationOutbox::getId).toList(), now);
+            }
+            return batch;
+        });
+    }
+
+    private void send(List<NotificationOutbox> batch) {
+        Map<Object, NotificationOutbox> byMessage = new HashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        Map<Long, String> failures = new HashMap<>();
+
+        for (NotificationOutbox notification : batch) {
+            try {
+                MimeMessage message = toMimeMessage(notification);
+                messages.add(message);
+                byMessage.put(message, notification);
+            } catch (MessagingException e) {
+                failures.put(notification.getId(), describe(e));
+            }
+        }
+
+        long start = System.nanoTime();
+        if (!messages.isEmpty()) {
+            try {
+                mailSender.send(messages.toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                e.getFailedMessages().forEach((message, error) -> {
+                    NotificationOutbox notification = byMessage.get(message);
+                    if (notification != null) {
+                        failures.put(notification.getId(), describe(error));
+                    }
+                });
+                if (e.getFailedMessages().isEmpty()) {
+                    byMessage.values().forEach(n -> failures.put(n.getId(), describe(e)));
+                }
+            } catch (MailException e) {
+                byMessage.values().forEach(n -> failures.put(n.getId(), describe(e)));
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        List<Long> sentIds = batch.stream()
+                .map(NotificationOutbox::getId)
+                .filter(id -> !failures.containsKey(id))
+                .toList();
+        recordResults(batch, sentIds, failures);
+
+        if (!sentIds.isEmpty()) {
+            long perMessageMs = elapsedMs / messages.size();
+            sentCount.add(sentIds.size());
+            sendLatencyTotalMs.add(perMessageMs * sentIds.size());
+            sendLatencyMaxMs.accumulateAndGet(perMessageMs, Math::max);
+        }
+        failedCount.add(failures.size());
+    }
+
+    private void recordResults(List<NotificationOutbox> batch, List<Long> sentIds, Map<Long, String> failures) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!sentIds.isEmpty()) {
+                outboxRepository.markSent(sentIds, now);
+            }
+            for (NotificationOutbox notification : batch) {
+                String error = failures.get(notification.getId());
+                if (error == null) {
+                    continue;
+                }
+                int attempts = notification.getAttempts() + 1;
+                boolean giveUp = attempts >= maxAttempts;
+                if (giveUp) {
+                    abandonedCount.increment();
+                    logger.warn("Giving up on notification {} to {}: {}", notification.getId(), notification.getRecipient(), error);
+                }
+                outboxRepository.markFailed(
+                        notification.getId(),
+                        giveUp ? NotificationOutbox.Status.FAILED : NotificationOutbox.Status.PENDING,
+                        error.length() > 1000 ? error.substring(0, 1000) : error,
+                        giveUp ? null : now.plus(retryDelay(attempts), ChronoUnit.MILLIS));
+            }
+        });
+    }
+
+    /**
+     * Delay before the next attempt after {@code attempts} failures: base, 2 x base, 4 x base... up to the max
+     */
+    private long retryDelay(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        return Math.min(retryMaxMs, retryBaseMs << doublings);
+    }
+
+    private MimeMessage toMimeMessage(NotificationOutbox notification) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setTo(notification.getRecipient());
+        helper.setSubject(notification.getSubject());
+        helper.setText(notification.getBody(), true);
+        return message;
+    }
+
+    private static String describe(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private void releaseStaleClaims() {
+        try {
+            Integer released = transactionTemplate.execute(status ->
+                    outboxRepository.releaseStaleClaims(LocalDateTime.now().minusMinutes(STALE_CLAIM_MINUTES)));
+            if (released != null && released > 0) {
+                logger.warn("Released {} notifications left in SENDING state", released);
+            }
+        } catch (Exception e) {
+            logger.error("Error releasing stale notification claims", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.nouba.app.services;
+
+import com.nouba.app.dto.TicketAgencyRow;
+import com.nouba.app.entities.Ticket;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Queue positions of an agency's tickets, computed once from the sequence numbers of its waiting tickets.
+ * Positions dans la file calculées en une fois à partir des numéros de séquence en attente.
+ *
+ * The position of a ticket is the number of waiting tickets whose sequence is not after its own
+ * (1 for the next ticket to be called), found by binary search instead of one COUNT query per ticket.
+ */
+final class PendingRanks {
+    private final int[] pendingSequences; // sorted
+
+    private PendingRanks(int[] pendingSequences) {
+        Arrays.sort(pendingSequences);
+        this.pendingSequences = pendingSequences;
+    }
+
+    /**
+     * Ranks of the waiting tickets among {@code tickets} (all tickets of one agency).
+     */
+    static PendingRanks of(Collection<TicketAgencyRow> tickets) {
+        return new PendingRanks(tickets.stream()
+                .filter(t -> t.status() == Ticket.TicketStatus.EN_ATTENTE)
+                .mapToInt(TicketAgencyRow::sequenceNumber)
+                .toArray());
+    }
+
+    static PendingRanks ofSequences(Collection<Integer> pendingSequences) {
+        return new PendingRanks(pendingSequences.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    int position(int sequence) {
+        // First index whose sequence is greater than the ticket's = count of sequences <= it
+        int low = 0;
+        int high = pendingSequences.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (pendingSequences[middle] <= sequence) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -5,6 +5,8 @@ import com.nouba.app.entities.Ticket;
 import com.nouba.app.repositories.AgencyRepository;
 import com.nouba.app.repositories.CityRepository;
 import com.nouba.app.repositories.TicketRepository;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import com.nouba.app.services.queue.WaitTimeEstimator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -15,6 +17,8 @@ import org.springframework.web.server.ResponseStatusException;
 public class PublicTicketService {
 
     private final TicketRepository ticketRepository;
+    private final AgencyQueueManager queueManager;
+    private final WaitTimeEstimator waitTimeEstimator;
 
 
     public TicketPublicDto verifyTicket(String ticketNumber, Long cityId, Long agencyId) {
@@ -45,9 +49,7 @@ public class PublicTicketService {
         }
 
         // Calculate position in queue
-        int position = ticketRepository.countByAgencyIdAndSequenceLessThanAndPending(
-                agencyId,
-                Integer.parseInt(ticket.getNumber().substring(5)));
+        int position = queueManager.pendingBefore(agencyId, ticket.getSequenceNumber());
 
         // Prepare response with ID
         return TicketPublicDto.builder()
@@ -60,13 +62,13 @@ public class PublicTicketService {
                 .status(ticket.getStatus().name())
                 .issuedAt(ticket.getIssuedAt())
                 .positionInQueue(position)
-                .estimatedWaitTime(calculateWaitTime(position))
+                .estimatedWaitTime(calculateWaitTime(agencyId, position))
                 .build();
     }
-    private String calculateWaitTime(int position) {
+    private String calculateWaitTime(Long agencyId, int position) {
         if (position <= 0) return "0 minutes";
 
-        int minutes = position * 5;
+        int minutes = waitTimeEstimator.estimateWaitMinutes(agencyId, position);
         if (minutes < 60) {
             return minutes + " minutes";
         }
@@ -0,0 +1,38 @@
+package com.nouba.app.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a ticket listing sorted by (issuedAt, id) newest first: the next page holds the
+ * tickets strictly older than this one. Sent to clients as an opaque base64 string.
+ * Position dans une liste de tickets triée par (issuedAt, id) décroissants.
+ */
+public record TicketCursor(LocalDateTime issuedAt, Long id) {
+
+    /** Before every ticket: the first page */
+    public static final TicketCursor FIRST = new TicketCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static TicketCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new TicketCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((issuedAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
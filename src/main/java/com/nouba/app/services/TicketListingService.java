@@ -0,0 +1,186 @@
+package com.nouba.app.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nouba.app.dto.CursorPageDTO;
+import com.nouba.app.dto.TicketAgencyDto;
+import com.nouba.app.dto.TicketAgencyRow;
+import com.nouba.app.dto.TicketDTO;
+import com.nouba.app.dto.TicketEnAttenteDto;
+import com.nouba.app.dto.TicketReservationDTO;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.repositories.TicketArchiveRepository;
+import com.nouba.app.repositories.TicketRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Paginated and streamed ticket listings.
+ * Listes de tickets paginées par curseur et exports en flux (NDJSON).
+ *
+ * Pages are keyset pages on (issuedAt, id) newest first: each page is one indexed range scan of
+ * {@code size + 1} rows whatever its depth, and tickets issued meanwhile never shift the next page.
+ * Exports write one JSON object per line while the rows are read from a forward-only result set.
+ * Every query selects DTOs, never entities: nothing is attached to the persistence context, so
+ * memory stays flat however long the history is.
+ */
+@Service
+public class TicketListingService {
+    private static final Comparator<TicketDTO> NEWEST_FIRST = Comparator
+            .comparing(TicketDTO::getIssuedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TicketDTO::getId, Comparator.reverseOrder());
+
+    private final TicketRepository ticketRepository;
+    private final TicketArchiveRepository archiveRepository;
+    private final TicketService ticketService;
+    private final ObjectWriter ndjsonWriter;
+    private final TransactionTemplate readOnly;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public TicketListingService(TicketRepository ticketRepository,
+                                TicketArchiveRepository archiveRepository,
+                                TicketService ticketService,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${nouba.listing.default-page-size:50}") int defaultPageSize,
+                                @Value("${nouba.listing.max-page-size:500}") int maxPageSize) {
+        this.ticketRepository = ticketRepository;
+        this.archiveRepository = archiveRepository;
+        this.ticketService = ticketService;
+        this.ndjsonWriter = objectMapper.writer();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.maxPageSize = Math.max(1, maxPageSize);
+        this.defaultPageSize = Math.min(Math.max(1, defaultPageSize), this.maxPageSize);
+    }
+
+    // ---------- Keyset pages ----------
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TicketAgencyDto> getAgencyTicketsPage(Long agencyId, String cursor, Integer size) {
+        TicketCursor after = TicketCursor.decode(cursor);
+        int limit = pageSize(size);
+        List<TicketAgencyRow> rows = ticketRepository.findPageByAgencyId(agencyId, after.issuedAt(), after.id(), PageRequest.of(0, limit + 1));
+        PendingRanks ranks = ticketService.pendingRanks(agencyId);
+        return page(rows, limit, t -> new TicketCursor(t.issuedAt(), t.id()), t -> ticketService.toAgencyDto(agencyId, t, ranks));
+    }
+
+    /**
+     * History page: today's tickets and archived ones share the same ids and ordering, so both
+     * sources are read up to the cursor and merged.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TicketDTO> getAgencyHistoryPage(Long agencyId, String cursor, Integer size) {
+        TicketCursor after = TicketCursor.decode(cursor);
+        int limit = pageSize(size);
+        PageRequest firstRows = PageRequest.of(0, limit + 1);
+        List<TicketDTO> merged = new ArrayList<>(2 * (limit + 1));
+        merged.addAll(ticketRepository.findHistoryPageByAgencyId(agencyId, after.issuedAt(), after.id(), firstRows));
+        merged.addAll(archiveRepository.findHistoryPageByAgencyId(agencyId, after.issuedAt(), after.id(), firstRows));
+        merged.sort(NEWEST_FIRST);
+        return page(merged, limit, dto -> new TicketCursor(dto.getIssuedAt(), dto.getId()), Function.identity());
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TicketReservationDTO> getReservationsTodayPage(String cursor, Integer size) {
+        TicketCursor after = TicketCursor.decode(cursor);
+        int limit = pageSize(size);
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        List<TicketReservationDTO> rows = ticketRepository.findIssuedBetweenPage(from, from.plusDays(1),
+                after.issuedAt(), after.id(), PageRequest.of(0, limit + 1));
+        return page(rows, limit, t -> new TicketCursor(t.getIssuedAt(), t.getId()), ticketService::withTimeAgo);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TicketEnAttenteDto> getPendingTicketsPage(String cursor, Integer size) {
+        TicketCursor after = TicketCursor.decode(cursor);
+        int limit = pageSize(size);
+        List<TicketEnAttenteDto> rows = ticketRepository.findPageByStatus(Ticket.TicketStatus.EN_ATTENTE,
+                after.issuedAt(), after.id(), PageRequest.of(0, limit + 1));
+        return page(rows, limit, t -> new TicketCursor(t.getDateCreation(), t.getId()), Function.identity());
+    }
+
+    // ---------- NDJSON exports ----------
+
+    public void exportAgencyTickets(Long agencyId, OutputStream out) {
+        export(out, () -> {
+            // Ranked once, inside the export transaction
+            PendingRanks ranks = ticketService.pendingRanks(agencyId);
+            return ticketRepository.streamByAgencyId(agencyId).map(t -> ticketService.toAgencyDto(agencyId, t, ranks));
+        }, Function.identity());
+    }
+
+    /**
+     * Today's tickets first, then the archive (both newest first), like the history list.
+     */
+    public void exportAgencyHistory(Long agencyId, OutputStream out) {
+        export(out, () -> Stream.concat(
+                ticketRepository.streamHistoryByAgencyId(agencyId),
+                archiveRepository.streamHistoryByAgencyId(agencyId)), Function.identity());
+    }
+
+    public void exportReservationsToday(OutputStream out) {
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        export(out, () -> ticketRepository.streamIssuedBetween(from, from.plusDays(1)), ticketService::withTimeAgo);
+    }
+
+    public void exportPendingTickets(OutputStream out) {
+        export(out, () -> ticketRepository.streamByStatus(Ticket.TicketStatus.EN_ATTENTE), Function.identity());
+    }
+
+    // ---------- Helpers ----------
+
+    private int pageSize(Integer size) {
+        return size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+    }
+
+    /**
+     * Keeps the first {@code limit} rows (one more was read to know whether another page follows).
+     */
+    private static <R, T> CursorPageDTO<T> page(List<R> rows, int limit,
+                                                Function<R, TicketCursor> position, Function<R, T> mapper) {
+        boolean hasMore = rows.size() > limit;
+        List<R> kept = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? position.apply(kept.get(kept.size() - 1)).encode() : null;
+        return new CursorPageDTO<>(kept.stream().map(mapper).toList(), nextCursor, hasMore);
+    }
+
+    /**
+     * Writes every row as one JSON line. Streams must be read inside a transaction, so the whole
+     * export runs in one read-only transaction on the thread writing the response.
+     */
+    private <R, T> void export(OutputStream out, Supplier<Stream<R>> rows, Function<R, T> mapper) {
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<R> stream = rows.get()) {
+                stream.forEach(row -> {
+                    try {
+                        out.write(ndjsonWriter.writeValueAsBytes(mapper.apply(row)));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e); // client went away: stop reading
+                    }
+                });
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.nouba.app.services;
+
+import com.nouba.app.dto.RolloverReportDTO;
+import com.nouba.app.repositories.TicketArchiveRepository;
+import com.nouba.app.repositories.TicketRepository;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Daily rollover: moves the tickets of previous days into ticket_archive and restarts numbering.
+ * Bascule quotidienne : déplace les tickets des jours précédents vers ticket_archive.
+ *
+ * Tickets are moved in batches of {@code nouba.rollover.batch-size}, each batch in its own
+ * short transaction (INSERT ... SELECT into the archive, then DELETE by id), so rows are
+ * only locked for one batch and the undo log stays small. Sequence numbers are reset through
+ * {@link TicketSequenceAllocator} once the old tickets are gone, and history stays queryable.
+ */
+@Service
+public class TicketRolloverService {
+    private static final Logger logger = LoggerFactory.getLogger(TicketRolloverService.class);
+
+    private final TicketRepository ticketRepository;
+    private final TicketArchiveRepository archiveRepository;
+    private final TicketSequenceAllocator sequenceAllocator;
+    private final AgencyQueueManager queueManager;
+    private final TransactionTemplate requiresNew;
+    private final int batchSize;
+    private final ReentrantLock running = new ReentrantLock();
+
+    public TicketRolloverService(TicketRepository ticketRepository,
+                                 TicketArchiveRepository archiveRepository,
+                                 TicketSequenceAllocator sequenceAllocator,
+                                 AgencyQueueManager queueManager,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${nouba.rollover.batch-size:1000}") int batchSize) {
+        this.ticketRepository = ticketRepository;
+        this.archiveRepository = archiveRepository;
+        this.sequenceAllocator = sequenceAllocator;
+        this.queueManager = queueManager;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Archives every ticket issued before {@code cutoff} and restarts the numbering of all agencies.
+     */
+    public RolloverReportDTO rollover(LocalDateTime cutoff) {
+        if (!running.tryLock()) {
+            throw new IllegalStateException("A ticket rollover is already running");
+        }
+        try {
+            return doRollover(cutoff);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private RolloverReportDTO doRollover(LocalDateTime cutoff) {
+        logger.info("Starting ticket rollover for tickets issued before {}", cutoff);
+        long start = System.nanoTime();
+        long archived = 0;
+        long maxBatchMs = 0;
+        int batches = 0;
+        Long lastId = 0L;
+
+        while (true) {
+            List<Long> ids = ticketRepository.findIdsIssuedBefore(cutoff, lastId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            long batchStart = System.nanoTime();
+            Integer moved = requiresNew.execute(status -> {
+                int copied = archiveRepository.archiveTickets(ids);
+                if (copied != ids.size()) {
+                    // Never delete a ticket that did not make it into the archive
+                    throw new IllegalStateException("Archived " + copied + " of " + ids.size() + " tickets, batch rolled back");
+                }
+                ticketRepository.deleteAllByIdIn(ids);
+                return copied;
+            });
+            long batchMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStart);
+
+            archived += moved != null ? moved : 0;
+            maxBatchMs = Math.max(maxBatchMs, batchMs);
+            batches++;
+            lastId = ids.get(ids.size() - 1);
+        }
+
+        // Old numbers are gone from the live table: every agency can start again at 1
+        long resetStart = System.nanoTime();
+        requiresNew.executeWithoutResult(status -> {
+            sequenceAllocator.resetAll();
+            queueManager.resetAfterCommit();
+        });
+        long resetMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - resetStart);
+
+        RolloverReportDTO report = RolloverReportDTO.builder()
+                .cutoff(cutoff)
+                .archivedTickets(archived)
+                .batches(batches)
+                .totalDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .maxBatchDurationMs(maxBatchMs)
+                .sequenceResetMs(resetMs)
+                .build();
+        logger.info("Ticket rollover done: {} tickets archived in {} batches, {} ms total, longest batch {} ms",
+                report.getArchivedTickets(), report.getBatches(), report.getTotalDurationMs(), report.getMaxBatchDurationMs());
+        return report;
+    }
+}
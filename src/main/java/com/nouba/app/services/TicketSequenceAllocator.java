@@ -0,0 +1,223 @@
+package com.nouba.app.services;
+
+import com.nouba.app.entities.AgencySequence;
+import com.nouba.app.repositories.AgencySequenceRepository;
+import com.nouba.app.repositories.TicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out per-agency ticket sequence numbers without touching the database on the hot path.
+ * Distribue les numéros de séquence par agence sans accès base sur le chemin critique.
+ *
+ * Each node reserves a block of {@code nouba.sequence.block-size} numbers from the
+ * {@code agency_sequence} table (hi/lo style) and serves it from an {@link AtomicInteger}.
+ * Only block refills take a row lock, so concurrent reservations on the same agency
+ * no longer race on MAX(sequence_number).
+ *
+ * A daily reset increments the row's epoch. Every {@link #next} reads the epoch (primary key,
+ * no lock) and drops a block reserved under an older one, so no node keeps handing out
+ * yesterday's numbers once numbering restarts at 1.
+ *
+ * Numbers of a block that is not used up (node restart, rolled-back reservation) are
+ * skipped, and with several nodes the numbers of one agency interleave between blocks.
+ */
+@Service
+public class TicketSequenceAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(TicketSequenceAllocator.class);
+    private static final int LOCK_STRIPES = 64;
+    private static final int RESTART = 0;
+
+    private final AgencySequenceRepository sequenceRepository;
+    private final TicketRepository ticketRepository;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+
+    private final ConcurrentMap<Long, SequenceBlock> blocks = new ConcurrentHashMap<>();
+    private final ReentrantLock[] refillLocks = new ReentrantLock[LOCK_STRIPES];
+
+    public TicketSequenceAllocator(AgencySequenceRepository sequenceRepository,
+                                   TicketRepository ticketRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${nouba.sequence.block-size:10}") int blockSize) {
+        this.sequenceRepository = sequenceRepository;
+        this.ticketRepository = ticketRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            refillLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the next sequence number for an agency
+     * Retourne le prochain numéro de séquence d'une agence
+     *
+     * Call it before opening the transaction that uses the number: a refill runs in a transaction
+     * (and on a connection) of its own, which requests already holding a connection could starve.
+     */
+    public int next(Long agencyId) {
+        int epoch = currentEpoch(agencyId);
+        while (true) {
+            SequenceBlock block = blocks.get(agencyId);
+            if (block != null && block.epoch >= epoch) {
+                int value = block.next();
+                if (value > 0) {
+                    return value;
+                }
+            }
+            refill(agencyId, block);
+        }
+    }
+
+    /**
+     * Next number that would be handed out, without consuming it (no row lock)
+     */
+    public int peekNext(Long agencyId) {
+        SequenceBlock block = blocks.get(agencyId);
+        if (block != null && block.epoch >= currentEpoch(agencyId) && block.peek() > 0) {
+            return block.peek();
+        }
+        int nextValue = sequenceRepository.findNextValue(agencyId).orElse(RESTART);
+        return nextValue != RESTART ? nextValue : firstFromTickets(agencyId);
+    }
+
+    /**
+     * Makes sure no number lower than or equal to {@code sequence} is handed out anymore
+     * (used when a client picks a specific ticket number).
+     */
+    public void advancePast(Long agencyId, int sequence) {
+        ReentrantLock lock = lockFor(agencyId);
+        lock.lock();
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                AgencySequence row = lockedRow(agencyId);
+                if (row.getNextValue() <= sequence) {
+                    row.setNextValue(sequence + 1);
+                    sequenceRepository.save(row);
+                }
+            });
+            SequenceBlock block = blocks.get(agencyId);
+            if (block != null) {
+                block.skipPast(sequence);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Restarts every agency (daily reset) from its highest live ticket + 1, i.e. 1 once the day's
+     * tickets are archived. Runs in the caller's transaction; the local blocks are dropped once it
+     * commits, other nodes drop theirs on their next {@link #next} call (epoch check).
+     */
+    public void resetAll() {
+        sequenceRepository.restartAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    blocks.clear();
+                }
+            });
+        } else {
+            blocks.clear();
+        }
+    }
+
+    private void refill(Long agencyId, SequenceBlock exhausted) {
+        ReentrantLock lock = lockFor(agencyId);
+        lock.lock();
+        try {
+            if (blocks.get(agencyId) != exhausted) {
+                return; // another thread already refilled
+            }
+            blocks.put(agencyId, reserveBlock(agencyId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SequenceBlock reserveBlock(Long agencyId) {
+        try {
+            return requiresNew.execute(status -> reserve(agencyId));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the row at the same time: it exists now, lock it and retry
+            logger.debug("Concurrent creation of agency_sequence row for agency {}, retrying", agencyId);
+            return requiresNew.execute(status -> reserve(agencyId));
+        }
+    }
+
+    private SequenceBlock reserve(Long agencyId) {
+        AgencySequence row = lockedRow(agencyId);
+        int start = row.getNextValue();
+        row.setNextValue(start + blockSize);
+        sequenceRepository.save(row);
+        return new SequenceBlock(start, start + blockSize, row.getEpoch());
+    }
+
+    private AgencySequence lockedRow(Long agencyId) {
+        AgencySequence row = sequenceRepository.findForUpdate(agencyId)
+                .orElseGet(() -> new AgencySequence(agencyId, RESTART, 0));
+        if (row.getNextValue() == RESTART) {
+            // First reservation for this agency, or first since a reset: seed from the tickets already issued
+            row.setNextValue(firstFromTickets(agencyId));
+        }
+        return row;
+    }
+
+    private int currentEpoch(Long agencyId) {
+        return sequenceRepository.findEpoch(agencyId).orElse(0);
+    }
+
+    private int firstFromTickets(Long agencyId) {
+        return ticketRepository.findMaxSequenceByAgency(agencyId).orElse(0) + 1;
+    }
+
+    private ReentrantLock lockFor(Long agencyId) {
+        return refillLocks[Math.floorMod(agencyId.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Range [next, end) of sequence numbers reserved by this node, under a reset epoch.
+     */
+    private static final class SequenceBlock {
+        private final AtomicInteger next;
+        private final int end;
+        private final int epoch;
+
+        SequenceBlock(int start, int end, int epoch) {
+            this.next = new AtomicInteger(start);
+            this.end = end;
+            this.epoch = epoch;
+        }
+
+        int next() {
+            int value = next.getAndIncrement();
+            return value < end ? value : -1;
+        }
+
+        int peek() {
+            int value = next.get();
+            return value < end ? value : -1;
+        }
+
+        void skipPast(int sequence) {
+            next.accumulateAndGet(sequence + 1, Math::max);
+        }
+    }
+}
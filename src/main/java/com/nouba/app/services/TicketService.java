@@ -6,25 +6,32 @@ import com.nouba.app.exceptions.TicketNotFoundException;
 import com.nouba.app.repositories.AgencyRepository;
 import com.nouba.app.repositories.ClientRepository;
 import com.nouba.app.repositories.ServiceRepository;
+import com.nouba.app.repositories.TicketArchiveRepository;
 import com.nouba.app.repositories.TicketRepository;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import com.nouba.app.services.queue.DailyTicketCounters;
+import com.nouba.app.services.queue.WaitTimeEstimator;
+import io.micrometer.core.annotation.Timed;
 import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.stereotype.Service;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.stream.Collectors;
 
 import com.nouba.app.entities.Servicee;
@@ -40,6 +47,17 @@ public class TicketService {
     private final EmailService emailService;
     private final ServiceRepository serviceRepository;
     private final ClientRepository clientRepository;
+    private final AgencyQueueManager queueManager;
+    private final TicketSequenceAllocator sequenceAllocator;
+    private final NotificationOutboxService notificationOutbox;
+    private final TicketRolloverService ticketRolloverService;
+    private final TicketArchiveRepository ticketArchiveRepository;
+    private final DailyTicketCounters dailyCounters;
+    private final WaitTimeEstimator waitTimeEstimator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${nouba.queue.max-desks:16}")
+    private int maxDesks;
 
 
 
@@ -53,7 +71,7 @@ public class TicketService {
      * @param client Client object / Objet client / كائن العميل
      * @return Created ticket / Ticket créé / التذكرة المنشأة
      */
-    @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "generate"}, histogram = true)
     public Ticket generateTicket(Long agencyId, Long serviceId, Long clientId, Client client) {
         Agency agency = agencyRepository.findById(agencyId)
                 .orElseThrow(() -> new RuntimeException("Agency not found"));
@@ -65,60 +83,41 @@ public class TicketService {
             throw new RuntimeException("Client ID mismatch");
         }
 
-        for (int attempt = 0; attempt < 3; attempt++) {
-            Integer lastSequence = ticketRepository.findMaxSequenceByAgency(agencyId).orElse(0);
-            int nextSequence = lastSequence + 1;
-
-            Ticket ticket = new Ticket();
-            ticket.setAgency(agency);
-            ticket.setAgencyService(service);
-            ticket.setClient(client);
-            ticket.setSequenceNumber(nextSequence);
-            ticket.setNumber(Ticket.generateTicketNumber(nextSequence));
-            ticket.setIssuedAt(LocalDateTime.now());
-            ticket.setStatus(Ticket.TicketStatus.EN_ATTENTE);
+        // Sequence numbers come from the allocator: no MAX() query and no retry loop. Taken before the
+        // ticket's transaction: a block refill needs a connection of its own, and asking for it while
+        // holding one starves the pool once every connection belongs to a request waiting for that refill
+        int nextSequence = sequenceAllocator.next(agencyId);
 
+        return transactionTemplate.execute(status -> {
             try {
-                Ticket savedTicket = ticketRepository.save(ticket);
-                sendTicketCreationConfirmation(savedTicket); // Send detailed confirmation
-                sendTicketNotification(savedTicket); // Send regular notification
-                return savedTicket;
+                return issueTicket(agency, service, client, nextSequence, Ticket.generateTicketNumber(nextSequence));
             } catch (DataIntegrityViolationException e) {
-                if (e.getMessage().contains("unique_agency_number")) {
-                    // Log and retry
-                    System.out.println("Retrying ticket generation due to duplicate number...");
-                    continue;
-                } else {
-                    throw new RuntimeException("Failed to create ticket", e);
-                }
+                throw new RuntimeException("Failed to create ticket", e);
             }
-        }
-
-        throw new RuntimeException("Failed to create ticket after 3 attempts");
+        });
     }
 
+    /**
+     * Inserts a waiting ticket and queues its confirmation emails (in the caller's transaction)
+     */
+    private Ticket issueTicket(Agency agency, Servicee service, Client client, int sequenceNumber, String number) {
+        Ticket ticket = new Ticket();
+        ticket.setAgency(agency);
+        ticket.setAgencyService(service);
+        ticket.setClient(client);
+        ticket.setSequenceNumber(sequenceNumber);
+        ticket.setNumber(number);
+        ticket.setIssuedAt(LocalDateTime.now());
+        ticket.setStatus(Ticket.TicketStatus.EN_ATTENTE);
 
+        Ticket savedTicket = ticketRepository.save(ticket);
+        queueManager.ticketIssued(savedTicket);
+        sendTicketCreationConfirmation(savedTicket); // Send detailed confirmation
+        sendTicketNotification(savedTicket); // Send regular notification
+        return savedTicket;
+    }
 
 
-    private int getNextSequenceNumber(Long agencyId) {
-        // Try optimistic approach first
-        Optional<Integer> lastSequence = ticketRepository.findMaxSequenceByAgency(agencyId);
-        if (lastSequence.isPresent()) {
-            return lastSequence.get() + 1;
-        }
-
-        // Fallback to pessimistic locking if needed
-        List<Ticket> lastTickets = ticketRepository.findLastTicketForAgency(
-                agencyId,
-                PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "sequenceNumber"))
-        );
-
-        if (!lastTickets.isEmpty()) {
-            return lastTickets.get(0).getSequenceNumber() + 1;
-        }
-
-        return 1; // First ticket for this agency
-    }
 
 
     private void sendCancellationNotification(Ticket ticket) {
@@ -129,7 +128,7 @@ public class TicketService {
             values.put("agencyName", ticket.getAgency().getName());
 
             String content = emailService.loadEmailTemplate("templates.email/ticket-cancellation.html", values);
-            emailService.sendEmail(
+            notificationOutbox.enqueue(
                     ticket.getClient().getUser().getEmail(),
                     "Ticket cancellation confirmation",
                     content
@@ -140,6 +139,7 @@ public class TicketService {
     }
 
     @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "cancel"}, histogram = true)
     public void cancelTicket(Long ticketId, User user) {
         Ticket ticket = ticketRepository.findById(ticketId)
                 .orElseThrow(() -> new RuntimeException("Ticket not found"));
@@ -158,8 +158,16 @@ public class TicketService {
             }
         }
 
-        ticket.cancel();
-        ticketRepository.save(ticket);
+        if (ticket.getStatus() != Ticket.TicketStatus.EN_ATTENTE) {
+            throw new IllegalStateException("Only pending tickets can be cancelled");
+        }
+        // Conditional cancel: a desk may have claimed it since it was read
+        if (!ticketRepository.cancelIfPending(ticketId, LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ticket was already started or cancelled");
+        }
+        ticket = ticketRepository.findById(ticketId)
+                .orElseThrow(() -> new TicketNotFoundException("Ticket not found"));
+        queueManager.ticketCancelled(ticket);
         sendCancellationNotification(ticket);
     }
     /**
@@ -171,16 +179,19 @@ public class TicketService {
      * @return Number of people ahead / Nombre de personnes devant / عدد الأشخاص قبل التذكرة
      */
     public int getPeopleAhead(Long ticketId) {
+        // Waiting tickets are answered from the in-memory queue / Les tickets en attente sont lus en mémoire
+        OptionalInt inQueue = queueManager.peopleAhead(ticketId);
+        if (inQueue.isPresent()) {
+            return inQueue.getAsInt();
+        }
+
         // Find ticket by ID / Trouver le ticket par ID / العثور على التذكرة بواسطة المعرف
         Ticket ticket = ticketRepository.findById(ticketId)
                 .orElseThrow(() -> new RuntimeException(
                         "Ticket not found / Ticket non trouvé / التذكرة غير موجودة"
                 ));
 
-        // Extract sequence number from ticket number / Extraire le numéro séquentiel du numéro de ticket / استخراج الرقم التسلسلي من رقم التذكرة
-        int sequence = Integer.parseInt(ticket.getNumber().substring(5));
-        return ticketRepository.countByAgencyIdAndSequenceLessThanAndPending(
-                ticket.getAgency().getId(), sequence);
+        return queueManager.pendingBefore(ticket.getAgency().getId(), ticket.getSequenceNumber());
     }
 
     /**
@@ -192,22 +203,56 @@ public class TicketService {
      * @return Optional of served ticket / Optionnel du ticket servi / اختياري للتذكرة المخدومة
      */
     @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "serve"}, histogram = true)
     public Optional<Ticket> serveNextClient(Long agencyId) {
-        // Complete current serving ticket if exists / Compléter le ticket en cours de agencyService s'il existe / إكمال التذكرة الحالية إذا كانت موجودة
-        ticketRepository.findCurrentlyServingByAgencyId(agencyId)
-                .ifPresent(ticket -> {
-                    ticket.completeProcessing();
-                    ticketRepository.save(ticket);
+        return serveNextAtDesk(agencyId, null);
+    }
+
+    /**
+     * Serve the next client at a service desk (guichet): completes the ticket the desk was
+     * serving, then claims the head of the line for it.
+     * Servir le prochain client à un guichet donné
+     * خدمة العميل التالي في شباك معيّن
+     *
+     * Both steps are conditional UPDATEs (EN_COURS → TERMINE, EN_ATTENTE → EN_COURS), so two
+     * desks of the same agency never complete or start the same ticket, and no row is locked
+     * while reading the queue. With {@code desk == null} the most recently started ticket of
+     * the agency is completed, as the single-counter mode always did.
+     *
+     * @param agencyId Agency ID / ID de l'agence / معرّف الوكالة
+     * @param desk Desk number (1..nouba.queue.max-desks) or null / Numéro du guichet / رقم الشباك
+     * @return Optional of served ticket / Optionnel du ticket servi / اختياري للتذكرة المخدومة
+     */
+    @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "serve"}, histogram = true)
+    public Optional<Ticket> serveNextAtDesk(Long agencyId, Integer desk) {
+        if (desk != null && (desk < 1 || desk > maxDesks)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Desk must be between 1 and " + maxDesks);
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        // Complete the ticket served at this desk / Terminer le ticket du guichet / إكمال تذكرة الشباك
+        Optional<Long> currentTicketId = desk != null
+                ? queueManager.servingAtDesk(agencyId, desk)
+                : queueManager.currentServingTicketId(agencyId);
+        currentTicketId.ifPresent(ticketId -> completeIfServing(ticketId, now));
+
+        // Claim the next pending ticket / Réserver le prochain ticket en attente / حجز التذكرة التالية
+        return queueManager.claimNext(agencyId, entry -> ticketRepository.claimPending(entry.ticketId(), desk, now))
+                .flatMap(entry -> ticketRepository.findById(entry.ticketId()))
+                .map(ticket -> {
+                    queueManager.ticketStarted(ticket);
+                    return ticket;
                 });
+    }
 
-        // Get next pending ticket / Obtenir le prochain ticket en attente / الحصول على التذكرة المعلقة التالية
-        Optional<Ticket> nextTicketOpt = ticketRepository.findNextPendingByAgencyId(agencyId);
-        if (nextTicketOpt.isPresent()) {
-            Ticket nextTicket = nextTicketOpt.get();
-            nextTicket.startProcessing();
-            return Optional.of(ticketRepository.save(nextTicket));
+    /**
+     * Completes a ticket unless another desk or request already closed it.
+     */
+    private void completeIfServing(Long ticketId, LocalDateTime now) {
+        if (ticketRepository.completeIfServing(ticketId, now)) {
+            ticketRepository.findById(ticketId).ifPresent(queueManager::ticketFinished);
         }
-        return Optional.empty();
     }
 
     /**
@@ -249,8 +294,9 @@ public class TicketService {
      * @return Estimated wait time in minutes / Temps d'attente estimé en minutes / وقت الانتظار المتوقع بالدقائق
      */
     public int calculateWaitTime(Long agencyId) {
-        int peopleInQueue = ticketRepository.countPendingByAgencyId(agencyId);
-        return peopleInQueue * 5; // 5 minutes per person / 5 minutes par personne / 5 دقائق لكل شخص
+        int peopleInQueue = queueManager.pendingCount(agencyId);
+        // Measured service time of the agency / Durée de service mesurée / مدة الخدمة المقاسة
+        return waitTimeEstimator.estimateWaitMinutes(agencyId, peopleInQueue);
     }
 
     /**
@@ -262,7 +308,8 @@ public class TicketService {
      * @return Optional of current ticket / Optionnel du ticket actuel / اختياري للتذكرة الحالية
      */
     public Optional<Ticket> getCurrentTicket(Long agencyId) {
-        return ticketRepository.findCurrentlyServingByAgencyId(agencyId);
+        return queueManager.currentServingTicketId(agencyId)
+                .flatMap(ticketRepository::findById);
     }
 
     /**
@@ -274,7 +321,8 @@ public class TicketService {
      * @return Optional of next ticket / Optionnel du prochain ticket / اختياري للتذكرة التالية
      */
     public Optional<Ticket> getNextTicket(Long agencyId) {
-        return ticketRepository.findNextPendingByAgencyId(agencyId);
+        return queueManager.nextPendingTicketId(agencyId)
+                .flatMap(ticketRepository::findById);
     }
 
     /**
@@ -286,7 +334,7 @@ public class TicketService {
      * @param client Client object / Objet client / كائن العميل
      * @return Created ticket / Ticket créé / التذكرة المنشأة
      */
-    @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "generate"}, histogram = true)
     public Ticket createTicketWithStatusPending(Long agencyId, Long serviceId, Long clientId, Client client) {
         Ticket ticket = generateTicket(agencyId, serviceId, clientId, client);
         sendTicketNotification(ticket);
@@ -311,7 +359,7 @@ public class TicketService {
             values.put("status", ticket.getStatus().name());
 
             String content = emailService.loadEmailTemplate("templates.email/ticket-notification.html", values);
-            emailService.sendEmail(
+            notificationOutbox.enqueue(
                     ticket.getClient().getUser().getEmail(),
                     "Votre ticket pour " + ticket.getAgency().getName(),
                     content
@@ -321,52 +369,6 @@ public class TicketService {
         }
     }
 
-    /**
-     * Check pending tickets periodically (every 2 minutes)
-     * Vérifier les tickets en attente périodiquement (toutes les 2 minutes)
-     * التحقق من التذاكر المعلقة بشكل دوري (كل دقيقتين)
-     */
-    @Scheduled(fixedRate = 120000)
-    public void checkPendingTickets() {
-        List<Ticket> pendingTickets = ticketRepository.findByStatus(Ticket.TicketStatus.EN_ATTENTE);
-
-        for (Ticket ticket : pendingTickets) {
-            int peopleAhead = getPeopleAhead(ticket.getId());
-            if (peopleAhead <= 5) {
-                sendApproachingNotification(ticket, peopleAhead);
-            }
-        }
-    }
-
-    /**
-     * Send notification when turn is approaching
-     * Envoyer une notification lorsque le tour approche
-     * إرسال إشعار عندما يقترب الدور
-     *
-     * @param ticket Ticket object / Objet ticket / كائن التذكرة
-     * @param peopleAhead Number of people ahead / Nombre de personnes devant / عدد الأشخاص قبل التذكرة
-     */
-    private void sendApproachingNotification(Ticket ticket, int peopleAhead) {
-        try {
-            Map<String, String> values = new HashMap<>();
-            values.put("clientName", ticket.getClient().getUser().getName());
-            values.put("ticketNumber", ticket.getNumber());
-            values.put("agencyName", ticket.getAgency().getName());
-            values.put("peopleAhead", String.valueOf(peopleAhead));
-            values.put("estimatedWait", String.valueOf(peopleAhead * 5));
-            values.put("status", ticket.getStatus().name());
-
-            String content = emailService.loadEmailTemplate("templates.email/ticket-approaching.html", values);
-            emailService.sendEmail(
-                    ticket.getClient().getUser().getEmail(),
-                    "Votre tour approche (" + ticket.getAgency().getName() + ")",
-                    content
-            );
-        } catch (Exception e) {
-            logger.error("Error sending approaching notification / Erreur lors de l'envoi de la notification d'approche / خطأ في إرسال إشعار الاقتراب", e);
-        }
-    }
-
     /**
      * Verify ticket access
      * Vérifier l'accès au ticket
@@ -383,22 +385,18 @@ public class TicketService {
         }
     }
 
+    @Transactional(readOnly = true)
     public List<TicketReservationDTO> getAllTicketsReservedToday() {
-        return ticketRepository.findAllTicketsReservedToday().stream()
-                .map(this::convertToReservationDTO)
-                .toList();
-    }
-
-    private TicketReservationDTO convertToReservationDTO(Ticket ticket) {
-        return TicketReservationDTO.builder()
-                .ticketNumber(ticket.getNumber())
-                .clientName(ticket.getClient().getUser().getName())
-                .clientEmail(ticket.getClient().getUser().getEmail())
-                .agencyName(ticket.getAgency().getName())
-                .city(ticket.getAgency().getCity().getName())
-                .issuedAt(ticket.getIssuedAt())
-                .timeAgo(calculateTimeAgo(ticket.getIssuedAt()))
-                .build();
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        List<TicketReservationDTO> reservations = ticketRepository.findReservationsIssuedBetween(from, from.plusDays(1));
+        reservations.forEach(this::withTimeAgo);
+        return reservations;
+    }
+
+    // The projection reads the columns, "time ago" is relative to now
+    TicketReservationDTO withTimeAgo(TicketReservationDTO reservation) {
+        reservation.setTimeAgo(calculateTimeAgo(reservation.getIssuedAt()));
+        return reservation;
     }
 
     private String calculateTimeAgo(LocalDateTime issuedAt) {
@@ -418,8 +416,9 @@ public class TicketService {
      * @param agencyId Agency ID / ID de l'agence / معرّف الوكالة
      * @return List of pending tickets / Liste des tickets en attente / قائمة التذاكر المعلقة
      */
-    public List<Ticket> getAllPendingTicketsByAgency(Long agencyId) {
-        return ticketRepository.findAllPendingByAgencyId(agencyId);
+    @Transactional(readOnly = true)
+    public List<TicketDTO> getAllPendingTicketsByAgency(Long agencyId) {
+        return ticketRepository.findPendingDtosByAgencyId(agencyId);
     }
 
     /**
@@ -431,31 +430,32 @@ public class TicketService {
      * @return Number of pending tickets / Nombre de tickets en attente / عدد التذاكر المعلقة
      */
     public int countPendingTicketsByAgency(Long agencyId) {
-        return ticketRepository.countPendingByAgencyId(agencyId);
+        return queueManager.pendingCount(agencyId);
     }
 
-    // Add to TicketService.java
-    @Transactional
-    public void deleteAllTicketsDaily() {
+    /**
+     * Daily reset: moves every ticket issued so far to ticket_archive and restarts numbering
+     * Réinitialisation quotidienne : archive tous les tickets et redémarre la numérotation
+     */
+    public RolloverReportDTO deleteAllTicketsDaily() {
         logger.info("Executing daily ticket table reset at {}", LocalDateTime.now());
 
-        // Delete all tickets regardless of status
-        ticketRepository.deleteAllTickets();
-
-        logger.info("All tickets (EN_ATTENTE, EN_COURS, ANNULE, TERMINE) have been deleted");
+        // Tickets are archived in batches (not deleted) so history and dashboards keep them
+        return ticketRolloverService.rollover(LocalDateTime.now());
     }
 
     // Add to TicketService.java
-    @Scheduled(cron = "0 0 7 * * ?", zone = "Your/Timezone") // e.g., "Europe/Paris"
+    @Scheduled(cron = "${nouba.rollover.cron:0 0 7 * * ?}", zone = "${nouba.rollover.zone:Africa/Casablanca}")
     public void scheduledTicketTableReset() throws MessagingException {
         try {
-            deleteAllTicketsDaily();
+            RolloverReportDTO report = deleteAllTicketsDaily();
 
             // Optional: Send notification email
             emailService.sendEmail(
                     "admin@example.com",
                     "Daily Ticket Reset Completed",
-                    "All tickets were deleted at " + LocalDateTime.now()
+                    report.getArchivedTickets() + " tickets were archived in " + report.getTotalDurationMs()
+                            + " ms at " + LocalDateTime.now()
             );
 
         } catch (Exception e) {
@@ -482,48 +482,92 @@ public class TicketService {
     @Transactional
     public void restoreTickets(List<Ticket> tickets) {
         ticketRepository.saveAll(tickets);
+        queueManager.resetAfterCommit();
     }
 
     // Add to TicketService.java
+    @Transactional(readOnly = true)
     public List<TicketDTO> getAgencyTicketHistory(Long agencyId) {
-        List<Ticket> tickets = ticketRepository.findCompletedAndCancelledByAgencyId(agencyId);
-        return tickets.stream()
-                .map(TicketDTO::from)
-                .toList();
+        List<TicketDTO> tickets = ticketRepository.findHistoryByAgencyId(agencyId);
+        List<TicketDTO> archived = ticketArchiveRepository.findHistoryByAgencyId(agencyId);
+
+        // Today's tickets first, then previous days from the archive (both sorted newest first)
+        List<TicketDTO> history = new ArrayList<>(tickets.size() + archived.size());
+        history.addAll(tickets);
+        history.addAll(archived);
+        return history;
     }
 
     // Add to TicketService.java
 
     public int getEnAttenteCountToday(Long agencyId) {
-        return ticketRepository.countEnAttenteTodayByAgency(agencyId);
+        return dailyCounters.today(agencyId, Ticket.TicketStatus.EN_ATTENTE);
     }
 
     public int getEnCoursCountToday(Long agencyId) {
-        return ticketRepository.countEnCoursTodayByAgency(agencyId);
+        return dailyCounters.today(agencyId, Ticket.TicketStatus.EN_COURS);
     }
 
     public int getAnnuleCountToday(Long agencyId) {
-        return ticketRepository.countAnnuleTodayByAgency(agencyId);
+        return dailyCounters.today(agencyId, Ticket.TicketStatus.ANNULE);
     }
 
     public int getTermineCountToday(Long agencyId) {
-        return ticketRepository.countTermineTodayByAgency(agencyId);
+        return dailyCounters.today(agencyId, Ticket.TicketStatus.TERMINE);
+    }
+
+    /**
+     * All of today's counts for an agency, read from memory
+     * Toutes les statistiques du jour d'une agence, lues en mémoire
+     */
+    public AgencyTodayStatsDTO getTodayStats(Long agencyId) {
+        int[] counts = dailyCounters.today(agencyId);
+        int enAttente = counts[Ticket.TicketStatus.EN_ATTENTE.ordinal()];
+        int enCours = counts[Ticket.TicketStatus.EN_COURS.ordinal()];
+        int annule = counts[Ticket.TicketStatus.ANNULE.ordinal()];
+        int termine = counts[Ticket.TicketStatus.TERMINE.ordinal()];
+        return AgencyTodayStatsDTO.builder()
+                .agencyId(agencyId)
+                .date(LocalDate.now())
+                .enAttente(enAttente)
+                .enCours(enCours)
+                .annule(annule)
+                .termine(termine)
+                .total(enAttente + enCours + annule + termine)
+                .build();
     }
 
     // 1. Get all tickets by agency
     public List<TicketAgencyDto> getAllTicketsByAgency(Long agencyId) {
-        return ticketRepository.findByAgencyId(agencyId).stream()
-                .map(ticket -> new TicketAgencyDto(
-                        ticket.getNumber(),
-                        ticket.getAgencyService().getName(),
-                        ticket.getIssuedAt(),
-                        calculatePosition(ticket),
-                        calculateWaitTime(ticket),
-                        ticket.getStatus().name()
-                ))
+        // One query selecting only the listed columns, positions ranked in memory
+        List<TicketAgencyRow> tickets = ticketRepository.findAgencyRowsByAgencyId(agencyId);
+        PendingRanks ranks = PendingRanks.of(tickets);
+        return tickets.stream()
+                .map(ticket -> toAgencyDto(agencyId, ticket, ranks))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Positions of an agency's tickets, for listings that only hold part of its tickets
+     */
+    PendingRanks pendingRanks(Long agencyId) {
+        return PendingRanks.ofSequences(ticketRepository.findPendingSequencesByAgencyId(agencyId));
+    }
+
+    TicketAgencyDto toAgencyDto(Long agencyId, TicketAgencyRow ticket, PendingRanks ranks) {
+        int position = ranks.position(ticket.sequenceNumber());
+        return new TicketAgencyDto(
+                ticket.number(),
+                ticket.serviceName(),
+                ticket.issuedAt(),
+                position,
+                formatWaitTime(agencyId, position),
+                ticket.status().name()
+        );
+    }
+
+    @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "start"}, histogram = true)
     public TicketServiceDto startTicketService(Long ticketId, Long userId) {
         // First verify the user is from the agency that owns the ticket
         Agency agency = agencyRepository.findByUserId(userId)
@@ -541,8 +585,13 @@ public class TicketService {
             throw new IllegalStateException("Ticket must be in EN_ATTENTE status");
         }
 
-        ticket.startProcessing();
-        ticket = ticketRepository.save(ticket);
+        // Conditional start: a desk may have claimed it since it was read
+        if (!ticketRepository.claimPending(ticketId, null, LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ticket was already started or cancelled");
+        }
+        ticket = ticketRepository.findById(ticketId)
+                .orElseThrow(() -> new TicketNotFoundException("Ticket not found"));
+        queueManager.ticketStarted(ticket);
 
         return new TicketServiceDto(
                 ticket.getNumber(),
@@ -554,6 +603,7 @@ public class TicketService {
 
     // 3. Cancel pending ticket (EN_ATTENTE → ANNULE)
     @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "cancel"}, histogram = true)
     public TicketCancelDto cancelPendingTicket(Long ticketId, User user) {
         Ticket ticket = ticketRepository.findById(ticketId)
                 .orElseThrow(() -> new TicketNotFoundException("Ticket not found"));
@@ -578,8 +628,13 @@ public class TicketService {
             throw new IllegalStateException("Ticket must be in EN_ATTENTE status");
         }
 
-        ticket.setStatus(Ticket.TicketStatus.ANNULE);
-        ticket = ticketRepository.save(ticket);
+        // Conditional cancel: a desk may have claimed it since it was read
+        if (!ticketRepository.cancelIfPending(ticketId, LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ticket was already started or cancelled");
+        }
+        ticket = ticketRepository.findById(ticketId)
+                .orElseThrow(() -> new TicketNotFoundException("Ticket not found"));
+        queueManager.ticketCancelled(ticket);
 
         return new TicketCancelDto(
                 ticket.getClient().getUser().getName(),
@@ -587,6 +642,8 @@ public class TicketService {
         );
     }
     // 4. Complete service (EN_COURS → TERMINE)
+    @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "complete"}, histogram = true)
     public TicketCompleteDto completeTicketService(Long ticketId, Long userId) {
         // First get the agency for the current user
         Agency agency = agencyRepository.findByUserId(userId)
@@ -600,8 +657,13 @@ public class TicketService {
             throw new IllegalStateException("Ticket must be in EN_COURS status");
         }
 
-        ticket.completeProcessing();
-        ticket = ticketRepository.save(ticket);
+        // Conditional completion: the ticket may have been cancelled or completed since it was read
+        if (!ticketRepository.completeIfServing(ticketId, LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ticket was already completed or cancelled");
+        }
+        ticket = ticketRepository.findById(ticketId)
+                .orElseThrow(() -> new TicketNotFoundException("Ticket not found"));
+        queueManager.ticketFinished(ticket);
 
         return new TicketCompleteDto(
                 ticket.getNumber(),
@@ -611,6 +673,7 @@ public class TicketService {
     }
     // 5. Cancel active ticket (EN_COURS → ANNULE)
     @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "cancel"}, histogram = true)
     public TicketCancelDto cancelActiveTicket(Long ticketId, Long userId) {
         // First get the agency for the current user
         Agency agency = agencyRepository.findByUser_Id(userId)
@@ -624,8 +687,13 @@ public class TicketService {
             throw new IllegalStateException("Ticket must be in EN_COURS status");
         }
 
-        ticket.setStatus(Ticket.TicketStatus.ANNULE);
-        ticket = ticketRepository.save(ticket);
+        // Conditional cancel: the ticket may have been completed or cancelled since it was read
+        if (!ticketRepository.cancelIfServing(ticketId, LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ticket was already completed or cancelled");
+        }
+        ticket = ticketRepository.findById(ticketId)
+                .orElseThrow(() -> new TicketNotFoundException("Ticket not found"));
+        queueManager.ticketFinished(ticket);
 
         return new TicketCancelDto(
                 ticket.getClient().getUser().getName(),
@@ -633,15 +701,10 @@ public class TicketService {
         );
     }
     // 6. Get all clients for agency
+    @Transactional(readOnly = true)
     public List<ClientDto> getAgencyClients(Long agencyId) {
-        // Option 1: Using JPQL query
-        return clientRepository.findClientsByAgencyId(agencyId).stream()
-                .map(client -> new ClientDto(
-                        client.getUser().getName(),
-                        client.getUser().getEmail(),
-                        client.getUser().getPhone()
-                ))
-                .collect(Collectors.toList());
+        // Option 1: Using JPQL query (projection, no Client/User entities loaded)
+        return clientRepository.findClientsByAgencyId(agencyId);
 
         // Option 2: Alternative implementation
         // return ticketRepository.findByAgencyId(agencyId).stream()
@@ -656,16 +719,8 @@ public class TicketService {
     }
 
     // Helper methods
-    private int calculatePosition(Ticket ticket) {
-        return ticketRepository.countByAgencyIdAndSequenceLessThanAndPending(
-                ticket.getAgency().getId(),
-                Integer.parseInt(ticket.getNumber().substring(5))
-                        + 1);
-    }
-
-    private String calculateWaitTime(Ticket ticket) {
-        int position = calculatePosition(ticket);
-        int minutes = position * 5; // 5 minutes per person
+    private String formatWaitTime(Long agencyId, int position) {
+        int minutes = waitTimeEstimator.estimateWaitMinutes(agencyId, position);
         return minutes < 60 ? minutes + " minutes" :
                 (minutes / 60) + " hours " + (minutes % 60) + " minutes";
     }
@@ -676,15 +731,14 @@ public class TicketService {
      * Get next available ticket number for an agency
      */
     public String getNextTicketNumber(Long agencyId) {
-        Integer lastSequence = ticketRepository.findMaxSequenceByAgency(agencyId).orElse(0);
-        int nextSequence = lastSequence + 1;
-        return String.format("NOUBA%03d", nextSequence);
+        return Ticket.generateTicketNumber(sequenceAllocator.peekNext(agencyId));
     }
 
     /**
      * Generate ticket with specific number (if available)
+     * The number is reserved before the ticket's transaction, for the same reason as in generateTicket
      */
-    @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "generate"}, histogram = true)
     public Ticket generateTicketWithNumber(Long agencyId, Long serviceId, Long clientId, Client client, String ticketNumber) {
         Agency agency = agencyRepository.findById(agencyId)
                 .orElseThrow(() -> new RuntimeException("Agency not found"));
@@ -714,30 +768,21 @@ public class TicketService {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "This ticket number is already taken");
         }
 
-        // Check if number is the next available
-        Integer lastSequence = ticketRepository.findMaxSequenceByAgency(agencyId).orElse(0);
-        if (sequenceNumber <= lastSequence) {
+        // Check if number is the next available (numbers already reserved by the allocator are taken)
+        int nextAvailable = sequenceAllocator.peekNext(agencyId);
+        if (sequenceNumber < nextAvailable) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "Please choose a number after " + String.format("NOUBA%03d", lastSequence));
+                    "Please choose a number after " + String.format("NOUBA%03d", nextAvailable - 1));
         }
+        sequenceAllocator.advancePast(agencyId, sequenceNumber);
 
-        Ticket ticket = new Ticket();
-        ticket.setAgency(agency);
-        ticket.setAgencyService(service);
-        ticket.setClient(client);
-        ticket.setSequenceNumber(sequenceNumber);
-        ticket.setNumber(ticketNumber);
-        ticket.setIssuedAt(LocalDateTime.now());
-        ticket.setStatus(Ticket.TicketStatus.EN_ATTENTE);
-
-        try {
-            Ticket savedTicket = ticketRepository.save(ticket);
-            sendTicketCreationConfirmation(savedTicket); // Send detailed confirmation
-            sendTicketNotification(savedTicket); // Send regular notification
-            return savedTicket;
-        } catch (DataIntegrityViolationException e) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "This ticket number is already taken");
-        }
+        return transactionTemplate.execute(status -> {
+            try {
+                return issueTicket(agency, service, client, sequenceNumber, ticketNumber);
+            } catch (DataIntegrityViolationException e) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "This ticket number is already taken");
+            }
+        });
     }
 
     // In TicketService.java
@@ -756,6 +801,7 @@ public class TicketService {
      * Get and start processing the first pending ticket for an agency
      */
     @Transactional
+    @Timed(value = "nouba.ticket.operation", extraTags = {"operation", "start"}, histogram = true)
     public TicketProcessingDto startFirstPendingTicket(Long agencyId, Long userId) {
         // Verify user is from the agency
         Agency agency = agencyRepository.findByUserId(userId)
@@ -765,18 +811,12 @@ public class TicketService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized for this agency");
         }
 
-        // Get the first pending ticket
-        Ticket ticket = ticketRepository.findFirstPendingTicketByAgency(agencyId)
+        // Claim the first pending ticket (EN_ATTENTE → EN_COURS in a single conditional update)
+        LocalDateTime now = LocalDateTime.now();
+        Ticket ticket = queueManager.claimNext(agencyId, entry -> ticketRepository.claimPending(entry.ticketId(), null, now))
+                .flatMap(entry -> ticketRepository.findById(entry.ticketId()))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No pending tickets found"));
-
-        // Verify ticket is still in EN_ATTENTE status
-        if (!ticket.getStatus().equals(Ticket.TicketStatus.EN_ATTENTE)) {
-            throw new IllegalStateException("Ticket is no longer in EN_ATTENTE status");
-        }
-
-        // Update status to EN_COURS
-        ticket.startProcessing();
-        ticket = ticketRepository.save(ticket);
+        queueManager.ticketStarted(ticket);
 
         return new TicketProcessingDto(
                 ticket.getId(),          // Add ticket ID
@@ -810,7 +850,7 @@ public class TicketService {
                     values
             );
 
-            emailService.sendEmail(
+            notificationOutbox.enqueue(
                     ticket.getClient().getUser().getEmail(),
                     "Confirmation de création de ticket - " + ticket.getNumber(),
                     creationContent
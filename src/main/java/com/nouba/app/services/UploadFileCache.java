@@ -0,0 +1,78 @@
+package com.nouba.app.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU of small uploaded files (thumbnails), so the hot ones are served without touching the disk.
+ * Cache mémoire des petits fichiers (vignettes) les plus demandés.
+ *
+ * Only files up to {@code nouba.uploads.cache.max-file-bytes} are kept, and at most
+ * {@code max-total-bytes} in all; the least recently served file goes first. An entry is used
+ * only while the file keeps the size and modification time it was read with.
+ */
+@Component
+public class UploadFileCache {
+
+    private final int maxFileBytes;
+    private final long maxTotalBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    public UploadFileCache(@Value("${nouba.uploads.cache.max-file-bytes:65536}") int maxFileBytes,
+                           @Value("${nouba.uploads.cache.max-total-bytes:16777216}") long maxTotalBytes) {
+        this.maxFileBytes = Math.max(0, maxFileBytes);
+        this.maxTotalBytes = Math.max(0, maxTotalBytes);
+    }
+
+    /**
+     * Content of a small file, read on the first request; null if the file is too large to be cached.
+     */
+    public byte[] get(Path file, long size, long lastModified) throws IOException {
+        if (size > maxFileBytes || size > maxTotalBytes) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(file);
+            if (entry != null && entry.content.length == size && entry.lastModified == lastModified) {
+                return entry.content;
+            }
+        }
+        byte[] content = Files.readAllBytes(file);
+        if (content.length != size) {
+            return null; // replaced while being read, serve it from the disk this time
+        }
+        put(file, new Entry(content, lastModified));
+        return content;
+    }
+
+    public synchronized void evict(Path file) {
+        Entry removed = entries.remove(file);
+        if (removed != null) {
+            totalBytes -= removed.content.length;
+        }
+    }
+
+    private synchronized void put(Path file, Entry entry) {
+        Entry previous = entries.put(file, entry);
+        if (previous != null) {
+            totalBytes -= previous.content.length;
+        }
+        totalBytes += entry.content.length;
+        Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxTotalBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().content.length;
+            eldest.remove();
+        }
+    }
+
+    private record Entry(byte[] content, long lastModified) {
+    }
+}
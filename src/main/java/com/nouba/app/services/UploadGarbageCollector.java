@@ -0,0 +1,145 @@
+package com.nouba.app.services;
+
+import com.nouba.app.repositories.AgencyRepository;
+import com.nouba.app.services.storage.StorageBackend.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Deletes uploaded files nothing refers to any more.
+ * Supprime les fichiers envoyés qui ne sont plus référencés.
+ *
+ * Identical uploads share one file, so a file is referenced by every agency whose photo or photo
+ * variant names it; the reference count is read from those columns rather than kept on the side,
+ * so it can never drift. {@link #releaseAfterCommit} deletes files an agency just stopped using,
+ * and a periodic sweep removes everything else unreferenced (files left by failed requests).
+ * Files younger than {@code nouba.uploads.gc.grace-seconds} are never deleted: they may belong to
+ * an upload whose transaction has not committed yet.
+ *
+ * The sweep only considers names the application generates ({@code objects/} and
+ * {@code variants/}): an S3 bucket without {@code nouba.storage.s3.prefix} may hold other data,
+ * and files stored before uploads were deduplicated are only deleted once released by their agency.
+ */
+@Service
+public class UploadGarbageCollector {
+    private static final Logger logger = LoggerFactory.getLogger(UploadGarbageCollector.class);
+
+    private final FileStorageService fileStorageService;
+    private final AgencyRepository agencyRepository;
+    private final UploadFileCache uploadFileCache;
+    private final boolean enabled;
+    private final long graceMillis;
+
+    public UploadGarbageCollector(FileStorageService fileStorageService,
+                                  AgencyRepository agencyRepository,
+                                  UploadFileCache uploadFileCache,
+                                  @Value("${nouba.uploads.gc.enabled:true}") boolean enabled,
+                                  @Value("${nouba.uploads.gc.grace-seconds:600}") long graceSeconds) {
+        this.fileStorageService = fileStorageService;
+        this.agencyRepository = agencyRepository;
+        this.uploadFileCache = uploadFileCache;
+        this.enabled = enabled;
+        this.graceMillis = graceSeconds * 1000;
+    }
+
+    /**
+     * Deletes the given files once the current transaction commits, unless another agency still
+     * uses them (or they are within the grace period; the next sweep gets them then).
+     */
+    public void releaseAfterCommit(String... fileNames) {
+        Runnable release = () -> release(Arrays.stream(fileNames).filter(Objects::nonNull).toList());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release.run();
+                }
+            });
+        } else {
+            release.run();
+        }
+    }
+
+    public void release(List<String> fileNames) {
+        for (String fileName : fileNames) {
+            if (agencyRepository.countFileReferences(fileName) == 0) {
+                try {
+                    deleteIfOld(fileName, fileStorageService.lastModified(fileName), System.currentTimeMillis());
+                } catch (IOException e) {
+                    logger.warn("Could not delete unreferenced upload {}: {}", fileName, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sweeps the stored files. Returns the number of files deleted.
+     */
+    @Scheduled(initialDelayString = "${nouba.uploads.gc.initial-delay-ms:300000}",
+            fixedDelayString = "${nouba.uploads.gc.interval-ms:21600000}")
+    public int collect() {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        // Read before listing: a file stored after this point is younger than the grace period anyway
+        Set<String> referenced = new HashSet<>();
+        for (Object[] files : agencyRepository.findFileReferences()) {
+            for (Object file : files) {
+                if (file != null) {
+                    referenced.add((String) file);
+                }
+            }
+        }
+        int deleted = 0;
+        try (Stream<StoredObject> files = fileStorageService.listFiles()) {
+            for (StoredObject file : (Iterable<StoredObject>) files::iterator) {
+                if (isGenerated(file.name()) && !referenced.contains(file.name())
+                        && deleteIfOld(file.name(), file.lastModified(), now)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Upload garbage collection stopped: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("Upload garbage collection deleted {} unreferenced files", deleted);
+        }
+        return deleted;
+    }
+
+    private static boolean isGenerated(String fileName) {
+        return fileName.startsWith(FileStorageService.OBJECTS_DIR) || fileName.startsWith(ImageVariantService.VARIANTS_DIR);
+    }
+
+    private boolean deleteIfOld(String fileName, long lastModified, long now) {
+        if (lastModified < 0 || now - lastModified < graceMillis) {
+            return false;
+        }
+        try {
+            fileStorageService.deleteFile(fileName);
+        } catch (RuntimeException e) {
+            logger.warn("Could not delete unreferenced upload {}: {}", fileName, e.getMessage());
+            return false;
+        }
+        Path local = fileStorageService.locate(fileName);
+        if (local != null) {
+            uploadFileCache.evict(local);
+        }
+        return true;
+    }
+}
@@ -8,6 +8,7 @@ import com.nouba.app.entities.User;
 import com.nouba.app.entities.Role;
 import com.nouba.app.repositories.ClientRepository;
 import com.nouba.app.repositories.UserRepository;
+import com.nouba.app.security.TokenAuthenticationCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import com.nouba.app.repositories.AgencyRepository;
@@ -25,6 +26,9 @@ public class UserService {
     private final UserRepository userRepository;
     private final AgencyRepository agencyRepository;
     private final ClientRepository clientRepository;
+    private final TokenAuthenticationCache tokenCache;
+    private final CatalogueCache catalogueCache;
+    private final UploadGarbageCollector uploadGarbageCollector;
 
 
 
@@ -70,12 +74,18 @@ public class UserService {
 
         // Delete associated Agency if exists
         if (user.getAgency() != null) {
-            agencyRepository.delete(user.getAgency());
+            Agency agency = user.getAgency();
+            agencyRepository.delete(agency);
+            catalogueCache.invalidateAfterCommit();
+            uploadGarbageCollector.releaseAfterCommit(agency.getPhotoUrl(), agency.getPhotoThumbnailUrl(), agency.getPhotoMediumUrl());
         }
 
         // Now delete the user
         userRepository.delete(user);
 
+        // Tokens already issued to this user must stop working right away
+        tokenCache.invalidateUserAfterCommit(id);
+
         return new ApiResponse<>("User and associated records deleted successfully", 200);
     }
 
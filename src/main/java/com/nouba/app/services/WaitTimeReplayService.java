@@ -0,0 +1,190 @@
+package com.nouba.app.services;
+
+import com.nouba.app.dto.WaitTimeReplayReportDTO;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.entities.TicketArchive;
+import com.nouba.app.repositories.TicketArchiveRepository;
+import com.nouba.app.services.queue.ServiceTimeEwma;
+import com.nouba.app.services.queue.WaitTimeEstimator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Offline replay of archived tickets to score the wait-time estimator.
+ * Rejoue l'historique archivé pour mesurer la précision de l'estimation d'attente.
+ *
+ * Each agency's day is rebuilt as a timeline of issue / start / end events. At every issue
+ * the estimator predicts the wait from the tickets waiting and being served at that moment,
+ * using only service times observed earlier in the replay, and the prediction is compared
+ * with the real {@code startedAt - issuedAt}. The former fixed rule (5 minutes per person)
+ * is scored on the same tickets.
+ */
+@Service
+@RequiredArgsConstructor
+public class WaitTimeReplayService {
+    private static final int FIXED_MINUTES_PER_TICKET = 5;
+    private static final int MAX_REPLAY_DAYS = 92;
+
+    private final TicketArchiveRepository archiveRepository;
+    private final WaitTimeEstimator estimator;
+
+    @Transactional(readOnly = true)
+    public WaitTimeReplayReportDTO replay(LocalDate from, LocalDate to, Long agencyId) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) > MAX_REPLAY_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Replay window must be between 0 and " + MAX_REPLAY_DAYS + " days");
+        }
+        List<TicketArchive> tickets = archiveRepository.findIssuedBetween(
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), agencyId);
+
+        Scores estimated = new Scores();
+        Scores fixed = new Scores();
+        int agencies = 0;
+        int start = 0;
+        // Rows come grouped by agency: replay each group on its own timeline
+        while (start < tickets.size()) {
+            Long currentAgency = tickets.get(start).getAgencyId();
+            int end = start;
+            while (end < tickets.size() && Objects.equals(tickets.get(end).getAgencyId(), currentAgency)) {
+                end++;
+            }
+            replayAgency(tickets.subList(start, end), estimated, fixed);
+            agencies++;
+            start = end;
+        }
+
+        return WaitTimeReplayReportDTO.builder()
+                .from(from)
+                .to(to)
+                .agencyId(agencyId)
+                .agencies(agencies)
+                .tickets(tickets.size())
+                .samples(estimated.size)
+                .estimatorMeanAbsErrorMinutes(estimated.meanAbsError())
+                .estimatorP90AbsErrorMinutes(estimated.absErrorPercentile(0.9))
+                .estimatorBiasMinutes(estimated.bias())
+                .fixedMeanAbsErrorMinutes(fixed.meanAbsError())
+                .fixedP90AbsErrorMinutes(fixed.absErrorPercentile(0.9))
+                .fixedBiasMinutes(fixed.bias())
+                .build();
+    }
+
+    private void replayAgency(List<TicketArchive> tickets, Scores estimated, Scores fixed) {
+        List<Event> events = new ArrayList<>();
+        for (TicketArchive ticket : tickets) {
+            if (ticket.getIssuedAt() == null) {
+                continue;
+            }
+            if (ticket.getStartedAt() != null) {
+                events.add(new Event(ticket.getIssuedAt(), EventType.ISSUE, ticket));
+                events.add(new Event(ticket.getStartedAt(), EventType.START, ticket));
+                if (ticket.getCompletedAt() != null) {
+                    events.add(new Event(ticket.getCompletedAt(), EventType.END, ticket));
+                }
+            } else if (ticket.getCompletedAt() != null) {
+                // Cancelled while waiting: it held a place in the line until then
+                events.add(new Event(ticket.getIssuedAt(), EventType.ISSUE, ticket));
+                events.add(new Event(ticket.getCompletedAt(), EventType.LEAVE, ticket));
+            }
+            // Otherwise we cannot tell when the ticket left the line: left out of the replay
+        }
+        events.sort(Comparator.comparing(Event::at).thenComparing(Event::type));
+
+        ServiceTimeEwma ewma = estimator.newEwma();
+        int pending = 0;
+        int serving = 0;
+        for (Event event : events) {
+            TicketArchive ticket = event.ticket();
+            switch (event.type()) {
+                case END -> {
+                    serving = Math.max(0, serving - 1);
+                    if (ticket.getStatus() == Ticket.TicketStatus.TERMINE) {
+                        double minutes = minutesBetween(ticket.getStartedAt(), ticket.getCompletedAt());
+                        if (estimator.accept(minutes)) {
+                            ewma.observe(minutes);
+                        }
+                    }
+                }
+                case START -> {
+                    pending = Math.max(0, pending - 1);
+                    serving++;
+                }
+                case LEAVE -> pending = Math.max(0, pending - 1);
+                case ISSUE -> {
+                    if (ticket.getStartedAt() != null) {
+                        double actual = minutesBetween(ticket.getIssuedAt(), ticket.getStartedAt());
+                        estimated.add(WaitTimeEstimator.estimate(pending, ewma.mean(), serving) - actual);
+                        fixed.add(pending * FIXED_MINUTES_PER_TICKET - actual);
+                    }
+                    pending++;
+                }
+            }
+        }
+    }
+
+    private static double minutesBetween(LocalDateTime from, LocalDateTime to) {
+        return Duration.between(from, to).toMillis() / 60000.0;
+    }
+
+    // Declaration order is the processing order of events at the same instant
+    private enum EventType { END, START, LEAVE, ISSUE }
+
+    private record Event(LocalDateTime at, EventType type, TicketArchive ticket) {
+    }
+
+    /**
+     * Signed errors (estimate - actual) in minutes.
+     */
+    private static final class Scores {
+        private double[] errors = new double[256];
+        private int size;
+
+        void add(double error) {
+            if (size == errors.length) {
+                errors = Arrays.copyOf(errors, size * 2);
+            }
+            errors[size++] = error;
+        }
+
+        double meanAbsError() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += Math.abs(errors[i]);
+            }
+            return size == 0 ? 0 : sum / size;
+        }
+
+        double bias() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += errors[i];
+            }
+            return size == 0 ? 0 : sum / size;
+        }
+
+        double absErrorPercentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            double[] abs = new double[size];
+            for (int i = 0; i < size; i++) {
+                abs[i] = Math.abs(errors[i]);
+            }
+            Arrays.sort(abs);
+            return abs[(int) Math.min(size - 1, Math.ceil(percentile * size) - 1)];
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.nouba.app.services.queue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory waiting line of a single agency.
+ * File d'attente en mémoire d'une seule agence.
+ *
+ * Pending tickets are ordered by sequence number. A Fenwick tree indexed by
+ * sequence keeps "how many pending tickets before sequence N" at O(log n),
+ * so position lookups never have to walk the queue. {@link #pollNext()} hands the head
+ * of the line to exactly one caller, so several desks can serve the same agency at once.
+ * All methods are synchronized on the queue: one agency never contends with another.
+ */
+public class AgencyQueue {
+    private static final int INITIAL_CAPACITY = 128;
+
+    private final Long agencyId;
+    private final NavigableMap<Integer, QueueEntry> pending = new TreeMap<>();
+    private final Map<Long, QueueEntry> pendingByTicketId = new HashMap<>();
+    private final LinkedHashMap<Long, QueueEntry> serving = new LinkedHashMap<>();
+    // Pending tickets whose approach notification was already sent
+    private final Set<Long> approachNotified = new HashSet<>();
+    // Desk -> ticket being served there, and the reverse
+    private final Map<Integer, Long> ticketByDesk = new HashMap<>();
+    private final Map<Long, Integer> deskByTicket = new HashMap<>();
+
+    // Fenwick tree over (sequence + 1), so sequence 0 is still addressable
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+
+    public AgencyQueue(Long agencyId) {
+        this.agencyId = agencyId;
+    }
+
+    public Long getAgencyId() {
+        return agencyId;
+    }
+
+    /**
+     * Adds a waiting ticket. Returns false if the ticket is already known.
+     */
+    public synchronized boolean enqueue(QueueEntry entry) {
+        if (pendingByTicketId.containsKey(entry.ticketId()) || serving.containsKey(entry.ticketId())) {
+            return false;
+        }
+        QueueEntry previous = pending.put(entry.sequence(), entry);
+        if (previous != null) {
+            // Same sequence re-used by another ticket: keep the tree count unchanged
+            pendingByTicketId.remove(previous.ticketId());
+        } else {
+            add(entry.sequence(), 1);
+        }
+        pendingByTicketId.put(entry.ticketId(), entry);
+        return true;
+    }
+
+    /**
+     * Removes a waiting ticket (cancelled or started elsewhere).
+     */
+    public synchronized Optional<QueueEntry> removePending(Long ticketId) {
+        QueueEntry entry = pendingByTicketId.remove(ticketId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        pending.remove(entry.sequence());
+        approachNotified.remove(ticketId);
+        add(entry.sequence(), -1);
+        return Optional.of(entry);
+    }
+
+    /**
+     * Removes and returns the head of the line. Two callers never get the same ticket.
+     */
+    public synchronized Optional<QueueEntry> pollNext() {
+        Map.Entry<Integer, QueueEntry> first = pending.firstEntry();
+        if (first == null) {
+            return Optional.empty();
+        }
+        return removePending(first.getValue().ticketId());
+    }
+
+    /**
+     * Moves a ticket to the "being served" set, removing it from the pending line if present.
+     * {@code desk} may be null when the ticket is not served at a numbered desk.
+     */
+    public synchronized void markServing(QueueEntry entry, Integer desk) {
+        removePending(entry.ticketId());
+        finishServing(entry.ticketId());
+        serving.put(entry.ticketId(), entry);
+        if (desk != null) {
+            Long previous = ticketByDesk.put(desk, entry.ticketId());
+            if (previous != null) {
+                // The desk moved on without closing its ticket; it no longer "owns" it
+                deskByTicket.remove(previous);
+            }
+            deskByTicket.put(entry.ticketId(), desk);
+        }
+    }
+
+    /**
+     * Forgets a ticket that is no longer being served (completed or cancelled).
+     */
+    public synchronized Optional<QueueEntry> finishServing(Long ticketId) {
+        Integer desk = deskByTicket.remove(ticketId);
+        if (desk != null) {
+            ticketByDesk.remove(desk);
+        }
+        return Optional.ofNullable(serving.remove(ticketId));
+    }
+
+    /**
+     * Ticket currently served at a desk, if any.
+     */
+    public synchronized Optional<Long> servingAtDesk(int desk) {
+        return Optional.ofNullable(ticketByDesk.get(desk));
+    }
+
+    public synchronized Optional<QueueEntry> peekNext() {
+        Map.Entry<Integer, QueueEntry> first = pending.firstEntry();
+        return first == null ? Optional.empty() : Optional.of(first.getValue());
+    }
+
+    /**
+     * Most recently started ticket, i.e. the one shown as "current" on the agency screen.
+     */
+    public synchronized Optional<QueueEntry> currentServing() {
+        Map.Entry<Long, QueueEntry> last = serving.lastEntry();
+        return last == null ? Optional.empty() : Optional.of(last.getValue());
+    }
+
+    /**
+     * Number of pending tickets ahead of a pending ticket, or empty if the ticket is not waiting.
+     */
+    public synchronized OptionalInt peopleAhead(Long ticketId) {
+        QueueEntry entry = pendingByTicketId.get(ticketId);
+        if (entry == null) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(pendingBefore(entry.sequence()));
+    }
+
+    /**
+     * Number of pending tickets with a sequence strictly lower than the given one.
+     */
+    public synchronized int pendingBefore(int sequence) {
+        return prefixSum(sequence);
+    }
+
+    /**
+     * Number of pending tickets with a sequence lower than or equal to the given one.
+     */
+    public synchronized int pendingUpTo(int sequence) {
+        return prefixSum(sequence + 1);
+    }
+
+    public synchronized int pendingCount() {
+        return pendingByTicketId.size();
+    }
+
+    public synchronized int servingCount() {
+        return serving.size();
+    }
+
+    public synchronized boolean isPending(Long ticketId) {
+        return pendingByTicketId.containsKey(ticketId);
+    }
+
+    public synchronized boolean isServing(Long ticketId) {
+        return serving.containsKey(ticketId);
+    }
+
+    public synchronized List<QueueEntry> pendingSnapshot() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Pending tickets with at most {@code threshold} people ahead that were not notified yet.
+     * Only looks at the head of the line, so the cost does not depend on the queue length.
+     */
+    public synchronized List<QueueEntry> approachCandidates(int threshold) {
+        List<QueueEntry> candidates = new ArrayList<>();
+        int position = 0;
+        for (QueueEntry entry : pending.values()) {
+            if (position++ > threshold) {
+                break;
+            }
+            if (!approachNotified.contains(entry.ticketId())) {
+                candidates.add(entry);
+            }
+        }
+        return candidates;
+    }
+
+    public synchronized void markApproachNotified(Long ticketId) {
+        if (pendingByTicketId.containsKey(ticketId)) {
+            approachNotified.add(ticketId);
+        }
+    }
+
+    // ---- Fenwick tree helpers ----
+
+    private void add(int sequence, int delta) {
+        int index = sequence + 1;
+        if (index >= tree.length) {
+            // Rebuilt from the pending map, which already reflects this change
+            grow(index);
+            return;
+        }
+        for (; index < tree.length; index += index & -index) {
+            tree[index] += delta;
+        }
+    }
+
+    /**
+     * Sum of counts for sequences in [0, sequence).
+     */
+    private int prefixSum(int sequence) {
+        int index = Math.min(sequence, tree.length - 1);
+        int sum = 0;
+        for (; index > 0; index -= index & -index) {
+            sum += tree[index];
+        }
+        return sum;
+    }
+
+    private void grow(int minIndex) {
+        int capacity = Integer.highestOneBit(minIndex) << 1;
+        tree = new int[capacity + 1];
+        for (Integer sequence : pending.keySet()) {
+            for (int index = sequence + 1; index < tree.length; index += index & -index) {
+                tree[index] += 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.nouba.app.services.queue;
+
+import com.nouba.app.entities.Agency;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.repositories.AgencyRepository;
+import com.nouba.app.repositories.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Holds one {@link AgencyQueue} per agency and keeps it in sync with the ticket table.
+ * Gère une file en mémoire par agence, synchronisée avec la table ticket.
+ *
+ * Reads (position, next ticket, pending count) are served from memory only.
+ * Writes are persisted through {@link TicketRepository} by the caller first; the
+ * in-memory change is applied once the surrounding transaction commits, so a
+ * rolled-back reservation never shows up in the queue. Once applied, every change
+ * publishes a {@link TicketStatusChangedEvent} and a {@link QueueChangedEvent}, changes
+ * that move the line forward or add to it also publish a {@link QueueAdvancedEvent}, and completed
+ * tickets publish a {@link TicketServedEvent}.
+ *
+ * The one exception is {@link #claimNext}: the head of the line is taken out right away so
+ * that concurrent desks never pick the same ticket, and put back if the transaction rolls back.
+ */
+@Component
+@RequiredArgsConstructor
+public class AgencyQueueManager {
+    private static final Logger logger = LoggerFactory.getLogger(AgencyQueueManager.class);
+
+    private final TicketRepository ticketRepository;
+    private final AgencyRepository agencyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentMap<Long, AgencyQueue> queues = new ConcurrentHashMap<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    // ticketId -> agencyId for every ticket currently held in memory
+    private final ConcurrentMap<Long, Long> ticketAgencies = new ConcurrentHashMap<>();
+
+    /**
+     * Rebuilds every agency queue from the database on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        reset();
+        int pending = 0;
+        for (Agency agency : agencyRepository.findAll()) {
+            pending += queue(agency.getId()).pendingCount();
+        }
+        logger.info("Agency queues rebuilt: {} agencies, {} pending tickets", queues.size(), pending);
+    }
+
+    /**
+     * Forgets all in-memory queues; they are reloaded lazily on next access.
+     */
+    public void reset() {
+        queues.clear();
+        ticketAgencies.clear();
+    }
+
+    // ---------- Reads ----------
+
+    public int pendingCount(Long agencyId) {
+        return queue(agencyId).pendingCount();
+    }
+
+    public int servingCount(Long agencyId) {
+        return queue(agencyId).servingCount();
+    }
+
+    /**
+     * People ahead of a waiting ticket, or empty if the ticket is not waiting.
+     */
+    public OptionalInt peopleAhead(Long ticketId) {
+        Long agencyId = ticketAgencies.get(ticketId);
+        if (agencyId == null) {
+            return OptionalInt.empty();
+        }
+        return queue(agencyId).peopleAhead(ticketId);
+    }
+
+    public int pendingBefore(Long agencyId, int sequence) {
+        return queue(agencyId).pendingBefore(sequence);
+    }
+
+    public int pendingUpTo(Long agencyId, int sequence) {
+        return queue(agencyId).pendingUpTo(sequence);
+    }
+
+    public Optional<Long> nextPendingTicketId(Long agencyId) {
+        return queue(agencyId).peekNext().map(QueueEntry::ticketId);
+    }
+
+    public Optional<Long> currentServingTicketId(Long agencyId) {
+        return queue(agencyId).currentServing().map(QueueEntry::ticketId);
+    }
+
+    public Optional<Long> servingAtDesk(Long agencyId, int desk) {
+        return queue(agencyId).servingAtDesk(desk);
+    }
+
+    /**
+     * Queues currently held in memory (does not load anything).
+     */
+    public List<AgencyQueue> loadedQueues() {
+        return List.copyOf(queues.values());
+    }
+
+    public AgencyQueue queue(Long agencyId) {
+        // Loading hits the database once per agency, then the queue lives in memory
+        AgencyQueue queue = queues.get(agencyId);
+        if (queue != null) {
+            return queue;
+        }
+        // Not computeIfAbsent: the queries would run inside the map's synchronized bin, which pins
+        // a virtual thread (and every one waiting for that agency) to its carrier
+        loadLock.lock();
+        try {
+            queue = queues.get(agencyId);
+            if (queue == null) {
+                queue = load(agencyId);
+                queues.put(agencyId, queue);
+            }
+            return queue;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    // ---------- Claims ----------
+
+    /**
+     * Takes waiting tickets off the head of the line until {@code claim} accepts one.
+     * {@code claim} persists the claim (conditional UPDATE) and returns false when the ticket
+     * was already started or cancelled elsewhere; such tickets are simply dropped from the line.
+     * The accepted ticket is put back in the line if the surrounding transaction rolls back.
+     * The caller still reports the started ticket through {@link #ticketStarted(Ticket)}.
+     */
+    public Optional<QueueEntry> claimNext(Long agencyId, Predicate<QueueEntry> claim) {
+        AgencyQueue queue = queue(agencyId);
+        while (true) {
+            Optional<QueueEntry> head = queue.pollNext();
+            if (head.isEmpty()) {
+                return Optional.empty();
+            }
+            QueueEntry entry = head.get();
+            boolean claimed;
+            try {
+                claimed = claim.test(entry);
+            } catch (RuntimeException e) {
+                // Nothing was written for this ticket: it is still waiting
+                queue.enqueue(entry);
+                throw e;
+            }
+            if (claimed) {
+                afterRollback(() -> queue(agencyId).enqueue(entry));
+                return head;
+            }
+            logger.debug("Ticket {} of agency {} was no longer waiting, skipped", entry.ticketId(), agencyId);
+        }
+    }
+
+    // ---------- Writes (applied after commit) ----------
+
+    public void ticketIssued(Ticket ticket) {
+        QueueEntry entry = QueueEntry.of(ticket);
+        Long agencyId = ticket.getAgency().getId();
+        afterCommit(() -> {
+            if (queue(agencyId).enqueue(entry)) {
+                ticketAgencies.put(entry.ticketId(), agencyId);
+            }
+            eventPublisher.publishEvent(new TicketStatusChangedEvent(agencyId, entry.issuedAt(), null, Ticket.TicketStatus.EN_ATTENTE));
+            eventPublisher.publishEvent(new QueueChangedEvent(agencyId));
+            // A ticket taken while the line is short is already close to the head
+            eventPublisher.publishEvent(new QueueAdvancedEvent(agencyId));
+        });
+    }
+
+    public void ticketStarted(Ticket ticket) {
+        QueueEntry entry = QueueEntry.of(ticket);
+        Long agencyId = ticket.getAgency().getId();
+        Integer desk = ticket.getDeskNumber();
+        afterCommit(() -> {
+            queue(agencyId).markServing(entry, desk);
+            ticketAgencies.put(entry.ticketId(), agencyId);
+            eventPublisher.publishEvent(new TicketStatusChangedEvent(agencyId, entry.issuedAt(),
+                    Ticket.TicketStatus.EN_ATTENTE, Ticket.TicketStatus.EN_COURS));
+            eventPublisher.publishEvent(new QueueChangedEvent(agencyId));
+            eventPublisher.publishEvent(new QueueAdvancedEvent(agencyId));
+        });
+    }
+
+    /**
+     * A ticket that was being served is now completed or cancelled.
+     */
+    public void ticketFinished(Ticket ticket) {
+        Long ticketId = ticket.getId();
+        Long agencyId = ticket.getAgency().getId();
+        LocalDateTime issuedAt = ticket.getIssuedAt();
+        Ticket.TicketStatus finalStatus = ticket.getStatus();
+        TicketServedEvent served = finalStatus == Ticket.TicketStatus.TERMINE
+                ? new TicketServedEvent(agencyId,
+                        ticket.getAgencyService() != null ? ticket.getAgencyService().getId() : null,
+                        ticket.getStartedAt(), ticket.getCompletedAt())
+                : null;
+        afterCommit(() -> {
+            queue(agencyId).finishServing(ticketId);
+            ticketAgencies.remove(ticketId);
+            eventPublisher.publishEvent(new TicketStatusChangedEvent(agencyId, issuedAt, Ticket.TicketStatus.EN_COURS, finalStatus));
+            if (served != null) {
+                eventPublisher.publishEvent(served);
+            }
+            eventPublisher.publishEvent(new QueueChangedEvent(agencyId));
+            eventPublisher.publishEvent(new QueueAdvancedEvent(agencyId));
+        });
+    }
+
+    /**
+     * A waiting ticket was cancelled before being served.
+     */
+    public void ticketCancelled(Ticket ticket) {
+        Long ticketId = ticket.getId();
+        Long agencyId = ticket.getAgency().getId();
+        LocalDateTime issuedAt = ticket.getIssuedAt();
+        afterCommit(() -> {
+            queue(agencyId).removePending(ticketId);
+            ticketAgencies.remove(ticketId);
+            eventPublisher.publishEvent(new TicketStatusChangedEvent(agencyId, issuedAt,
+                    Ticket.TicketStatus.EN_ATTENTE, Ticket.TicketStatus.ANNULE));
+            eventPublisher.publishEvent(new QueueChangedEvent(agencyId));
+            eventPublisher.publishEvent(new QueueAdvancedEvent(agencyId));
+        });
+    }
+
+    public void resetAfterCommit() {
+        afterCommit(() -> {
+            reset();
+            eventPublisher.publishEvent(new QueueChangedEvent(null));
+        });
+    }
+
+    // ---------- Helpers ----------
+
+    private AgencyQueue load(Long agencyId) {
+        AgencyQueue queue = new AgencyQueue(agencyId);
+        for (Ticket ticket : ticketRepository.findAllPendingByAgencyId(agencyId)) {
+            queue.enqueue(QueueEntry.of(ticket));
+            if (ticket.isApproachNotified()) {
+                queue.markApproachNotified(ticket.getId());
+            }
+            ticketAgencies.put(ticket.getId(), agencyId);
+        }
+        for (Ticket ticket : ticketRepository.findByAgencyIdAndStatusOrderByStartedAtAsc(agencyId, Ticket.TicketStatus.EN_COURS)) {
+            queue.markServing(QueueEntry.of(ticket), ticket.getDeskNumber());
+            ticketAgencies.put(ticket.getId(), agencyId);
+        }
+        return queue;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+}
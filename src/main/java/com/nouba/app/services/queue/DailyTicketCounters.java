@@ -0,0 +1,181 @@
+package com.nouba.app.services.queue;
+
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.repositories.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-agency counts of today's tickets by status, kept in memory.
+ * Compteurs en mémoire des tickets du jour par statut, par agence.
+ *
+ * An agency is loaded with a single GROUP BY status query on an issuedAt range (index
+ * friendly, unlike DATE(issuedAt) = CURRENT_DATE), then every committed status transition
+ * of a ticket issued today moves one unit from one status to another. Reads touch no rows.
+ * Counters are reloaded when the day changes and dropped when the queues are reset.
+ *
+ * Transitions reported before a load starts are already in its GROUP BY and are not applied
+ * (the agency is not in the map yet). One reported while the query runs may or may not be in
+ * its result, so the load is run again until a query completes with no transition reported
+ * meanwhile. After {@value #MAX_LOAD_ATTEMPTS} attempts on a busy agency the last result is kept
+ * and the transitions reported during it are replayed on top: any of them the query already
+ * saw is counted twice. Likewise a transition committed before the query but reported after it
+ * (the time between a commit and its afterCommit callback) is counted twice.
+ */
+@Component
+@RequiredArgsConstructor
+public class DailyTicketCounters {
+    private static final int MAX_LOAD_ATTEMPTS = 5;
+    private static final int LOCK_STRIPES = 64;
+
+    private final TicketRepository ticketRepository;
+
+    private final ConcurrentMap<Long, Counters> counters = new ConcurrentHashMap<>();
+    // Per agency (striped): agencies loading at the same time do not wait for each other
+    private final ReentrantLock[] loadLocks = newLocks();
+
+    /**
+     * Today's counts for an agency, indexed by {@link Ticket.TicketStatus#ordinal()}.
+     */
+    public int[] today(Long agencyId) {
+        LocalDate today = LocalDate.now();
+        Counters current = counters.get(agencyId);
+        if (current == null || !current.day.equals(today) || !current.isLoaded()) {
+            current = load(agencyId, today);
+        }
+        return current.snapshot();
+    }
+
+    public int today(Long agencyId, Ticket.TicketStatus status) {
+        return today(agencyId)[status.ordinal()];
+    }
+
+    @EventListener
+    public void onStatusChanged(TicketStatusChangedEvent event) {
+        if (event.issuedAt() == null) {
+            return;
+        }
+        LocalDate day = event.issuedAt().toLocalDate();
+        // Only agencies loaded (or loading) for that day; others load the committed state on first read
+        Counters existing = counters.get(event.agencyId());
+        if (existing != null && existing.day.equals(day)) {
+            existing.move(event.from(), event.to());
+        }
+    }
+
+    @EventListener
+    public void onQueueChanged(QueueChangedEvent event) {
+        if (event.agencyId() == null) {
+            counters.clear(); // queues were reset (rollover, restore)
+        }
+    }
+
+    private Counters load(Long agencyId, LocalDate day) {
+        // Not compute(): the query would run inside the map's synchronized bin, and events of the
+        // agency would wait for it there (see AgencyQueueManager.queue)
+        ReentrantLock lock = loadLocks[Math.floorMod(agencyId.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            Counters current = counters.get(agencyId);
+            if (current != null && current.day.equals(day) && current.isLoaded()) {
+                return current;
+            }
+            // In the map before the query runs, so that transitions reported meanwhile are recorded
+            Counters loading = new Counters(day);
+            counters.put(agencyId, loading);
+            try {
+                LocalDateTime from = day.atStartOfDay();
+                for (int attempt = 1; ; attempt++) {
+                    loading.startLoad();
+                    int[] counts = new int[Ticket.TicketStatus.values().length];
+                    for (Object[] row : ticketRepository.countByAgencyAndStatusIssuedBetween(agencyId, from, from.plusDays(1))) {
+                        Ticket.TicketStatus status = (Ticket.TicketStatus) row[0];
+                        counts[status.ordinal()] = ((Number) row[1]).intValue();
+                    }
+                    if (loading.loaded(counts, attempt == MAX_LOAD_ATTEMPTS)) {
+                        return loading;
+                    }
+                }
+            } catch (RuntimeException e) {
+                counters.remove(agencyId, loading);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ReentrantLock[] newLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private static final class Counters {
+        private final LocalDate day;
+        private final int[] counts = new int[Ticket.TicketStatus.values().length];
+        // Transitions reported while the counts are loading; null when loaded
+        private List<Ticket.TicketStatus[]> reportedDuringLoad = new ArrayList<>();
+
+        Counters(LocalDate day) {
+            this.day = day;
+        }
+
+        synchronized boolean isLoaded() {
+            return reportedDuringLoad == null;
+        }
+
+        /**
+         * Forgets the transitions reported during a previous attempt: the next query sees them.
+         */
+        synchronized void startLoad() {
+            reportedDuringLoad.clear();
+        }
+
+        /**
+         * Takes the query result unless a transition was reported while it ran (the result may or
+         * may not include it). With {@code replayReported}, takes it anyway and applies them on top.
+         */
+        synchronized boolean loaded(int[] loadedCounts, boolean replayReported) {
+            if (!reportedDuringLoad.isEmpty() && !replayReported) {
+                return false;
+            }
+            System.arraycopy(loadedCounts, 0, counts, 0, counts.length);
+            for (Ticket.TicketStatus[] move : reportedDuringLoad) {
+                apply(move[0], move[1]);
+            }
+            reportedDuringLoad = null;
+            return true;
+        }
+
+        synchronized void move(Ticket.TicketStatus from, Ticket.TicketStatus to) {
+            if (reportedDuringLoad != null) {
+                reportedDuringLoad.add(new Ticket.TicketStatus[]{from, to});
+            } else {
+                apply(from, to);
+            }
+        }
+
+        private void apply(Ticket.TicketStatus from, Ticket.TicketStatus to) {
+            if (from != null && counts[from.ordinal()] > 0) {
+                counts[from.ordinal()]--;
+            }
+            counts[to.ordinal()]++;
+        }
+
+        synchronized int[] snapshot() {
+            return counts.clone();
+        }
+    }
+}
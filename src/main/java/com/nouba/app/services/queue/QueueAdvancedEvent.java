@@ -0,0 +1,8 @@
+package com.nouba.app.services.queue;
+
+/**
+ * Published once a committed change moved an agency's line forward
+ * (a ticket started, finished or left the waiting line) or added a ticket to it.
+ */
+public record QueueAdvancedEvent(Long agencyId) {
+}
@@ -0,0 +1,8 @@
+package com.nouba.app.services.queue;
+
+/**
+ * Published once a committed change was applied to an agency's in-memory queue
+ * (ticket issued, started, finished or cancelled). A null agencyId means every queue was reset.
+ */
+public record QueueChangedEvent(Long agencyId) {
+}
@@ -0,0 +1,21 @@
+package com.nouba.app.services.queue;
+
+import com.nouba.app.entities.Ticket;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight snapshot of a ticket held by an {@link AgencyQueue}.
+ * Only the fields needed to order and count the queue are kept in memory.
+ */
+public record QueueEntry(Long ticketId, int sequence, Long serviceId, LocalDateTime issuedAt) {
+
+    public static QueueEntry of(Ticket ticket) {
+        return new QueueEntry(
+                ticket.getId(),
+                ticket.getSequenceNumber(),
+                ticket.getAgencyService() != null ? ticket.getAgencyService().getId() : null,
+                ticket.getIssuedAt()
+        );
+    }
+}
@@ -0,0 +1,289 @@
+package com.nouba.app.services.queue;
+
+import com.nouba.app.dto.QueueSnapshotDTO;
+import com.nouba.app.dto.TicketPositionDTO;
+import com.nouba.app.entities.Ticket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Fan-out of live queue state to Server-Sent Events subscribers.
+ * Diffusion en direct de l'état des files aux abonnés SSE.
+ *
+ * Subscribers are {@link SseEmitter}s (async servlet), so an idle connection holds no thread.
+ * On a {@link QueueChangedEvent} the agency is marked dirty and a single flush is scheduled:
+ * however many changes arrive meanwhile and however many clients listen, the snapshot is
+ * computed once per flush from the in-memory queue and the same payload is written to every
+ * agency subscriber. Ticket subscribers get their own position, read from the same queue.
+ */
+@Component
+public class QueueEventHub {
+    private static final Logger logger = LoggerFactory.getLogger(QueueEventHub.class);
+
+    private final AgencyQueueManager queueManager;
+    private final WaitTimeEstimator waitTimeEstimator;
+    private final long emitterTimeoutMs;
+    private final long heartbeatSeconds;
+
+    private final ConcurrentMap<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyAgencies = ConcurrentHashMap.newKeySet();
+    private final ExecutorService flushExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "sse-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public QueueEventHub(AgencyQueueManager queueManager,
+                         WaitTimeEstimator waitTimeEstimator,
+                         @Value("${nouba.sse.timeout-ms:1800000}") long emitterTimeoutMs,
+                         @Value("${nouba.sse.heartbeat-seconds:25}") long heartbeatSeconds) {
+        this.queueManager = queueManager;
+        this.waitTimeEstimator = waitTimeEstimator;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.heartbeatSeconds = heartbeatSeconds;
+    }
+
+    @PostConstruct
+    void start() {
+        // Keeps proxies from closing idle streams and detects clients that went away
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        heartbeat.shutdownNow();
+        flushExecutor.shutdown();
+        channels.values().forEach(Channel::completeAll);
+    }
+
+    /**
+     * Subscribes to the queue state of an agency; the current state is sent right away.
+     */
+    public SseEmitter subscribeAgency(Long agencyId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        AgencySubscriber subscriber = new AgencySubscriber(emitter);
+        Channel channel = register(agencyId, c -> c.agencySubscribers.add(subscriber));
+        emitter.onCompletion(() -> channel.agencySubscribers.remove(subscriber));
+        emitter.onTimeout(() -> channel.agencySubscribers.remove(subscriber));
+        emitter.onError(e -> channel.agencySubscribers.remove(subscriber));
+
+        channel.lock.lock();
+        try {
+            send(emitter, "queue", snapshot(agencyId));
+        } finally {
+            channel.lock.unlock();
+        }
+        return emitter;
+    }
+
+    /**
+     * Subscribes to the position of one ticket (access must be checked by the caller).
+     */
+    public SseEmitter subscribeTicket(Long agencyId, Long ticketId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        TicketSubscriber subscriber = new TicketSubscriber(ticketId, emitter);
+        Channel channel = register(agencyId, c -> c.ticketSubscribers.add(subscriber));
+        emitter.onCompletion(() -> channel.ticketSubscribers.remove(subscriber));
+        emitter.onTimeout(() -> channel.ticketSubscribers.remove(subscriber));
+        emitter.onError(e -> channel.ticketSubscribers.remove(subscriber));
+
+        channel.lock.lock();
+        try {
+            QueueSnapshotDTO snapshot = snapshot(agencyId);
+            sendPosition(channel, subscriber, snapshot);
+        } finally {
+            channel.lock.unlock();
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return channels.values().stream()
+                .mapToInt(c -> c.agencySubscribers.size() + c.ticketSubscribers.size())
+                .sum();
+    }
+
+    @EventListener
+    public void onQueueChanged(QueueChangedEvent event) {
+        if (event.agencyId() == null) {
+            channels.keySet().forEach(this::scheduleFlush);
+        } else if (channels.containsKey(event.agencyId())) {
+            scheduleFlush(event.agencyId());
+        }
+    }
+
+    // ---------- Helpers ----------
+
+    private void scheduleFlush(Long agencyId) {
+        // Coalesce: if a flush is already queued for this agency it will pick up this change
+        if (dirtyAgencies.add(agencyId)) {
+            flushExecutor.execute(() -> flush(agencyId));
+        }
+    }
+
+    private void flush(Long agencyId) {
+        Channel channel = channels.get(agencyId);
+        if (channel == null) {
+            dirtyAgencies.remove(agencyId);
+            return;
+        }
+        channel.lock.lock();
+        try {
+            // Cleared before reading the queue so a change made during the flush triggers another one
+            dirtyAgencies.remove(agencyId);
+            QueueSnapshotDTO snapshot = snapshot(agencyId);
+            for (AgencySubscriber subscriber : channel.agencySubscribers) {
+                if (!send(subscriber.emitter(), "queue", snapshot)) {
+                    channel.agencySubscribers.remove(subscriber);
+                }
+            }
+            for (TicketSubscriber subscriber : channel.ticketSubscribers) {
+                sendPosition(channel, subscriber, snapshot);
+            }
+        } catch (Exception e) {
+            logger.error("Error publishing queue state for agency {}", agencyId, e);
+        } finally {
+            channel.lock.unlock();
+        }
+    }
+
+    private QueueSnapshotDTO snapshot(Long agencyId) {
+        AgencyQueue queue = queueManager.queue(agencyId);
+        int pendingCount = queue.pendingCount();
+        return QueueSnapshotDTO.builder()
+                .agencyId(agencyId)
+                .currentTicketNumber(ticketNumber(queue.currentServing()))
+                .nextTicketNumber(ticketNumber(queue.peekNext()))
+                .pendingCount(pendingCount)
+                .servingCount(queue.servingCount())
+                .estimatedWaitMinutes(waitTimeEstimator.estimateWaitMinutes(agencyId, pendingCount))
+                .build();
+    }
+
+    private void sendPosition(Channel channel, TicketSubscriber subscriber, QueueSnapshotDTO snapshot) {
+        AgencyQueue queue = queueManager.queue(snapshot.getAgencyId());
+        Long ticketId = subscriber.ticketId();
+        OptionalInt peopleAhead = queue.peopleAhead(ticketId);
+
+        TicketPositionDTO.TicketPositionDTOBuilder position = TicketPositionDTO.builder()
+                .ticketId(ticketId)
+                .currentTicketNumber(snapshot.getCurrentTicketNumber())
+                .pendingCount(snapshot.getPendingCount());
+        boolean closed = false;
+        if (peopleAhead.isPresent()) {
+            position.status(Ticket.TicketStatus.EN_ATTENTE.name())
+                    .peopleAhead(peopleAhead.getAsInt())
+                    .currentPosition(peopleAhead.getAsInt() + 1);
+        } else if (queue.isServing(ticketId)) {
+            position.status(Ticket.TicketStatus.EN_COURS.name());
+        } else {
+            position.status("CLOSED");
+            closed = true;
+        }
+
+        boolean sent = send(subscriber.emitter(), "position", position.build());
+        if (!sent || closed) {
+            // Nothing more will happen to this ticket: end the stream
+            channel.ticketSubscribers.remove(subscriber);
+            if (sent) {
+                subscriber.emitter().complete();
+            }
+        }
+    }
+
+    private static String ticketNumber(Optional<QueueEntry> entry) {
+        return entry.map(e -> Ticket.generateTicketNumber(e.sequence())).orElse(null);
+    }
+
+    /**
+     * Adds a subscriber atomically with respect to the removal of empty channels.
+     */
+    private Channel register(Long agencyId, Consumer<Channel> add) {
+        return channels.compute(agencyId, (id, channel) -> {
+            Channel target = channel != null ? channel : new Channel();
+            add.accept(target);
+            return target;
+        });
+    }
+
+    private boolean send(SseEmitter emitter, String name, Object payload) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(payload));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the emitter callbacks remove it
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Channel channel : channels.values()) {
+            channel.lock.lock();
+            try {
+                channel.agencySubscribers.removeIf(s -> !ping(s.emitter()));
+                channel.ticketSubscribers.removeIf(s -> !ping(s.emitter()));
+            } finally {
+                channel.lock.unlock();
+            }
+        }
+        for (Long agencyId : channels.keySet()) {
+            channels.computeIfPresent(agencyId, (id, channel) -> channel.isEmpty() ? null : channel);
+        }
+    }
+
+    private boolean ping(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().comment("ping"));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private record AgencySubscriber(SseEmitter emitter) {
+    }
+
+    private record TicketSubscriber(Long ticketId, SseEmitter emitter) {
+    }
+
+    /**
+     * Subscribers of one agency. The lock keeps events of an agency in order on every stream.
+     */
+    private static final class Channel {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Set<AgencySubscriber> agencySubscribers = ConcurrentHashMap.newKeySet();
+        private final Set<TicketSubscriber> ticketSubscribers = ConcurrentHashMap.newKeySet();
+
+        boolean isEmpty() {
+            return agencySubscribers.isEmpty() && ticketSubscribers.isEmpty();
+        }
+
+        void completeAll() {
+            agencySubscribers.forEach(s -> s.emitter().complete());
+            ticketSubscribers.forEach(s -> s.emitter().complete());
+        }
+    }
+}
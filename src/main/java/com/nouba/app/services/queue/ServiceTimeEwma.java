@@ -0,0 +1,48 @@
+package com.nouba.app.services.queue;
+
+/**
+ * Exponentially weighted moving average of service times, in minutes.
+ * Moyenne mobile exponentielle des durées de service.
+ *
+ * Each observation costs O(1) and recent tickets weigh more than old ones, so the
+ * estimate follows an agency that speeds up or slows down during the day. Until the
+ * first observation the configured prior is returned.
+ */
+public class ServiceTimeEwma {
+
+    private final double alpha;
+    private final double priorMinutes;
+    private double mean;
+    private double variance;
+    private long samples;
+
+    public ServiceTimeEwma(double alpha, double priorMinutes) {
+        this.alpha = alpha;
+        this.priorMinutes = priorMinutes;
+    }
+
+    public synchronized void observe(double minutes) {
+        if (samples == 0) {
+            mean = minutes;
+            variance = 0;
+        } else {
+            double diff = minutes - mean;
+            double increment = alpha * diff;
+            mean += increment;
+            variance = (1 - alpha) * (variance + diff * increment);
+        }
+        samples++;
+    }
+
+    public synchronized double mean() {
+        return samples == 0 ? priorMinutes : mean;
+    }
+
+    public synchronized double standardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    public synchronized long samples() {
+        return samples;
+    }
+}
@@ -0,0 +1,13 @@
+package com.nouba.app.services.queue;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published after commit when a ticket was served to completion (EN_COURS → TERMINE).
+ * {@code serviceId} is null for tickets issued without a service.
+ */
+public record TicketServedEvent(Long agencyId,
+                                Long serviceId,
+                                LocalDateTime startedAt,
+                                LocalDateTime completedAt) {
+}
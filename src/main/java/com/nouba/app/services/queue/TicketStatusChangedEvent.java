@@ -0,0 +1,15 @@
+package com.nouba.app.services.queue;
+
+import com.nouba.app.entities.Ticket;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published after commit for every ticket status transition applied to the in-memory queue.
+ * {@code from} is null when the ticket was just issued.
+ */
+public record TicketStatusChangedEvent(Long agencyId,
+                                       LocalDateTime issuedAt,
+                                       Ticket.TicketStatus from,
+                                       Ticket.TicketStatus to) {
+}
@@ -0,0 +1,131 @@
+package com.nouba.app.services.queue;
+
+import com.nouba.app.dto.ServiceTimeStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Online wait-time estimates built from the real service times of each agency.
+ * Estimation du temps d'attente à partir des durées de service réelles.
+ *
+ * Every ticket served to completion feeds {@code completedAt - startedAt} into an EWMA for its
+ * agency and one for its (agency, service) pair. A waiting ticket is expected to wait
+ * {@code peopleAhead * mean / activeCounters} minutes, where the active counters are the tickets
+ * currently being served at the agency (at least one). Answers come from memory only.
+ * Agencies without history use {@code nouba.queue.wait-estimator.default-service-minutes}.
+ */
+@Component
+public class WaitTimeEstimator {
+
+    private final AgencyQueueManager queueManager;
+    private final double alpha;
+    private final double defaultServiceMinutes;
+    private final double maxServiceMinutes;
+
+    private final ConcurrentMap<Long, ServiceTimeEwma> byAgency = new ConcurrentHashMap<>();
+    private final ConcurrentMap<AgencyServiceKey, ServiceTimeEwma> byService = new ConcurrentHashMap<>();
+
+    public WaitTimeEstimator(AgencyQueueManager queueManager,
+                             @Value("${nouba.queue.wait-estimator.alpha:0.2}") double alpha,
+                             @Value("${nouba.queue.wait-estimator.default-service-minutes:5}") double defaultServiceMinutes,
+                             @Value("${nouba.queue.wait-estimator.max-service-minutes:240}") double maxServiceMinutes) {
+        this.queueManager = queueManager;
+        this.alpha = alpha;
+        this.defaultServiceMinutes = defaultServiceMinutes;
+        this.maxServiceMinutes = maxServiceMinutes;
+    }
+
+    /**
+     * Expected wait in minutes for a ticket with {@code peopleAhead} tickets before it.
+     */
+    public int estimateWaitMinutes(Long agencyId, int peopleAhead) {
+        int counters = Math.max(1, queueManager.servingCount(agencyId));
+        return estimate(peopleAhead, meanServiceMinutes(agencyId), counters);
+    }
+
+    /**
+     * Expected service time at an agency, for one service if it has history, else for the agency.
+     */
+    public double estimateServiceMinutes(Long agencyId, Long serviceId) {
+        ServiceTimeEwma service = serviceId != null ? byService.get(new AgencyServiceKey(agencyId, serviceId)) : null;
+        if (service != null && service.samples() > 0) {
+            return service.mean();
+        }
+        return meanServiceMinutes(agencyId);
+    }
+
+    public double meanServiceMinutes(Long agencyId) {
+        ServiceTimeEwma agency = byAgency.get(agencyId);
+        return agency != null ? agency.mean() : defaultServiceMinutes;
+    }
+
+    @EventListener
+    public void onTicketServed(TicketServedEvent event) {
+        if (event.startedAt() == null || event.completedAt() == null) {
+            return;
+        }
+        double minutes = Duration.between(event.startedAt(), event.completedAt()).toMillis() / 60000.0;
+        if (!accept(minutes)) {
+            return;
+        }
+        byAgency.computeIfAbsent(event.agencyId(), id -> newEwma()).observe(minutes);
+        if (event.serviceId() != null) {
+            byService.computeIfAbsent(new AgencyServiceKey(event.agencyId(), event.serviceId()), key -> newEwma())
+                    .observe(minutes);
+        }
+    }
+
+    /**
+     * Current statistics, one row per agency (serviceId null) and per agency service.
+     */
+    public List<ServiceTimeStatsDTO> getStats() {
+        List<ServiceTimeStatsDTO> stats = new ArrayList<>();
+        byAgency.forEach((agencyId, ewma) -> stats.add(toDto(agencyId, null, ewma)));
+        byService.forEach((key, ewma) -> stats.add(toDto(key.agencyId(), key.serviceId(), ewma)));
+        stats.sort(Comparator.comparing(ServiceTimeStatsDTO::getAgencyId)
+                .thenComparing(ServiceTimeStatsDTO::getServiceId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return stats;
+    }
+
+    public ServiceTimeEwma newEwma() {
+        return new ServiceTimeEwma(alpha, defaultServiceMinutes);
+    }
+
+    /**
+     * Durations outside (0, max] are tickets left open by mistake or clock issues, not service times.
+     */
+    public boolean accept(double minutes) {
+        return minutes > 0 && minutes <= maxServiceMinutes;
+    }
+
+    /**
+     * The estimate itself, shared with the offline replay so both score the same formula.
+     */
+    public static int estimate(int peopleAhead, double meanServiceMinutes, int counters) {
+        if (peopleAhead <= 0) {
+            return 0;
+        }
+        return (int) Math.ceil(peopleAhead * meanServiceMinutes / Math.max(1, counters));
+    }
+
+    private static ServiceTimeStatsDTO toDto(Long agencyId, Long serviceId, ServiceTimeEwma ewma) {
+        return ServiceTimeStatsDTO.builder()
+                .agencyId(agencyId)
+                .serviceId(serviceId)
+                .meanMinutes(ewma.mean())
+                .stdDevMinutes(ewma.standardDeviation())
+                .samples(ewma.samples())
+                .build();
+    }
+
+    private record AgencyServiceKey(Long agencyId, Long serviceId) {
+    }
+}
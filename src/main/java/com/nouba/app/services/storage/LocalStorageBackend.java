@@ -0,0 +1,135 @@
+package com.nouba.app.services.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+/**
+ * Keeps uploads in a directory of this node ({@code nouba.storage.local.directory}, uploads/ by default).
+ * Only suitable for a single node, or several sharing a network file system.
+ *
+ * Files are written to a temporary file in the same directory and moved into place, so a reader
+ * never sees one half written. They are served by UploadController (sendfile, Range, ETag).
+ */
+@Component
+@ConditionalOnProperty(name = "nouba.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+
+    private final Path root;
+
+    public LocalStorageBackend(@Value("${nouba.storage.local.directory:uploads}") String directory) {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void store(String name, Path file, String contentType) throws IOException {
+        Path target = resolve(name);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Not created by createTemporaryFile (another file system): copy, then move within the directory
+            Path temporary = createTemporaryFile();
+            try {
+                Files.copy(file, temporary, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    @Override
+    public void store(String name, byte[] content, String contentType) throws IOException {
+        Path temporary = createTemporaryFile();
+        try {
+            Files.write(temporary, content);
+            store(name, temporary, contentType);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public boolean touch(String name) throws IOException {
+        try {
+            Files.setLastModifiedTime(resolve(name), FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        return Files.newInputStream(resolve(name));
+    }
+
+    @Override
+    public long lastModified(String name) throws IOException {
+        try {
+            return Files.getLastModifiedTime(resolve(name)).toMillis();
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(resolve(name));
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        return Files.find(root, Integer.MAX_VALUE, (file, attributes) -> attributes.isRegularFile())
+                .map(file -> {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        return new StoredObject(root.relativize(file).toString().replace('\\', '/'),
+                                attributes.size(), attributes.lastModifiedTime().toMillis());
+                    } catch (IOException e) {
+                        return null; // deleted meanwhile
+                    }
+                })
+                .filter(object -> object != null);
+    }
+
+    /**
+     * In the upload directory itself, so that {@link #store(String, Path, String)} is an atomic rename.
+     * The name starts with a dot: UploadController never serves it.
+     */
+    @Override
+    public Path createTemporaryFile() throws IOException {
+        Files.createDirectories(root);
+        return Files.createTempFile(root, ".upload", ".tmp");
+    }
+
+    @Override
+    public Path localFile(String name) {
+        Path file = root.resolve(name).normalize();
+        return file.startsWith(root) && !file.equals(root) ? file : null;
+    }
+
+    private Path resolve(String name) throws IOException {
+        Path file = localFile(name);
+        if (file == null) {
+            throw new IOException("Invalid file name: " + name);
+        }
+        return file;
+    }
+}
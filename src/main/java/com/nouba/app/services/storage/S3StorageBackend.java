@@ -0,0 +1,360 @@
+package com.nouba.app.services.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Keeps uploads in an S3-compatible bucket (AWS S3, or MinIO locally), shared by every node.
+ * Stockage des fichiers dans un bucket compatible S3, partagé par toutes les instances.
+ *
+ * Files larger than {@code nouba.storage.s3.part-size-bytes} are sent as a multipart upload, each
+ * part streamed from the temporary file of the upload (never held in memory, and re-readable if
+ * the SDK retries a part). Reads do not go through the application: UploadController redirects to
+ * a pre-signed GET URL, or to {@code public-base-url} when the bucket sits behind a public CDN.
+ * A pre-signed URL is reused until half its validity has passed, so browsers keep hitting the
+ * same URL and their cache. Content-addressed names (objects/, variants/) are stored with an
+ * immutable Cache-Control, which S3 sends back on every read.
+ */
+@Component
+@ConditionalOnProperty(name = "nouba.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+    private static final Logger logger = LoggerFactory.getLogger(S3StorageBackend.class);
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final long MIN_PART_SIZE = 5 * 1024 * 1024; // S3 minimum, except for the last part
+    private static final int MAX_CACHED_URLS = 10_000;
+
+    private final S3Client s3;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String prefix;
+    private final long partSize;
+    private final Duration presignDuration;
+    private final String publicBaseUrl;
+    private final boolean createBucket;
+    private final Map<String, ReadUrl> readUrls = new ConcurrentHashMap<>();
+
+    public S3StorageBackend(@Value("${nouba.storage.s3.endpoint:}") String endpoint,
+                            @Value("${nouba.storage.s3.region:us-east-1}") String region,
+                            @Value("${nouba.storage.s3.bucket:nouba-uploads}") String bucket,
+                            @Value("${nouba.storage.s3.prefix:}") String prefix,
+                            @Value("${nouba.storage.s3.access-key:}") String accessKey,
+                            @Value("${nouba.storage.s3.secret-key:}") String secretKey,
+                            @Value("${nouba.storage.s3.path-style-access:false}") boolean pathStyleAccess,
+                            @Value("${nouba.storage.s3.part-size-bytes:8388608}") long partSize,
+                            @Value("${nouba.storage.s3.presign-seconds:3600}") long presignSeconds,
+                            @Value("${nouba.storage.s3.public-base-url:}") String publicBaseUrl,
+                            @Value("${nouba.storage.s3.create-bucket:false}") boolean createBucket) {
+        // Without keys: the default AWS chain (environment, instance profile...)
+        AwsCredentialsProvider credentials = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration configuration = S3Configuration.builder().pathStyleAccessEnabled(pathStyleAccess).build();
+
+        S3ClientBuilder client = S3Client.builder().region(Region.of(region))
+                .credentialsProvider(credentials).serviceConfiguration(configuration);
+        S3Presigner.Builder presignerBuilder = S3Presigner.builder().region(Region.of(region))
+                .credentialsProvider(credentials).serviceConfiguration(configuration);
+        if (!endpoint.isEmpty()) {
+            client.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        this.s3 = client.build();
+        this.presigner = presignerBuilder.build();
+        this.bucket = bucket;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.presignDuration = Duration.ofSeconds(Math.max(60, presignSeconds));
+        this.publicBaseUrl = publicBaseUrl.endsWith("/") ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1) : publicBaseUrl;
+        this.createBucket = createBucket;
+    }
+
+    /**
+     * Creates the bucket on a local stand-in (MinIO) when {@code create-bucket} is set.
+     */
+    @PostConstruct
+    public void createBucketIfMissing() {
+        if (!createBucket) {
+            return;
+        }
+        try {
+            s3.headBucket(b -> b.bucket(bucket));
+        } catch (S3Exception e) {
+            if (e.statusCode() != 404) {
+                throw e;
+            }
+            s3.createBucket(b -> b.bucket(bucket));
+            logger.info("Created bucket {}", bucket);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        presigner.close();
+        s3.close();
+    }
+
+    @Override
+    public void store(String name, Path file, String contentType) throws IOException {
+        String key = key(name);
+        long size = Files.size(file);
+        if (size <= partSize) {
+            call(() -> s3.putObject(b -> b.bucket(bucket).key(key).contentType(contentType).cacheControl(cacheControl(name)),
+                    RequestBody.fromFile(file)));
+            return;
+        }
+        String uploadId = call(() -> s3.createMultipartUpload(b -> b.bucket(bucket).key(key)
+                .contentType(contentType).cacheControl(cacheControl(name))).uploadId());
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            for (long offset = 0; offset < size; offset += partSize) {
+                int partNumber = parts.size() + 1;
+                long start = offset;
+                long length = Math.min(partSize, size - offset);
+                String etag = call(() -> s3.uploadPart(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                                .partNumber(partNumber).contentLength(length),
+                        RequestBody.fromContentProvider(() -> slice(file, start, length), length, contentType)).eTag());
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+            }
+            call(() -> s3.completeMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(m -> m.parts(parts))));
+        } catch (IOException | RuntimeException e) {
+            try {
+                s3.abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId));
+            } catch (SdkException abortFailure) {
+                e.addSuppressed(abortFailure); // the bucket's lifecycle rule for incomplete uploads cleans it up
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void store(String name, byte[] content, String contentType) throws IOException {
+        String key = key(name);
+        call(() -> s3.putObject(b -> b.bucket(bucket).key(key).contentType(contentType).cacheControl(cacheControl(name)),
+                RequestBody.fromBytes(content)));
+    }
+
+    /**
+     * S3 cannot change the date of an object: it is copied onto itself, keeping its headers.
+     */
+    @Override
+    public boolean touch(String name) throws IOException {
+        String key = key(name);
+        HeadObjectResponse head = head(key);
+        if (head == null) {
+            return false;
+        }
+        call(() -> s3.copyObject(b -> b.sourceBucket(bucket).sourceKey(key).destinationBucket(bucket).destinationKey(key)
+                .metadataDirective(MetadataDirective.REPLACE).metadata(head.metadata())
+                .contentType(head.contentType()).cacheControl(head.cacheControl())));
+        return true;
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        String key = key(name);
+        try {
+            return s3.getObject(b -> b.bucket(bucket).key(key));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException(name);
+            }
+            throw new IOException("Could not read " + key + " from bucket " + bucket, e);
+        } catch (SdkException e) {
+            throw new IOException("Could not read " + key + " from bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public long lastModified(String name) throws IOException {
+        HeadObjectResponse head = head(key(name));
+        return head == null ? -1 : head.lastModified().toEpochMilli();
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        String key = key(name);
+        readUrls.remove(name);
+        call(() -> s3.deleteObject(b -> b.bucket(bucket).key(key)));
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        return call(() -> s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix)).contents().stream()
+                .map(object -> new StoredObject(object.key().substring(prefix.length()), object.size(),
+                        object.lastModified().toEpochMilli())));
+    }
+
+    @Override
+    public Optional<ReadUrl> readUrl(String name) {
+        if (!isValid(name)) {
+            return Optional.empty();
+        }
+        if (!publicBaseUrl.isEmpty()) {
+            return Optional.of(new ReadUrl(URI.create(publicBaseUrl + "/" + UriUtils.encodePath(prefix + name, StandardCharsets.UTF_8)), Instant.MAX));
+        }
+        ReadUrl cached = readUrls.get(name);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now().plus(presignDuration.dividedBy(2)))) {
+            return Optional.of(cached);
+        }
+        if (readUrls.size() >= MAX_CACHED_URLS) {
+            readUrls.clear();
+        }
+        PresignedGetObjectRequest presigned = presigner.presignGetObject(p -> p.signatureDuration(presignDuration)
+                .getObjectRequest(g -> g.bucket(bucket).key(prefix + name)));
+        try {
+            ReadUrl url = new ReadUrl(presigned.url().toURI(), presigned.expiration());
+            readUrls.put(name, url);
+            return Optional.of(url);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HeadObjectResponse head(String key) throws IOException {
+        try {
+            return s3.headObject(b -> b.bucket(bucket).key(key));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Could not read " + key + " from bucket " + bucket, e);
+        } catch (SdkException e) {
+            throw new IOException("Could not read " + key + " from bucket " + bucket, e);
+        }
+    }
+
+    private <T> T call(Supplier<T> request) throws IOException {
+        try {
+            return request.get();
+        } catch (SdkException e) {
+            throw new IOException("Request to bucket " + bucket + " failed: " + e.getMessage(), e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String key(String name) throws IOException {
+        if (!isValid(name)) {
+            throw new IOException("Invalid file name: " + name);
+        }
+        return prefix + name;
+    }
+
+    // Same names as on disk: relative, no "." or ".." segment
+    private static boolean isValid(String name) {
+        if (name == null || name.isEmpty() || name.startsWith("/") || name.contains("\\")) {
+            return false;
+        }
+        for (String segment : name.split("/")) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String cacheControl(String name) {
+        return name.startsWith("objects/") || name.startsWith("variants/") ? IMMUTABLE : null;
+    }
+
+    /**
+     * One part of the file, opened each time the SDK (re)sends the part.
+     */
+    private static InputStream slice(Path file, long start, long length) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ).position(start);
+            return new FilterInputStream(Channels.newInputStream(channel)) {
+                private long remaining = length;
+
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int b = super.read();
+                    if (b >= 0) {
+                        remaining--;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int count) throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int read = super.read(buffer, offset, (int) Math.min(count, remaining));
+                    if (read > 0) {
+                        remaining -= read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(Math.min(n, remaining));
+                    remaining -= skipped;
+                    return skipped;
+                }
+
+                @Override
+                public int available() throws IOException {
+                    return (int) Math.min(super.available(), remaining);
+                }
+
+                @Override
+                public boolean markSupported() {
+                    return false;
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.nouba.app.services.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Where uploaded files are kept: this node's disk ({@link LocalStorageBackend}) or an S3-compatible
+ * object store shared by every node ({@link S3StorageBackend}), chosen with {@code nouba.storage.backend}.
+ * Stockage des fichiers envoyés : disque local ou stockage objet compatible S3.
+ *
+ * Names are relative paths ({@code objects/ab/cd/<sha256>.jpg}, {@code variants/...}) and are used
+ * as is for the object keys. Naming, hashing and reference counting stay in FileStorageService and
+ * UploadGarbageCollector; a backend only moves bytes.
+ */
+public interface StorageBackend {
+
+    /**
+     * Stores a file under the given name, replacing any previous content. The backend may move
+     * the file instead of copying it, so the caller must not use it afterwards.
+     */
+    void store(String name, Path file, String contentType) throws IOException;
+
+    /**
+     * Stores generated content (image variants) under the given name.
+     */
+    void store(String name, byte[] content, String contentType) throws IOException;
+
+    /**
+     * Sets the modification time of a stored file to now; false if there is no such file.
+     */
+    boolean touch(String name) throws IOException;
+
+    InputStream open(String name) throws IOException;
+
+    /**
+     * Modification time in milliseconds, or -1 if there is no such file.
+     */
+    long lastModified(String name) throws IOException;
+
+    void delete(String name) throws IOException;
+
+    /**
+     * Every stored file; the stream must be closed.
+     */
+    Stream<StoredObject> list() throws IOException;
+
+    /**
+     * A temporary file for an upload being received, on a disk from which {@link #store(String, Path, String)}
+     * can take it cheaply.
+     */
+    default Path createTemporaryFile() throws IOException {
+        return Files.createTempFile("nouba-upload", ".tmp");
+    }
+
+    /**
+     * URL the client can fetch the file from directly, so the bytes do not go through this
+     * application; empty when the file is served by UploadController.
+     */
+    default Optional<ReadUrl> readUrl(String name) {
+        return Optional.empty();
+    }
+
+    /**
+     * The file on this node's disk, or null if it is not kept here (or the name is invalid).
+     */
+    default Path localFile(String name) {
+        return null;
+    }
+
+    record StoredObject(String name, long size, long lastModified) {
+    }
+
+    /**
+     * @param expiresAt when the URL stops working ({@link Instant#MAX} for public URLs)
+     */
+    record ReadUrl(URI uri, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,7 @@
+-- Queue ordering on ticket.sequence_number instead of CAST(SUBSTRING(number, 6) AS int)
+-- Tri de la file sur sequence_number au lieu de CAST(SUBSTRING(number, 6) AS int)
+--
+-- ddl-auto=update creates the index from the @Index on Ticket; this script is for
+-- databases managed by hand (or with ddl-auto=validate/none).
+
+CREATE INDEX idx_ticket_agency_status_seq ON ticket (agency_id, status, sequence_number);
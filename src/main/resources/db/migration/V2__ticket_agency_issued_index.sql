@@ -0,0 +1,7 @@
+-- Per-day agency statistics on an issued_at range instead of DATE(issued_at) = CURRENT_DATE
+-- Statistiques journalières par plage sur issued_at au lieu de DATE(issued_at) = CURRENT_DATE
+--
+-- ddl-auto=update creates the index from the @Index on Ticket; this script is for
+-- databases managed by hand (or with ddl-auto=validate/none).
+
+CREATE INDEX idx_ticket_agency_issued ON ticket (agency_id, issued_at);
@@ -0,0 +1,8 @@
+-- Reset epoch of the per-agency ticket sequence: the daily reset increments it, and a node drops
+-- a block reserved under an older epoch instead of handing out yesterday's numbers
+-- Époque de remise à zéro de la séquence des tickets par agence
+--
+-- ddl-auto=update adds the column from AgencySequence; this script is for
+-- databases managed by hand (or with ddl-auto=validate/none).
+
+ALTER TABLE agency_sequence ADD COLUMN epoch INT NOT NULL DEFAULT 0;
@@ -0,0 +1,138 @@
+package com.nouba.app;
+
+import com.nouba.app.entities.Agency;
+import com.nouba.app.entities.City;
+import com.nouba.app.entities.Client;
+import com.nouba.app.entities.Role;
+import com.nouba.app.entities.Servicee;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.entities.User;
+import com.nouba.app.repositories.AgencyRepository;
+import com.nouba.app.repositories.CityRepository;
+import com.nouba.app.repositories.ClientRepository;
+import com.nouba.app.repositories.ServiceRepository;
+import com.nouba.app.repositories.UserRepository;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Creates test data: agencies with one service and one client, and tickets inserted straight
+ * into the ticket table. Also used by the benchmarks (test-jar), hence the batched inserts.
+ */
+@Component
+public class TestData {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final CityRepository cityRepository;
+    private final AgencyRepository agencyRepository;
+    private final ServiceRepository serviceRepository;
+    private final UserRepository userRepository;
+    private final ClientRepository clientRepository;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+
+    public TestData(CityRepository cityRepository, AgencyRepository agencyRepository, ServiceRepository serviceRepository,
+                    UserRepository userRepository, ClientRepository clientRepository, JdbcTemplate jdbc,
+                    PlatformTransactionManager transactionManager) {
+        this.cityRepository = cityRepository;
+        this.agencyRepository = agencyRepository;
+        this.serviceRepository = serviceRepository;
+        this.userRepository = userRepository;
+        this.clientRepository = clientRepository;
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates an agency offering one service, and a client who can take tickets there.
+     */
+    public Fixture createAgency() {
+        int n = SEQUENCE.incrementAndGet();
+        return transaction.execute(status -> {
+            City city = cityRepository.save(new City(null, "City " + n, null));
+
+            Agency agency = new Agency();
+            agency.setName("Agency " + n);
+            agency.setCity(city);
+            agency.setUser(user("agency" + n + "@test.local", Role.AGENCY));
+            agency = agencyRepository.save(agency);
+
+            Servicee service = new Servicee();
+            service.setName("Service " + n);
+            service.setAgencies(Set.of(agency));
+            service = serviceRepository.save(service);
+
+            Client client = new Client();
+            client.setUser(userRepository.save(user("client" + n + "@test.local", Role.CLIENT)));
+            client = clientRepository.save(client);
+
+            return new Fixture(agency.getId(), service.getId(), client);
+        });
+    }
+
+    /**
+     * Inserts tickets straight into the ticket table (JDBC batches), bypassing the sequence
+     * allocator and the in-memory queues. Sequences start at {@code firstSequence}.
+     */
+    public void insertTickets(Fixture fixture, int firstSequence, int count, LocalDateTime issuedAt,
+                              IntFunction<Ticket.TicketStatus> statusOfIndex) {
+        String sql = "INSERT INTO ticket (number, status, issued_at, started_at, completed_at, served, sequence_number, " +
+                "approach_notified, client_id, agency_id, service_id) VALUES (?, ?, ?, ?, ?, ?, ?, false, ?, ?, ?)";
+        int batch = 5_000;
+        for (int from = 0; from < count; from += batch) {
+            int start = from;
+            int size = Math.min(batch, count - from);
+            jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int index = start + i;
+                    int sequence = firstSequence + index;
+                    Ticket.TicketStatus status = statusOfIndex.apply(index);
+                    LocalDateTime issued = issuedAt.plus(index * 50L, ChronoUnit.MILLIS); // 1M tickets fit in one day
+                    boolean started = status == Ticket.TicketStatus.EN_COURS || status == Ticket.TicketStatus.TERMINE;
+                    boolean closed = status == Ticket.TicketStatus.TERMINE || status == Ticket.TicketStatus.ANNULE;
+                    ps.setString(1, Ticket.generateTicketNumber(sequence));
+                    ps.setString(2, status.name());
+                    ps.setTimestamp(3, Timestamp.valueOf(issued));
+                    ps.setTimestamp(4, started ? Timestamp.valueOf(issued.plusMinutes(5)) : null);
+                    ps.setTimestamp(5, closed ? Timestamp.valueOf(issued.plusMinutes(10)) : null);
+                    ps.setBoolean(6, status == Ticket.TicketStatus.TERMINE);
+                    ps.setInt(7, sequence);
+                    ps.setLong(8, fixture.client().getId());
+                    ps.setLong(9, fixture.agencyId());
+                    ps.setLong(10, fixture.serviceId());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+    }
+
+    private static User user(String email, Role role) {
+        User user = new User();
+        user.setName(email.substring(0, email.indexOf('@')));
+        user.setEmail(email);
+        user.setPassword("{noop}test");
+        user.setRole(role);
+        user.setEnabled(true);
+        return user;
+    }
+
+    public record Fixture(Long agencyId, Long serviceId, Client client) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.nouba.app.services;
+
+import com.nouba.app.TestData;
+import com.nouba.app.dto.TicketAgencyDto;
+import com.nouba.app.entities.Ticket;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The agency ticket list (GET /tickets/agency/{id}/all) takes the same number of SQL statements
+ * whatever the number of tickets: no per-ticket position query, no lazy loads.
+ */
+@SpringBootTest
+class AgencyTicketListQueryCountTest {
+
+    @Autowired
+    private TicketService ticketService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void statementCountDoesNotGrowWithTheNumberOfTickets() {
+        long small = statementsToList(10);
+        long large = statementsToList(1_000);
+
+        assertThat(large).as("statements for 1,000 tickets").isEqualTo(small);
+        assertThat(small).as("statements for 10 tickets").isEqualTo(1);
+    }
+
+    private long statementsToList(int tickets) {
+        TestData.Fixture fixture = testData.createAgency();
+        // A busy day: two thirds served or cancelled, the last third waiting
+        int firstWaiting = tickets - tickets / 3;
+        testData.insertTickets(fixture, 1, tickets, LocalDate.now().atStartOfDay(), i ->
+                i >= firstWaiting ? Ticket.TicketStatus.EN_ATTENTE
+                        : i % 10 == 0 ? Ticket.TicketStatus.ANNULE : Ticket.TicketStatus.TERMINE);
+
+        // First call loads the agency's in-memory queue (used by the wait estimate); not counted
+        ticketService.getAllTicketsByAgency(fixture.agencyId());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            List<TicketAgencyDto> listed = ticketService.getAllTicketsByAgency(fixture.agencyId());
+            assertThat(listed).hasSize(tickets);
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+}
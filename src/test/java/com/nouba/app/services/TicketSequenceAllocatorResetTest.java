@@ -0,0 +1,49 @@
+package com.nouba.app.services;
+
+import com.nouba.app.TestData;
+import com.nouba.app.repositories.AgencySequenceRepository;
+import com.nouba.app.repositories.TicketRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two nodes sharing the agency_sequence table: once one of them resets the numbering, the other
+ * stops handing out the rest of the block it reserved before the reset.
+ */
+@SpringBootTest
+class TicketSequenceAllocatorResetTest {
+
+    @Autowired
+    private TicketSequenceAllocator allocator;
+    @Autowired
+    private AgencySequenceRepository sequenceRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void otherNodeDropsItsBlockAfterAReset() {
+        Long agencyId = testData.createAgency().agencyId();
+        TicketSequenceAllocator otherNode = new TicketSequenceAllocator(sequenceRepository, ticketRepository, transactionManager, 10);
+
+        assertThat(allocator.next(agencyId)).isEqualTo(1);     // this node: block 1-10
+        assertThat(otherNode.next(agencyId)).isEqualTo(11);    // other node: block 11-20
+        assertThat(otherNode.peekNext(agencyId)).isEqualTo(12);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> allocator.resetAll());
+
+        // No ticket was issued: both nodes restart at 1 instead of going on with their old blocks
+        assertThat(otherNode.peekNext(agencyId)).isEqualTo(1);
+        assertThat(otherNode.next(agencyId)).isEqualTo(1);
+        assertThat(allocator.next(agencyId)).isEqualTo(11);
+        assertThat(otherNode.next(agencyId)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,106 @@
+package com.nouba.app.services;
+
+import com.nouba.app.TestData;
+import com.nouba.app.entities.Ticket;
+import com.nouba.app.repositories.TicketRepository;
+import com.nouba.app.services.queue.AgencyQueueManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Several desks of one agency draining its line at the same time through serveNextAtDesk:
+ * every ticket is served exactly once, none is left waiting, and the desks the in-memory queue
+ * reports match the ticket table.
+ */
+@SpringBootTest
+class TicketServiceDeskConcurrencyTest {
+    private static final int DESKS = 8;
+    private static final int TICKETS = 400;
+
+    @Autowired
+    private TicketService ticketService;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private AgencyQueueManager queueManager;
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void desksDrainTheLineWithoutServingATicketTwice() throws Exception {
+        TestData.Fixture fixture = testData.createAgency();
+        testData.insertTickets(fixture, 1, TICKETS, LocalDateTime.now(), i -> Ticket.TicketStatus.EN_ATTENTE);
+        queueManager.reset(); // reload lines from the table
+        Long agencyId = fixture.agencyId();
+
+        Map<Long, Integer> deskOfTicket = new ConcurrentHashMap<>();
+        AtomicInteger duplicates = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(DESKS);
+
+        ExecutorService desks = Executors.newFixedThreadPool(DESKS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int desk = 1; desk <= DESKS; desk++) {
+                int number = desk;
+                Callable<Integer> drain = () -> {
+                    start.await(10, TimeUnit.SECONDS);
+                    int count = 0;
+                    while (true) {
+                        Optional<Ticket> ticket = ticketService.serveNextAtDesk(agencyId, number);
+                        if (ticket.isEmpty()) {
+                            return count;
+                        }
+                        if (deskOfTicket.putIfAbsent(ticket.get().getId(), number) != null) {
+                            duplicates.incrementAndGet();
+                        }
+                        count++;
+                    }
+                };
+                results.add(desks.submit(drain));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(60, TimeUnit.SECONDS);
+            }
+            assertThat(total).isEqualTo(TICKETS);
+        } finally {
+            desks.shutdownNow();
+        }
+
+        assertThat(duplicates.get()).as("tickets served twice").isZero();
+        assertThat(deskOfTicket).hasSize(TICKETS);
+        assertThat(ticketRepository.countPendingByAgencyId(agencyId)).as("tickets still waiting").isZero();
+        assertThat(queueManager.pendingCount(agencyId)).isZero();
+
+        // The call that found the line empty completed each desk's last ticket: nothing is left
+        // being served, in the table or in memory, and each ticket was closed at the desk that got it
+        assertThat(ticketRepository.findByAgencyIdAndStatusOrderByStartedAtAsc(agencyId, Ticket.TicketStatus.EN_COURS)).isEmpty();
+        assertThat(queueManager.servingCount(agencyId)).isZero();
+        for (int desk = 1; desk <= DESKS; desk++) {
+            assertThat(queueManager.servingAtDesk(agencyId, desk)).as("desk " + desk).isEmpty();
+        }
+        List<Ticket> tickets = ticketRepository.findAllByAgencyId(agencyId);
+        assertThat(tickets).hasSize(TICKETS);
+        for (Ticket ticket : tickets) {
+            assertThat(ticket.getStatus()).as("status of " + ticket.getNumber()).isEqualTo(Ticket.TicketStatus.TERMINE);
+            assertThat(ticket.getDeskNumber()).as("desk of " + ticket.getNumber()).isEqualTo(deskOfTicket.get(ticket.getId()));
+        }
+    }
+}